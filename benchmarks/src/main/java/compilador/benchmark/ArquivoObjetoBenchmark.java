@@ -0,0 +1,84 @@
+package compilador.benchmark;
+
+import compilador.ArquivoObjeto;
+import compilador.GeradorCodigo;
+import compilador.Parser;
+import compilador.ProgramaDecodificado;
+import compilador.ScannerLexico;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// gravação e carga do código objeto em arquivo (formato binário e texto)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArquivoObjetoBenchmark {
+
+    @Param({ "correto", "gerado-100", "gerado-2000" })
+    public String entrada;
+
+    private ProgramaDecodificado programa;
+    private Path binario;
+    private Path texto;
+    private Path destino;
+
+    @Setup
+    public void preparar() throws IOException {
+        PrintStream saida = Entradas.silenciarSaida();
+        try {
+            Parser parser = new Parser(new ScannerLexico(Entradas.fonte(entrada)));
+            parser.parse();
+            GeradorCodigo gerador = parser.getGerador();
+            programa = ProgramaDecodificado.decodificar(gerador.getCodigo(), gerador.getTamanhoMemoria());
+        } finally {
+            System.setOut(saida);
+        }
+        binario = Files.createTempFile("lalg-bench", ".obj");
+        texto = Files.createTempFile("lalg-bench", ".txt");
+        destino = Files.createTempFile("lalg-bench", ".obj");
+        ArquivoObjeto.salvar(programa, binario);
+        ArquivoObjeto.salvarTexto(programa.paraInstrucoes(), texto);
+    }
+
+    @TearDown
+    public void limpar() throws IOException {
+        Files.deleteIfExists(binario);
+        Files.deleteIfExists(texto);
+        Files.deleteIfExists(destino);
+    }
+
+    @Benchmark
+    public void salvar() throws IOException {
+        ArquivoObjeto.salvar(programa, destino);
+    }
+
+    @Benchmark
+    public ProgramaDecodificado carregar() throws IOException {
+        return ArquivoObjeto.carregar(binario);
+    }
+
+    @Benchmark
+    public ProgramaDecodificado carregarTexto() throws IOException {
+        return ArquivoObjeto.carregar(texto);
+    }
+}
@@ -0,0 +1,88 @@
+package compilador.benchmark;
+
+import compilador.AnalisadorLexico;
+import compilador.Parser;
+import compilador.ScannerBytes;
+import compilador.ScannerLexico;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Parser.parse com a geração de código (GeradorCodigo); o contador "linhas" dá linhas/s
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompilacaoBenchmark {
+
+    @Param({ "correto", "gerado-100", "gerado-2000" })
+    public String entrada;
+
+    // "bytes" usa o ScannerBytes sobre um buffer direto, como o de um arquivo mapeado;
+    // "buffer" lê do mesmo jeito, mas para um BufferTokens de uma vez
+    @Param({ "texto", "bytes", "buffer" })
+    public String scanner;
+
+    private String fonte;
+    private ByteBuffer fonteBytes;
+    private int linhas;
+    private PrintStream saidaOriginal;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contadores {
+        public long linhas;
+
+        @Setup(Level.Iteration)
+        public void zerar() {
+            linhas = 0;
+        }
+    }
+
+    @Setup
+    public void preparar() throws IOException {
+        fonte = Entradas.fonte(entrada);
+        byte[] bytes = fonte.getBytes(StandardCharsets.UTF_8);
+        fonteBytes = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        linhas = Entradas.contarLinhas(fonte);
+        saidaOriginal = Entradas.silenciarSaida();
+    }
+
+    @TearDown
+    public void restaurar() {
+        System.setOut(saidaOriginal);
+    }
+
+    @Benchmark
+    public Object compilar(Contadores contadores) {
+        Parser parser = scanner.equals("buffer") ? new Parser(new ScannerBytes(fonteBytes.duplicate()).tokenizar())
+                : new Parser(novoScanner());
+        parser.parse();
+        contadores.linhas += linhas;
+        return parser.getGerador().getCodigo();
+    }
+
+    private AnalisadorLexico novoScanner() {
+        return scanner.equals("bytes") ? new ScannerBytes(fonteBytes.duplicate()) : new ScannerLexico(fonte);
+    }
+}
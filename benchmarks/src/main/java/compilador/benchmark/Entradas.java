@@ -0,0 +1,129 @@
+package compilador.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Fontes usados pelos benchmarks: "correto" é descricao/correto.pascal.txt e
+// "gerado-N" é um programa sintético com N variáveis globais, N/10 procedimentos
+// e um laço principal que chama todos eles.
+final class Entradas {
+
+    // valores lidos por correto.pascal.txt (4 no corpo principal e 2 em "dois")
+    static final String ENTRADA_CORRETO = "3.0\n2.0\n4\n7\n5\n1\n";
+
+    private static final int ITERACOES_GERADO = 200;
+
+    private Entradas() {
+    }
+
+    static String fonte(String nome) throws IOException {
+        if (nome.equals("correto")) {
+            return new String(Files.readAllBytes(caminhoCorreto()));
+        }
+        if (nome.startsWith("gerado-")) {
+            return gerar(Integer.parseInt(nome.substring("gerado-".length())), ITERACOES_GERADO);
+        }
+        throw new IllegalArgumentException("Entrada desconhecida: " + nome);
+    }
+
+    static String entradaPadrao(String nome) {
+        return nome.equals("correto") ? ENTRADA_CORRETO : "";
+    }
+
+    // a mesma entrada padrão como vetor, para a EntradaMemoria
+    static double[] valoresPadrao(String nome) {
+        String texto = entradaPadrao(nome).trim();
+        if (texto.isEmpty()) {
+            return new double[0];
+        }
+        String[] partes = texto.split("\\s+");
+        double[] valores = new double[partes.length];
+        for (int i = 0; i < partes.length; i++) {
+            valores[i] = Double.parseDouble(partes[i]);
+        }
+        return valores;
+    }
+
+    private static Path caminhoCorreto() {
+        String diretorio = System.getProperty("lalg.descricao");
+        if (diretorio != null) {
+            return Paths.get(diretorio, "correto.pascal.txt");
+        }
+        Path local = Paths.get("descricao", "correto.pascal.txt");
+        return Files.exists(local) ? local : Paths.get("..", "descricao", "correto.pascal.txt");
+    }
+
+    static String gerar(int variaveis, int iteracoes) {
+        int procedimentos = Math.max(1, variaveis / 10);
+        StringBuilder sb = new StringBuilder();
+        sb.append("program gerado\n");
+        sb.append("var i, n, s: integer;\n");
+        sb.append("var x, y: real;\n");
+        for (int v = 0; v < variaveis; v++) {
+            sb.append("var v").append(v).append(": integer;\n");
+        }
+
+        for (int p = 0; p < procedimentos; p++) {
+            if (p > 0) {
+                sb.append(";\n");
+            }
+            sb.append("procedure p").append(p).append(" (a: integer; b: real)\n");
+            sb.append("  var t: integer;\n");
+            sb.append("  var r: real;\n");
+            sb.append("begin\n");
+            sb.append("  t := a * 2 + ").append(p).append(";\n");
+            sb.append("  r := b / 2.0 + t;\n");
+            sb.append("  if t > 100 then\n");
+            sb.append("    t := t - 100;\n");
+            sb.append("  else\n");
+            sb.append("    t := t + 1;\n");
+            sb.append("  $\n");
+            sb.append("  s := s + t;\n");
+            sb.append("  y := y + r;\n");
+            sb.append("end");
+        }
+        sb.append("\n\nbegin\n");
+        sb.append("  n := ").append(iteracoes).append(";\n");
+        sb.append("  i := 0;\n");
+        sb.append("  s := 0;\n");
+        sb.append("  while i < n do\n");
+        for (int v = 0; v < variaveis; v++) {
+            sb.append("    v").append(v).append(" := v").append(v).append(" + i * ").append(v % 7 + 1).append(";\n");
+        }
+        for (int p = 0; p < procedimentos; p++) {
+            sb.append("    p").append(p).append("(i, x);\n");
+        }
+        sb.append("    x := x + i * 0.5;\n");
+        sb.append("    if s > 100000 then\n");
+        sb.append("      s := s - 100000;\n");
+        sb.append("    $\n");
+        sb.append("    i := i + 1;\n");
+        sb.append("  $\n");
+        sb.append("  write(s);\n");
+        sb.append("  write(x);\n");
+        sb.append("  write(y);\n");
+        sb.append("end.\n");
+        return sb.toString();
+    }
+
+    static int contarLinhas(String fonte) {
+        int linhas = 1;
+        for (int i = 0; i < fonte.length(); i++) {
+            if (fonte.charAt(i) == '\n') {
+                linhas++;
+            }
+        }
+        return linhas;
+    }
+
+    // o compilador e a VM escrevem em System.out; nos benchmarks a saída é descartada
+    static PrintStream silenciarSaida() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        return original;
+    }
+}
@@ -0,0 +1,22 @@
+package compilador.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Ponto de entrada do benchmarks.jar: aceita as opções normais do JMH
+// (filtro de benchmarks, -p entrada=..., -rf json, ...) e sempre liga o GC profiler.
+public class ExecutarBenchmarks {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options opcoes = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opcoes).run();
+    }
+}
@@ -0,0 +1,110 @@
+package compilador.benchmark;
+
+import compilador.CompiladorJit;
+import compilador.GeradorCodigo;
+import compilador.HospedeiroExecucao;
+import compilador.MaquinaVirtual;
+import compilador.Parser;
+import compilador.ProgramaDecodificado;
+import compilador.ProgramaExecutavel;
+import compilador.ScannerLexico;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Execuções por segundo de um lote de EXECUCOES execuções concorrentes do mesmo
+// programa no HospedeiroExecucao, cada uma com a sua entrada e a sua saída.
+// "maquina=pool" reaproveita as máquinas do ProgramaExecutavel; "maquina=nova"
+// cria uma MaquinaVirtual por execução, para medir o que o pool economiza (rode
+// com o GC profiler do ExecutarBenchmarks para ver a alocação por execução).
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HospedeiroExecucaoBenchmark {
+
+    private static final int EXECUCOES = 1000;
+
+    @Param({ "correto", "gerado-100" })
+    public String entrada;
+
+    @Param({ "pool", "nova" })
+    public String maquina;
+
+    private ProgramaExecutavel programa;
+    private HospedeiroExecucao hospedeiro;
+    private ExecutorService executor;
+    private byte[] dadosEntrada;
+    private PrintStream descarte;
+
+    @Setup
+    public void preparar() throws IOException {
+        Parser parser = new Parser(new ScannerLexico(Entradas.fonte(entrada)));
+        parser.analisar();
+        GeradorCodigo gerador = parser.getGerador();
+        ProgramaDecodificado decodificado =
+                ProgramaDecodificado.decodificar(gerador.getCodigo(), gerador.getTamanhoMemoria());
+        programa = new ProgramaExecutavel(decodificado, new CompiladorJit(decodificado));
+        // o mesmo pool de threads nos dois casos; com "pool" o hospedeiro empresta as máquinas
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        hospedeiro = new HospedeiroExecucao(executor);
+        dadosEntrada = Entradas.entradaPadrao(entrada).getBytes(StandardCharsets.US_ASCII);
+        descarte = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    @TearDown
+    public void encerrar() {
+        hospedeiro.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EXECUCOES)
+    public long executar() throws InterruptedException, ExecutionException {
+        List<Future<Long>> execucoes = new ArrayList<>(EXECUCOES);
+        for (int i = 0; i < EXECUCOES; i++) {
+            ByteArrayInputStream entradaExecucao = new ByteArrayInputStream(dadosEntrada);
+            if (maquina.equals("pool")) {
+                execucoes.add(executor.submit(
+                        () -> hospedeiro.executar(programa, entradaExecucao, descarte).getInstrucoes()));
+            } else {
+                execucoes.add(executor.submit(() -> {
+                    MaquinaVirtual vm = new MaquinaVirtual(programa);
+                    vm.reiniciar(entradaExecucao, descarte);
+                    vm.executar();
+                    return vm.getInstrucoesExecutadas();
+                }));
+            }
+        }
+        long instrucoes = 0;
+        for (Future<Long> execucao : execucoes) {
+            instrucoes += execucao.get();
+        }
+        return instrucoes;
+    }
+}
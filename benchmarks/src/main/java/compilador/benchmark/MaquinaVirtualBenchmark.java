@@ -0,0 +1,105 @@
+package compilador.benchmark;
+
+import compilador.CompiladorJit;
+import compilador.EntradaMemoria;
+import compilador.GeradorCodigo;
+import compilador.MaquinaVirtual;
+import compilador.Parser;
+import compilador.ProgramaDecodificado;
+import compilador.SaidaMemoria;
+import compilador.ScannerLexico;
+import compilador.Superinstrucoes;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// MaquinaVirtual.executar sobre o programa já decodificado; o contador
+// "instrucoes" dá instruções despachadas pela VM por segundo. "superinstrucoes"
+// aceita o mesmo que --super (todas, nenhuma ou uma lista de fusões), para medir
+// cada fusão separadamente: -p superinstrucoes=COMPARA_DESVIA. "motor" escolhe
+// entre o interpretador puro, o interpretador com JIT (o mesmo CompiladorJit em
+// todas as execuções, então as regiões quentes são compiladas no aquecimento) e
+// o motor de nós, que ignora as superinstruções. A entrada e a saída ficam em
+// memória (EntradaMemoria e SaidaMemoria), para medir só a VM.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MaquinaVirtualBenchmark {
+
+    @Param({ "correto", "gerado-100", "gerado-2000" })
+    public String entrada;
+
+    @Param({ "nenhuma", "todas" })
+    public String superinstrucoes;
+
+    @Param({ "interpretador", "jit", "nos", "registros" })
+    public String motor;
+
+    private ProgramaDecodificado programa;
+    private CompiladorJit compiladorJit;
+    private EntradaMemoria entradaMemoria;
+    private SaidaMemoria saidaMemoria;
+    private PrintStream saidaOriginal;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contadores {
+        public long instrucoes;
+
+        @Setup(Level.Iteration)
+        public void zerar() {
+            instrucoes = 0;
+        }
+    }
+
+    @Setup
+    public void preparar() throws IOException {
+        saidaOriginal = Entradas.silenciarSaida();
+        Parser parser = new Parser(new ScannerLexico(Entradas.fonte(entrada)));
+        parser.parse();
+        GeradorCodigo gerador = parser.getGerador();
+        programa = ProgramaDecodificado.decodificar(gerador.getCodigo(), gerador.getTamanhoMemoria())
+                .comSuperinstrucoes(Superinstrucoes.lerFusoes(superinstrucoes));
+        compiladorJit = motor.equals("jit") ? new CompiladorJit(programa) : null;
+        entradaMemoria = new EntradaMemoria(Entradas.valoresPadrao(entrada));
+        saidaMemoria = new SaidaMemoria();
+    }
+
+    @TearDown
+    public void restaurar() {
+        System.setOut(saidaOriginal);
+    }
+
+    @Benchmark
+    public long executar(Contadores contadores) {
+        entradaMemoria.reiniciar();
+        saidaMemoria.limpar();
+        MaquinaVirtual vm = motor.equals("nos") ? new MaquinaVirtual(programa, MaquinaVirtual.Motor.NOS)
+                : motor.equals("registros") ? new MaquinaVirtual(programa, MaquinaVirtual.Motor.REGISTROS)
+                : new MaquinaVirtual(programa, compiladorJit);
+        vm.setEntrada(entradaMemoria);
+        vm.setSaida(saidaMemoria);
+        vm.executar();
+        contadores.instrucoes += vm.getInstrucoesExecutadas();
+        return vm.getInstrucoesExecutadas();
+    }
+}
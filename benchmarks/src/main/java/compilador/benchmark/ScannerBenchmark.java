@@ -0,0 +1,87 @@
+package compilador.benchmark;
+
+import compilador.AnalisadorLexico;
+import compilador.ScannerBytes;
+import compilador.ScannerLexico;
+import compilador.Token;
+import compilador.TokenInformacoes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// proximoToken até o EOF; o contador "tokens" dá tokens/s
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScannerBenchmark {
+
+    @Param({ "correto", "gerado-100", "gerado-2000" })
+    public String entrada;
+
+    // "bytes" usa o ScannerBytes sobre um buffer direto, como o de um arquivo mapeado;
+    // "buffer" lê do mesmo jeito, mas para um BufferTokens de uma vez
+    @Param({ "texto", "bytes", "buffer" })
+    public String scanner;
+
+    private String fonte;
+    private ByteBuffer fonteBytes;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Contadores {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void zerar() {
+            tokens = 0;
+        }
+    }
+
+    @Setup
+    public void preparar() throws IOException {
+        fonte = Entradas.fonte(entrada);
+        byte[] bytes = fonte.getBytes(StandardCharsets.UTF_8);
+        fonteBytes = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+    }
+
+    @Benchmark
+    public int tokenizar(Contadores contadores) {
+        if (scanner.equals("buffer")) {
+            int quantidade = new ScannerBytes(fonteBytes.duplicate()).tokenizar().quantidade();
+            contadores.tokens += quantidade;
+            return quantidade;
+        }
+        AnalisadorLexico lexer = novoScanner();
+        int quantidade = 0;
+        TokenInformacoes token;
+        do {
+            token = lexer.proximoToken();
+            quantidade++;
+        } while (token.getTipo() != Token.EOF);
+        contadores.tokens += quantidade;
+        return quantidade;
+    }
+
+    private AnalisadorLexico novoScanner() {
+        return scanner.equals("bytes") ? new ScannerBytes(fonteBytes.duplicate()) : new ScannerLexico(fonte);
+    }
+}
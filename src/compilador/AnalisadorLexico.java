@@ -0,0 +1,8 @@
+package compilador;
+
+// O que o Parser precisa de um scanner: ScannerLexico lê de uma String e
+// ScannerBytes lê bytes direto de um ByteBuffer.
+public interface AnalisadorLexico {
+
+    TokenInformacoes proximoToken();
+}
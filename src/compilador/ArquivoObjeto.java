@@ -0,0 +1,265 @@
+package compilador;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Formato binário do código objeto (big-endian):
+//
+//   cabeçalho   magic "LALG", versão, tamanho da memória, ponto de entrada,
+//               nº de instruções, nº de constantes (6 x int)
+//   constantes  nº de constantes x double
+//   instruções  nº de instruções x (operação int, argumento int)
+//   depuração   nº de procedimentos, cada nome como (nº de bytes int, UTF-8),
+//               e nº de instruções x (linha do fonte int, procedimento int)
+//   quadros     tamanho das variáveis globais, e nº de procedimentos x
+//               (primeiro endereço int, nº de endereços int)
+//   inteiras    nº de constantes inteiras, e cada uma como long
+//
+// Em CRCT o argumento é o índice na tabela de constantes e em CRCI na de
+// constantes inteiras. O procedimento 0 é o programa principal, com quadro vazio.
+// Arquivos da versão 1 não têm a parte de depuração e ainda são carregados, com
+// as linhas zeradas; os das versões 1 e 2 não têm os quadros, e neles nenhuma
+// ativação é salva. Até a versão 3 não havia operações inteiras (SOMI em
+// diante), e um objeto antigo que as tenha é recusado. Só a versão 4 é gravada.
+public final class ArquivoObjeto {
+
+    public static final int MAGIC = 0x4C414C47; // "LALG"
+    public static final int VERSAO = 4;
+    private static final int TAMANHO_CABECALHO = 6 * Integer.BYTES;
+    private static final int TAMANHO_INSTRUCAO = 2 * Integer.BYTES;
+
+    private ArquivoObjeto() {
+    }
+
+    public static void salvar(ProgramaDecodificado programa, Path caminho) throws IOException {
+        ByteBuffer buffer = codificar(programa);
+        try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+        }
+    }
+
+    // o arquivo binário inteiro num buffer pronto para leitura
+    public static ByteBuffer codificar(ProgramaDecodificado programa) {
+        int n = programa.tamanho();
+        int c = programa.quantidadeConstantes();
+        int p = programa.quantidadeProcedimentos();
+        int k = programa.quantidadeConstantesInteiras();
+        byte[][] nomes = new byte[p][];
+        int tamanhoNomes = 0;
+        for (int i = 0; i < p; i++) {
+            nomes[i] = programa.getNomeProcedimento(i).getBytes(StandardCharsets.UTF_8);
+            tamanhoNomes += Integer.BYTES + nomes[i].length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_CABECALHO + c * Double.BYTES + 2 * n * TAMANHO_INSTRUCAO
+                + Integer.BYTES + tamanhoNomes + tamanhoQuadros(p) + Integer.BYTES + k * Long.BYTES);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSAO);
+        buffer.putInt(programa.getTamanhoMemoria());
+        buffer.putInt(programa.getPontoEntrada());
+        buffer.putInt(n);
+        buffer.putInt(c);
+        for (int i = 0; i < c; i++) {
+            buffer.putDouble(programa.getConstante(i));
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(programa.getOperacao(i));
+            buffer.putInt(programa.getArgumento(i));
+        }
+        buffer.putInt(p);
+        for (byte[] nome : nomes) {
+            buffer.putInt(nome.length);
+            buffer.put(nome);
+        }
+        for (int i = 0; i < n; i++) {
+            buffer.putInt(programa.getLinha(i));
+            buffer.putInt(programa.getProcedimento(i));
+        }
+        buffer.putInt(programa.getTamanhoGlobais());
+        for (int i = 0; i < p; i++) {
+            buffer.putInt(programa.getBaseQuadro(i));
+            buffer.putInt(programa.getTamanhoQuadro(i));
+        }
+        buffer.putInt(k);
+        for (int i = 0; i < k; i++) {
+            buffer.putLong(programa.getConstanteInteira(i));
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // carrega o formato binário mapeando o arquivo em memória; arquivos sem o
+    // magic são lidos como texto, uma instrução por linha
+    public static ProgramaDecodificado carregar(Path caminho) throws IOException {
+        try (FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ)) {
+            long tamanhoArquivo = canal.size();
+            if (tamanhoArquivo >= Integer.BYTES) {
+                MappedByteBuffer buffer = canal.map(FileChannel.MapMode.READ_ONLY, 0, tamanhoArquivo);
+                if (buffer.getInt(0) == MAGIC) {
+                    return ler(buffer, caminho.toString());
+                }
+            }
+        }
+        return ProgramaDecodificado.decodificar(carregarTexto(caminho));
+    }
+
+    // o inverso de codificar(), para um objeto que está em memória
+    public static ProgramaDecodificado decodificar(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < Integer.BYTES || buffer.getInt(buffer.position()) != MAGIC) {
+            throw new IOException("Código objeto sem o magic LALG");
+        }
+        return ler(buffer.slice(), "memória");
+    }
+
+    private static ProgramaDecodificado ler(ByteBuffer buffer, String caminho) throws IOException {
+        if (buffer.limit() < TAMANHO_CABECALHO) {
+            throw new IOException("Cabeçalho incompleto em " + caminho);
+        }
+        buffer.position(Integer.BYTES);
+        int versao = buffer.getInt();
+        if (versao < 1 || versao > VERSAO) {
+            throw new IOException("Versão de código objeto não suportada em " + caminho + ": " + versao);
+        }
+        int tamanhoMemoria = buffer.getInt();
+        int pontoEntrada = buffer.getInt();
+        int n = buffer.getInt();
+        int c = buffer.getInt();
+        long tamanhoCodigo = (long) c * Double.BYTES + (long) n * TAMANHO_INSTRUCAO;
+        if (n < 0 || c < 0 || (versao == 1 ? buffer.remaining() != tamanhoCodigo
+                : buffer.remaining() < tamanhoCodigo + Integer.BYTES + (long) n * TAMANHO_INSTRUCAO)) {
+            throw new IOException("Tamanho de arquivo inconsistente com o cabeçalho em " + caminho);
+        }
+
+        double[] constantes = new double[c];
+        buffer.asDoubleBuffer().get(constantes);
+        buffer.position(buffer.position() + c * Double.BYTES);
+
+        int[] operacoes = new int[n];
+        int[] argumentos = new int[n];
+        IntBuffer instrucoes = buffer.asIntBuffer();
+        for (int i = 0; i < n; i++) {
+            operacoes[i] = instrucoes.get();
+            argumentos[i] = instrucoes.get();
+            if (versao < 4 && operacoes[i] >= CodigoOperacao.SOMI) {
+                throw new IOException("Operação inteira em código objeto da versão " + versao + " em " + caminho
+                        + ": " + operacoes[i]);
+            }
+        }
+        if (versao == 1) {
+            return new ProgramaDecodificado(operacoes, argumentos, constantes, tamanhoMemoria, pontoEntrada);
+        }
+
+        buffer.position(buffer.position() + n * TAMANHO_INSTRUCAO);
+        String[] nomes = lerNomes(buffer, n, versao, caminho);
+        long depois = (long) n * TAMANHO_INSTRUCAO + (versao >= 3 ? tamanhoQuadros(nomes.length) : 0);
+        if (versao >= 4 ? buffer.remaining() < depois + Integer.BYTES : buffer.remaining() != depois) {
+            throw new IOException("Tamanho de arquivo inconsistente com o cabeçalho em " + caminho);
+        }
+        int[] linhas = new int[n];
+        int[] procedimentos = new int[n];
+        IntBuffer depuracao = buffer.asIntBuffer();
+        for (int i = 0; i < n; i++) {
+            linhas[i] = depuracao.get();
+            procedimentos[i] = depuracao.get();
+        }
+        if (versao == 2) {
+            return new ProgramaDecodificado(operacoes, argumentos, constantes, tamanhoMemoria, pontoEntrada, linhas,
+                    procedimentos, nomes);
+        }
+
+        int tamanhoGlobais = depuracao.get();
+        int[] bases = new int[nomes.length];
+        int[] tamanhos = new int[nomes.length];
+        for (int i = 0; i < nomes.length; i++) {
+            bases[i] = depuracao.get();
+            tamanhos[i] = depuracao.get();
+        }
+        if (versao == 3) {
+            return new ProgramaDecodificado(operacoes, argumentos, constantes, tamanhoMemoria, pontoEntrada, linhas,
+                    procedimentos, nomes, tamanhoGlobais, bases, tamanhos);
+        }
+
+        buffer.position(buffer.position() + (int) depois);
+        int k = buffer.getInt();
+        if (k < 0 || buffer.remaining() != (long) k * Long.BYTES) {
+            throw new IOException("Tamanho de arquivo inconsistente com o cabeçalho em " + caminho);
+        }
+        long[] constantesInteiras = new long[k];
+        buffer.asLongBuffer().get(constantesInteiras);
+        return new ProgramaDecodificado(operacoes, argumentos, constantes, tamanhoMemoria, pontoEntrada, linhas,
+                procedimentos, nomes, tamanhoGlobais, bases, tamanhos, constantesInteiras);
+    }
+
+    private static int tamanhoQuadros(int procedimentos) {
+        return Integer.BYTES + procedimentos * 2 * Integer.BYTES;
+    }
+
+    // a tabela de nomes precisa deixar no buffer as linhas das n instruções e, a
+    // partir da versão 3, os quadros
+    private static String[] lerNomes(ByteBuffer buffer, int n, int versao, String caminho) throws IOException {
+        int p = buffer.getInt();
+        long depois = (long) n * TAMANHO_INSTRUCAO + (versao >= 3 ? tamanhoQuadros(0) : 0)
+                + (versao >= 4 ? Integer.BYTES : 0);
+        if (p < 1 || (long) p * (versao >= 3 ? 3 : 1) * Integer.BYTES > buffer.remaining() - depois) {
+            throw new IOException("Tabela de procedimentos inválida em " + caminho);
+        }
+        if (versao >= 3) {
+            depois += (long) p * 2 * Integer.BYTES;
+        }
+        String[] nomes = new String[p];
+        for (int i = 0; i < p; i++) {
+            int tamanho = buffer.getInt();
+            if (tamanho < 0 || tamanho > buffer.remaining() - depois) {
+                throw new IOException("Tabela de procedimentos inválida em " + caminho);
+            }
+            byte[] bytes = new byte[tamanho];
+            buffer.get(bytes);
+            nomes[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return nomes;
+    }
+
+    public static void salvarTexto(List<Instrucao> codigo, Path caminho) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(caminho.toFile()))) {
+            for (Instrucao inst : codigo) {
+                if (inst.getArgumento() != null && !inst.getArgumento().isEmpty()) {
+                    writer.println(inst.getOperacao() + " " + inst.getArgumento());
+                } else {
+                    writer.println(inst.getOperacao());
+                }
+            }
+        }
+    }
+
+    public static List<Instrucao> carregarTexto(Path caminho) throws IOException {
+        List<Instrucao> codigo = new ArrayList<>();
+        List<String> linhas = Files.readAllLines(caminho);
+
+        for (String linha : linhas) {
+            linha = linha.trim();
+            if (linha.isEmpty())
+                continue;
+
+            String[] partes = linha.split("\\s+", 2);
+            String operacao = partes[0];
+            String argumento = partes.length > 1 ? partes[1] : null;
+
+            codigo.add(new Instrucao(operacao, argumento));
+        }
+
+        return codigo;
+    }
+}
@@ -0,0 +1,170 @@
+package compilador;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Todos os tokens de um fonte em arrays paralelos (tipo, início, tamanho, linha e
+// id), no lugar de um TokenInformacoes por token. O lexema não é copiado: fica
+// como início e tamanho no fonte. Identificadores e números são internados, cada
+// lexema distinto recebe um id, e a String só é criada quando alguém pede o texto
+// (mensagens de erro, nomes da tabela de símbolos, constantes do código).
+// Preenchido por ScannerBytes.tokenizar().
+public final class BufferTokens {
+
+    private static final Token[] TIPOS = Token.values();
+
+    private final ByteBuffer fonte;
+    private int quantidade;
+    private int[] tipos;
+    private int[] inicios;
+    private int[] tamanhos;
+    private int[] linhas;
+    private int[] ids;
+    private String erroLexico; // erro que interrompeu a leitura depois do último token
+
+    // lexemas internados, em endereçamento aberto; cada id aponta para a primeira
+    // ocorrência do lexema no fonte
+    private int quantidadeIds;
+    private int[] inicioId = new int[256];
+    private int[] tamanhoId = new int[256];
+    private int[] hashId = new int[256];
+    private String[] textos = new String[256];
+    private int[] posicoes = new int[512]; // id + 1; 0 é posição livre
+
+    // capacidade inicial estimada pelo scanner, para não copiar os arrays a cada dobra
+    BufferTokens(ByteBuffer fonte, int capacidade) {
+        this.fonte = fonte;
+        this.tipos = new int[capacidade];
+        this.inicios = new int[capacidade];
+        this.tamanhos = new int[capacidade];
+        this.linhas = new int[capacidade];
+        this.ids = new int[capacidade];
+    }
+
+    void adicionar(Token tipo, int inicio, int tamanho, int linha, int id) {
+        if (quantidade == tipos.length) {
+            int novo = quantidade * 2;
+            tipos = Arrays.copyOf(tipos, novo);
+            inicios = Arrays.copyOf(inicios, novo);
+            tamanhos = Arrays.copyOf(tamanhos, novo);
+            linhas = Arrays.copyOf(linhas, novo);
+            ids = Arrays.copyOf(ids, novo);
+        }
+        tipos[quantidade] = tipo.ordinal();
+        inicios[quantidade] = inicio;
+        tamanhos[quantidade] = tamanho;
+        linhas[quantidade] = linha;
+        ids[quantidade] = id;
+        quantidade++;
+    }
+
+    void falhar(String mensagem) {
+        erroLexico = mensagem;
+    }
+
+    // id do lexema [inicio, inicio + tamanho); hash é o calculado pelo scanner
+    int internar(int inicio, int tamanho, int hash) {
+        int mascara = posicoes.length - 1;
+        int i = (hash ^ (hash >>> 16)) & mascara;
+        while (posicoes[i] != 0) {
+            int id = posicoes[i] - 1;
+            if (hashId[id] == hash && tamanhoId[id] == tamanho && mesmosBytes(inicioId[id], inicio, tamanho)) {
+                return id;
+            }
+            i = (i + 1) & mascara;
+        }
+        if (quantidadeIds == inicioId.length) {
+            int novo = quantidadeIds * 2;
+            inicioId = Arrays.copyOf(inicioId, novo);
+            tamanhoId = Arrays.copyOf(tamanhoId, novo);
+            hashId = Arrays.copyOf(hashId, novo);
+            textos = Arrays.copyOf(textos, novo);
+        }
+        int id = quantidadeIds++;
+        inicioId[id] = inicio;
+        tamanhoId[id] = tamanho;
+        hashId[id] = hash;
+        posicoes[i] = id + 1;
+        if (quantidadeIds * 2 > posicoes.length) {
+            espalhar(posicoes.length * 2);
+        }
+        return id;
+    }
+
+    private boolean mesmosBytes(int a, int b, int tamanho) {
+        for (int i = 0; i < tamanho; i++) {
+            if (fonte.get(a + i) != fonte.get(b + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void espalhar(int tamanho) {
+        posicoes = new int[tamanho];
+        int mascara = tamanho - 1;
+        for (int id = 0; id < quantidadeIds; id++) {
+            int i = (hashId[id] ^ (hashId[id] >>> 16)) & mascara;
+            while (posicoes[i] != 0) {
+                i = (i + 1) & mascara;
+            }
+            posicoes[i] = id + 1;
+        }
+    }
+
+    public String getErroLexico() {
+        return erroLexico;
+    }
+
+    public int quantidade() {
+        return quantidade;
+    }
+
+    public Token tipo(int indice) {
+        return TIPOS[tipos[indice]];
+    }
+
+    public int linha(int indice) {
+        return linhas[indice];
+    }
+
+    public int inicio(int indice) {
+        return inicios[indice];
+    }
+
+    public int tamanho(int indice) {
+        return tamanhos[indice];
+    }
+
+    // id do lexema internado, ou -1 para palavras reservadas, operadores e EOF
+    public int id(int indice) {
+        return ids[indice];
+    }
+
+    public int quantidadeIds() {
+        return quantidadeIds;
+    }
+
+    public String texto(int id) {
+        String texto = textos[id];
+        if (texto == null) {
+            texto = decodificar(inicioId[id], tamanhoId[id]);
+            textos[id] = texto;
+        }
+        return texto;
+    }
+
+    public String lexema(int indice) {
+        return ids[indice] >= 0 ? texto(ids[indice]) : decodificar(inicios[indice], tamanhos[indice]);
+    }
+
+    public TokenInformacoes informacoes(int indice) {
+        return new TokenInformacoes(tipo(indice), lexema(indice), linhas[indice]);
+    }
+
+    private String decodificar(int inicio, int tamanho) {
+        byte[] bytes = new byte[tamanho];
+        fonte.get(inicio, bytes);
+        return ScannerBytes.decodificar(bytes, tamanho);
+    }
+}
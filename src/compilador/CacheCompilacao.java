@@ -0,0 +1,223 @@
+package compilador;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Cache de código objeto em disco, endereçado pelo conteúdo: a chave é o SHA-256
+// do fonte junto com a versão do compilador e as opções que mudam o código
+// gerado, e a entrada é o .obj em <diretório>/<chave>.obj. Um acerto dispensa o
+// Parser inteiro.
+//
+// Várias threads ou processos podem usar o mesmo diretório: cada entrada é
+// gravada num arquivo temporário e renomeada de forma atômica, então quem lê vê o
+// arquivo inteiro ou nenhum. A data de modificação marca o último uso, e quando o
+// total passa do limite as entradas usadas há mais tempo são apagadas (LRU).
+public class CacheCompilacao {
+
+    // mude ao alterar o que o Parser ou o GeradorCodigo geram, para invalidar o cache
+    public static final String VERSAO_COMPILADOR = "compiladorPascal-4/obj-" + ArquivoObjeto.VERSAO;
+    public static final long LIMITE_PADRAO = 256L * 1024 * 1024;
+
+    private static final String EXTENSAO = ".obj";
+
+    private final Path diretorio;
+    private final long limiteBytes;
+    private final AtomicLong tamanhoEstimado;
+    private final AtomicLong acertos = new AtomicLong();
+    private final AtomicLong faltas = new AtomicLong();
+
+    public CacheCompilacao(Path diretorio, long limiteBytes) throws IOException {
+        if (limiteBytes < 1) {
+            throw new RuntimeException("Limite do cache inválido: " + limiteBytes);
+        }
+        this.diretorio = diretorio;
+        this.limiteBytes = limiteBytes;
+        Files.createDirectories(diretorio);
+        this.tamanhoEstimado = new AtomicLong(tamanhoTotal(listarEntradas()));
+    }
+
+    public CacheCompilacao(Path diretorio) throws IOException {
+        this(diretorio, LIMITE_PADRAO);
+    }
+
+    // opcoes descreve tudo, além do fonte, que muda o código objeto (ex.: regras do peephole)
+    public String chave(byte[] fonte, String opcoes) {
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        sha.update(VERSAO_COMPILADOR.getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+        sha.update(opcoes.getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) 0);
+        byte[] hash = sha.digest(fonte);
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    // opções do código gerado a partir das regras do peephole (null = desligado)
+    public static String opcoes(String regrasPeephole) {
+        return opcoes(regrasPeephole, true);
+    }
+
+    // sem o OtimizadorFluxo (--sem-fluxo) o código é outro
+    public static String opcoes(String regrasPeephole, boolean fluxo) {
+        return "peephole=" + (regrasPeephole == null ? "-" : OtimizadorPeephole.lerRegras(regrasPeephole).toString())
+                + (fluxo ? "" : ";fluxo=-");
+    }
+
+    private Path caminho(String chave) {
+        return diretorio.resolve(chave + EXTENSAO);
+    }
+
+    // programa guardado com essa chave, ou null numa falta
+    public ProgramaDecodificado carregar(String chave) {
+        Path entrada = caminho(chave);
+        try {
+            ProgramaDecodificado programa = ArquivoObjeto.carregar(entrada);
+            usar(entrada);
+            return programa;
+        } catch (NoSuchFileException e) {
+            faltas.incrementAndGet();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            descartar(entrada);
+            return null;
+        }
+    }
+
+    // copia a entrada para destino; false numa falta
+    public boolean copiar(String chave, Path destino) throws IOException {
+        Path entrada = caminho(chave);
+        try {
+            Files.copy(entrada, destino, StandardCopyOption.REPLACE_EXISTING);
+        } catch (NoSuchFileException e) {
+            if (!Files.exists(entrada)) { // o que faltou pode ter sido o diretório de destino
+                faltas.incrementAndGet();
+                return false;
+            }
+            throw e;
+        }
+        usar(entrada);
+        return true;
+    }
+
+    private void usar(Path entrada) {
+        acertos.incrementAndGet();
+        try {
+            Files.setLastModifiedTime(entrada, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            // apagada por outro processo depois da leitura; o acerto já valeu
+        }
+    }
+
+    // entradas ilegíveis (de uma versão antiga, truncadas por um disco cheio...) contam como falta
+    private void descartar(Path entrada) {
+        faltas.incrementAndGet();
+        try {
+            Files.deleteIfExists(entrada);
+        } catch (IOException e) {
+            // outro processo pode estar regravando a mesma entrada
+        }
+    }
+
+    public void guardar(String chave, ProgramaDecodificado programa) throws IOException {
+        Path temporario = Files.createTempFile(diretorio, chave, ".tmp");
+        try {
+            ArquivoObjeto.salvar(programa, temporario);
+            long tamanho = Files.size(temporario);
+            Files.move(temporario, caminho(chave), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+            if (tamanhoEstimado.addAndGet(tamanho) > limiteBytes) {
+                despejar();
+            }
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    // apaga as entradas usadas há mais tempo até ficar em 90% do limite; o total é
+    // recalculado pelo diretório, que pode ter sido mexido por outros processos
+    private synchronized void despejar() throws IOException {
+        List<Entrada> entradas = listarEntradas();
+        long total = tamanhoTotal(entradas);
+        if (total > limiteBytes) {
+            entradas.sort(Comparator.comparingLong(e -> e.ultimoUso));
+            long alvo = limiteBytes / 10 * 9;
+            for (Entrada e : entradas) {
+                if (total <= alvo) {
+                    break;
+                }
+                if (Files.deleteIfExists(e.caminho)) {
+                    total -= e.tamanho;
+                }
+            }
+        }
+        tamanhoEstimado.set(total);
+    }
+
+    private List<Entrada> listarEntradas() throws IOException {
+        List<Entrada> entradas = new ArrayList<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(diretorio, "*" + EXTENSAO)) {
+            for (Path arquivo : arquivos) {
+                try {
+                    BasicFileAttributes atributos = Files.readAttributes(arquivo, BasicFileAttributes.class);
+                    entradas.add(new Entrada(arquivo, atributos.size(), atributos.lastModifiedTime().toMillis()));
+                } catch (NoSuchFileException e) {
+                    // despejada por outro processo enquanto listávamos
+                }
+            }
+        }
+        return entradas;
+    }
+
+    private static long tamanhoTotal(List<Entrada> entradas) {
+        long total = 0;
+        for (Entrada e : entradas) {
+            total += e.tamanho;
+        }
+        return total;
+    }
+
+    public Path getDiretorio() {
+        return diretorio;
+    }
+
+    public long getAcertos() {
+        return acertos.get();
+    }
+
+    public long getFaltas() {
+        return faltas.get();
+    }
+
+    private static class Entrada {
+        final Path caminho;
+        final long tamanho;
+        final long ultimoUso;
+
+        Entrada(Path caminho, long tamanho, long ultimoUso) {
+            this.caminho = caminho;
+            this.tamanho = tamanho;
+            this.ultimoUso = ultimoUso;
+        }
+    }
+}
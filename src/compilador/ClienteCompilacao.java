@@ -0,0 +1,153 @@
+package compilador;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Cliente fino do ServidorCompilacao: manda o fonte e a entrada padrão pelo
+// socket e repassa a saída, os erros e o código de saída do programa.
+//
+//   java compilador.ClienteCompilacao [--socket=CAMINHO] executar fonte [opções]
+//   java compilador.ClienteCompilacao [--socket=CAMINHO] compilar fonte [-o saida.obj] [opções]
+//   java compilador.ClienteCompilacao [--socket=CAMINHO] estatisticas|parar
+public class ClienteCompilacao {
+
+    public static void main(String[] args) {
+        Path socket = ServidorCompilacao.socketPadrao();
+        String comando = null;
+        String fonte = null;
+        String objeto = null;
+        List<String> opcoes = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.startsWith("--socket=")) {
+                socket = Paths.get(arg.substring("--socket=".length()));
+            } else if (arg.equals("-o") && i + 1 < args.length) {
+                objeto = args[++i];
+            } else if (arg.startsWith("--")) {
+                opcoes.add(arg); // interpretadas pelo servidor
+            } else if (comando == null) {
+                comando = arg;
+            } else if (fonte == null) {
+                fonte = arg;
+            }
+        }
+
+        if (comando == null) {
+            System.err.println("Uso: ClienteCompilacao [--socket=CAMINHO] executar|compilar|estatisticas|parar [fonte]");
+            System.exit(2);
+        }
+        boolean precisaFonte = comando.equals(ServidorCompilacao.EXECUTAR)
+                || comando.equals(ServidorCompilacao.COMPILAR);
+        if (precisaFonte && fonte == null) {
+            System.err.println("Comando " + comando + " precisa de um arquivo fonte");
+            System.exit(2);
+        }
+        if (comando.equals(ServidorCompilacao.COMPILAR) && objeto == null) {
+            objeto = caminhoObjeto(fonte);
+        }
+
+        try {
+            System.exit(executar(socket, comando, fonte, objeto, opcoes));
+        } catch (IOException e) {
+            System.err.println("Erro ao falar com o servidor em " + socket + ": " + e.getMessage());
+            System.exit(3);
+        }
+    }
+
+    private static int executar(Path socket, String comando, String fonte, String objeto, List<String> opcoes)
+            throws IOException {
+        byte[] codigo = fonte == null ? new byte[0] : Files.readAllBytes(Paths.get(fonte));
+        try (SocketChannel canal = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            canal.connect(UnixDomainSocketAddress.of(socket));
+            OutputStream saidaCanal = ServidorCompilacao.saida(canal);
+            DataOutputStream pedido = new DataOutputStream(new BufferedOutputStream(saidaCanal));
+            pedido.writeUTF(comando);
+            pedido.writeInt(opcoes.size());
+            for (String opcao : opcoes) {
+                pedido.writeUTF(opcao);
+            }
+            pedido.writeInt(codigo.length);
+            pedido.write(codigo);
+            pedido.flush();
+
+            if (comando.equals(ServidorCompilacao.EXECUTAR)) {
+                // a entrada do programa segue em paralelo, enquanto a saída volta
+                Thread entrada = new Thread(() -> repassarEntrada(System.in, saidaCanal, canal), "cliente-entrada");
+                entrada.setDaemon(true);
+                entrada.start();
+            } else {
+                canal.shutdownOutput();
+            }
+
+            DataInputStream resposta = new DataInputStream(new BufferedInputStream(ServidorCompilacao.entrada(canal)));
+            while (true) {
+                byte tipo;
+                try {
+                    tipo = resposta.readByte();
+                } catch (EOFException e) {
+                    throw new IOException("conexão encerrada sem resposta completa");
+                }
+                byte[] conteudo = new byte[resposta.readInt()];
+                resposta.readFully(conteudo);
+                switch (tipo) {
+                    case ServidorCompilacao.QUADRO_SAIDA:
+                        System.out.write(conteudo);
+                        break;
+                    case ServidorCompilacao.QUADRO_ERRO:
+                        System.out.flush();
+                        System.err.write(conteudo);
+                        System.err.flush();
+                        break;
+                    case ServidorCompilacao.QUADRO_OBJETO:
+                        Files.write(Paths.get(objeto), conteudo);
+                        System.out.println(">>> Código objeto salvo em: " + objeto + " <<<");
+                        break;
+                    case ServidorCompilacao.QUADRO_FIM:
+                        System.out.flush();
+                        return ByteBuffer.wrap(conteudo).getInt();
+                    default:
+                        throw new IOException("quadro desconhecido: " + tipo);
+                }
+            }
+        }
+    }
+
+    private static void repassarEntrada(InputStream entrada, OutputStream saida, SocketChannel canal) {
+        byte[] buffer = new byte[8192];
+        try {
+            int lidos;
+            while ((lidos = entrada.read(buffer)) >= 0) {
+                saida.write(buffer, 0, lidos);
+            }
+            canal.shutdownOutput();
+        } catch (IOException e) {
+            // o programa terminou e o servidor fechou a conexão antes de ler tudo
+        }
+    }
+
+    private static String caminhoObjeto(String fonte) {
+        String nome = fonte;
+        for (String extensao : CompiladorLote.EXTENSOES) {
+            if (nome.endsWith(extensao)) {
+                return nome.substring(0, nome.length() - extensao.length()) + ".obj";
+            }
+        }
+        return nome + ".obj";
+    }
+}
@@ -0,0 +1,187 @@
+package compilador;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public final class CodigoOperacao {
+
+    public static final int INPP = 0;
+    public static final int PARA = 1;
+    public static final int ALME = 2;
+    public static final int CRCT = 3;
+    public static final int CRVL = 4;
+    public static final int ARMZ = 5;
+    public static final int SOMA = 6;
+    public static final int SUBT = 7;
+    public static final int MULT = 8;
+    public static final int DIVI = 9;
+    public static final int LEIT = 10;
+    public static final int IMPR = 11;
+    public static final int CMIG = 12;
+    public static final int CMDG = 13;
+    public static final int CMAI = 14;
+    public static final int CPMI = 15;
+    public static final int CMMA = 16;
+    public static final int CMME = 17;
+    public static final int DSVF = 18;
+    public static final int DSVI = 19;
+    public static final int PUSHER = 20;
+    public static final int CHPR = 21;
+    public static final int RTPR = 22;
+    public static final int PARAM = 23;
+    public static final int DESM = 24;
+    public static final int ARMC = 25; // ARMZ sem desempilhar (gerada pelo peephole)
+    public static final int INVE = 26; // inverte o sinal do topo (menos unário)
+    // Operações inteiras, geradas a partir dos tipos declarados. Os inteiros ficam
+    // numa faixa própria (long) da memória e da pilha, nos mesmos endereços e na
+    // mesma altura de pilha; a conversão entre as faixas só acontece no TRUN e no
+    // REAL. As comparações inteiras deixam 1 ou 0 na faixa real, para o DSVF.
+    public static final int SOMI = 27;
+    public static final int SUBI = 28;
+    public static final int MULI = 29;
+    public static final int TRUN = 30; // real do topo para inteiro, truncando
+    public static final int INVI = 31; // menos unário inteiro
+    public static final int REAL = 32; // inteiro do topo para real
+    public static final int CRCI = 33; // argumento: índice na tabela de constantes inteiras
+    public static final int CRVI = 34;
+    public static final int ARMI = 35;
+    public static final int ARCI = 36; // ARMI sem desempilhar (gerada pelo peephole)
+    public static final int PARI = 37;
+    public static final int IMPI = 38;
+    public static final int CIIG = 39;
+    public static final int CIDG = 40;
+    public static final int CIAI = 41;
+    public static final int CIMI = 42;
+    public static final int CIMA = 43;
+    public static final int CIME = 44;
+
+    // Superinstruções: só existem na forma de execução (ver Superinstrucoes) e nunca
+    // no código objeto. Os argumentos continuam nas instruções originais seguintes.
+    public static final int PRIMEIRA_SUPERINSTRUCAO = 45;
+    public static final int SOMA_VV = 45; // CRVL a, CRVL b, SOMA
+    public static final int SOMA_VC = 46; // CRVL a, CRCT k, SOMA
+    public static final int MOVE_VV = 47; // CRVL a, ARMZ b
+    public static final int MOVE_CV = 48; // CRCT k, ARMZ b
+    public static final int DSVF_IG_VC = 49; // CRVL a, CRCT k, CMIG, DSVF e
+    public static final int DSVF_DG_VC = 50;
+    public static final int DSVF_AI_VC = 51;
+    public static final int DSVF_MI_VC = 52;
+    public static final int DSVF_MA_VC = 53;
+    public static final int DSVF_ME_VC = 54;
+    public static final int DSVF_IG_VV = 55; // CRVL a, CRVL b, CMIG, DSVF e
+    public static final int DSVF_DG_VV = 56;
+    public static final int DSVF_AI_VV = 57;
+    public static final int DSVF_MI_VV = 58;
+    public static final int DSVF_MA_VV = 59;
+    public static final int DSVF_ME_VV = 60;
+    public static final int SOMI_VV = 61; // CRVI a, CRVI b, SOMI
+    public static final int SOMI_VC = 62; // CRVI a, CRCI k, SOMI
+    public static final int MOVI_VV = 63; // CRVI a, ARMI b
+    public static final int MOVI_CV = 64; // CRCI k, ARMI b
+    public static final int DSVF_IG_VCI = 65; // CRVI a, CRCI k, CIIG, DSVF e
+    public static final int DSVF_DG_VCI = 66;
+    public static final int DSVF_AI_VCI = 67;
+    public static final int DSVF_MI_VCI = 68;
+    public static final int DSVF_MA_VCI = 69;
+    public static final int DSVF_ME_VCI = 70;
+    public static final int DSVF_IG_VVI = 71; // CRVI a, CRVI b, CIIG, DSVF e
+    public static final int DSVF_DG_VVI = 72;
+    public static final int DSVF_AI_VVI = 73;
+    public static final int DSVF_MI_VVI = 74;
+    public static final int DSVF_MA_VVI = 75;
+    public static final int DSVF_ME_VVI = 76;
+
+    // entrada de uma região compilada pelo CompiladorJit; também só existe na forma de execução
+    public static final int JIT = 77;
+
+    private static final String[] NOMES = {
+            "INPP", "PARA", "ALME", "CRCT", "CRVL", "ARMZ", "SOMA", "SUBT", "MULT", "DIVI",
+            "LEIT", "IMPR", "CMIG", "CMDG", "CMAI", "CPMI", "CMMA", "CMME", "DSVF", "DSVI",
+            "PUSHER", "CHPR", "RTPR", "PARAM", "DESM", "ARMC", "INVE",
+            "SOMI", "SUBI", "MULI", "TRUN", "INVI", "REAL", "CRCI", "CRVI", "ARMI", "ARCI", "PARI", "IMPI",
+            "CIIG", "CIDG", "CIAI", "CIMI", "CIMA", "CIME",
+            "SOMA_VV", "SOMA_VC", "MOVE_VV", "MOVE_CV",
+            "DSVF_IG_VC", "DSVF_DG_VC", "DSVF_AI_VC", "DSVF_MI_VC", "DSVF_MA_VC", "DSVF_ME_VC",
+            "DSVF_IG_VV", "DSVF_DG_VV", "DSVF_AI_VV", "DSVF_MI_VV", "DSVF_MA_VV", "DSVF_ME_VV",
+            "SOMI_VV", "SOMI_VC", "MOVI_VV", "MOVI_CV",
+            "DSVF_IG_VCI", "DSVF_DG_VCI", "DSVF_AI_VCI", "DSVF_MI_VCI", "DSVF_MA_VCI", "DSVF_ME_VCI",
+            "DSVF_IG_VVI", "DSVF_DG_VVI", "DSVF_AI_VVI", "DSVF_MI_VVI", "DSVF_MA_VVI", "DSVF_ME_VVI",
+            "JIT"
+    };
+
+    private static final Map<String, Integer> codigos = new HashMap<>();
+
+    static {
+        for (int i = 0; i < PRIMEIRA_SUPERINSTRUCAO; i++) {
+            codigos.put(NOMES[i], i);
+        }
+    }
+
+    private CodigoOperacao() {
+    }
+
+    // retorna -1 se a operação não existe
+    public static int decodificar(String nome) {
+        Integer codigo = codigos.get(nome);
+        return codigo != null ? codigo : -1;
+    }
+
+    public static String nome(int codigo) {
+        return NOMES[codigo];
+    }
+
+    // quantidade de operações do código objeto (sem as superinstruções)
+    public static int quantidade() {
+        return PRIMEIRA_SUPERINSTRUCAO;
+    }
+
+    public static int quantidadeTotal() {
+        return NOMES.length;
+    }
+
+    // operações cujo argumento é um índice de instrução
+    public static boolean ehDesvio(int codigo) {
+        return codigo == DSVF || codigo == DSVI || codigo == PUSHER || codigo == CHPR;
+    }
+
+    // operações cujo argumento é um endereço da memória (das duas faixas)
+    public static boolean acessaMemoria(int codigo) {
+        switch (codigo) {
+            case CRVL:
+            case ARMZ:
+            case ARMC:
+            case PARAM:
+            case CRVI:
+            case ARMI:
+            case ARCI:
+            case PARI:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public static boolean temArgumento(int codigo) {
+        switch (codigo) {
+            case ALME:
+            case CRCT:
+            case CRVL:
+            case ARMZ:
+            case ARMC:
+            case CRCI:
+            case CRVI:
+            case ARMI:
+            case ARCI:
+            case PARI:
+            case DSVF:
+            case DSVI:
+            case PUSHER:
+            case CHPR:
+            case PARAM:
+            case DESM:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
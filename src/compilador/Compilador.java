@@ -0,0 +1,265 @@
+package compilador;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+// API para usar o compilador dentro de outro programa: compila um fonte em memória
+// direto para um ProgramaExecutavel, sem escrever nada no console e sem passar
+// pelo saida.obj. O ProgramaExecutavel pode ser executado quantas vezes for
+// preciso, inclusive em várias threads, e serializado quando for guardá-lo.
+//
+//   Compilador compilador = new Compilador();
+//   ProgramaExecutavel programa = compilador.compilar(Paths.get("teste.pas"));
+//   programa.executar(System.in, System.out);
+//
+// Os fontes de arquivo e de canal são lidos em bytes e passam uma vez só pelo
+// ScannerBytes (BufferTokens, ou um token por vez com setLeitura); o de String vai
+// pelo ScannerLexico. A listagem dos tokens, da tabela de símbolos e do código só
+// é feita quando pedida em setListagem, e o fonte continua sendo lido uma vez só.
+// O Main usa este mesmo caminho, com as listagens e as fases ligadas. Um
+// Compilador pode ser usado por várias threads desde que não se mudem as opções
+// durante as compilações (e sem setFases).
+public final class Compilador {
+
+    // como um fonte de arquivo ou de canal chega ao Parser
+    public enum Leitura {
+        BUFFER, // todos os tokens de uma vez, em BufferTokens (padrão)
+        BYTES, // ScannerBytes, um token por vez (--scanner=bytes)
+        TEXTO // o fonte vira String e vai pelo ScannerLexico (padrão do Main)
+    }
+
+    private boolean fluxo = true; // OtimizadorFluxo
+    private String regrasPeephole; // null: sem peephole
+    private Set<Superinstrucoes.Fusao> fusoes = Superinstrucoes.lerFusoes("todas");
+    private MaquinaVirtual.Motor motor = MaquinaVirtual.Motor.INTERPRETADOR;
+    private boolean usarJit = true;
+    private int limiarJit = CompiladorJit.LIMIAR_PADRAO;
+    private PrintStream listagem; // null: nenhuma listagem
+    private boolean listarTokens;
+    private boolean listarSimbolos;
+    private boolean listarCodigo;
+    private boolean diferencasFluxo;
+    private Leitura leitura = Leitura.BUFFER;
+    private FasesCompilacao fases; // null: sem eventos de fase
+
+    // desvios encadeados, código inalcançável e procedimentos nunca chamados; ligado por padrão
+    public void setFluxo(boolean fluxo) {
+        this.fluxo = fluxo;
+    }
+
+    // as regras no formato do --peephole ("" são as padrão); null desliga
+    public void setPeephole(String regras) {
+        this.regrasPeephole = regras;
+    }
+
+    // as fusões no formato do --super ("todas", "nenhuma" ou a lista)
+    public void setSuperinstrucoes(String fusoes) {
+        this.fusoes = Superinstrucoes.lerFusoes(fusoes);
+    }
+
+    public void setMotor(MaquinaVirtual.Motor motor) {
+        this.motor = motor;
+    }
+
+    // só para o motor INTERPRETADOR; limiar <= 0 desliga o JIT
+    public void setLimiarJit(int limiar) {
+        this.usarJit = limiar > 0;
+        this.limiarJit = limiar;
+    }
+
+    // o que o Main imprime durante a compilação, agora só quando pedido; com o
+    // código saem também os resumos do fluxo e do peephole
+    public void setListagem(PrintStream destino, boolean tokens, boolean simbolos, boolean codigo) {
+        this.listagem = destino;
+        this.listarTokens = tokens;
+        this.listarSimbolos = simbolos;
+        this.listarCodigo = codigo;
+    }
+
+    // o antes e depois do OtimizadorFluxo, junto com a listagem do código (--fluxo-diff)
+    public void setDiferencasFluxo(boolean diferencas) {
+        this.diferencasFluxo = diferencas;
+    }
+
+    public void setLeitura(Leitura leitura) {
+        this.leitura = leitura;
+    }
+
+    // mede léxica, sintática e geração em "fases" (JFR e --timings)
+    public void setFases(FasesCompilacao fases) {
+        this.fases = fases;
+    }
+
+    public ProgramaExecutavel compilar(String fonte) {
+        return preparar(compilarObjeto(fonte));
+    }
+
+    public ProgramaExecutavel compilar(Path arquivo) throws IOException {
+        return preparar(compilarObjeto(arquivo));
+    }
+
+    public ProgramaExecutavel compilar(ReadableByteChannel canal) throws IOException {
+        return preparar(compilarObjeto(canal));
+    }
+
+    // o código objeto, sem construir o JIT nem o motor de nós
+    public ProgramaDecodificado compilarObjeto(String fonte) {
+        return compilarLexico(new ScannerLexico(fonte), fonte.length());
+    }
+
+    public ProgramaDecodificado compilarObjeto(Path arquivo) throws IOException {
+        if (leitura == Leitura.TEXTO) {
+            return compilarLexico(new ScannerLexico(new String(Files.readAllBytes(arquivo))), Files.size(arquivo));
+        }
+        return compilarBytes(ScannerBytes.abrir(arquivo), Files.size(arquivo));
+    }
+
+    // lê o canal até o fim; quem abriu o canal é quem fecha
+    public ProgramaDecodificado compilarObjeto(ReadableByteChannel canal) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ByteBuffer bloco = ByteBuffer.allocate(64 * 1024);
+        while (canal.read(bloco) >= 0) {
+            bytes.write(bloco.array(), 0, bloco.position());
+            bloco.clear();
+        }
+        byte[] lidos = bytes.toByteArray();
+        if (leitura == Leitura.TEXTO) {
+            return compilarLexico(new ScannerLexico(new String(lidos)), lidos.length);
+        }
+        return compilarBytes(new ScannerBytes(lidos), lidos.length);
+    }
+
+    // código objeto já compilado (ProgramaExecutavel.serializar, saida.obj), com as
+    // opções de execução deste compilador
+    public ProgramaExecutavel carregar(ByteBuffer objeto) throws IOException {
+        return preparar(ArquivoObjeto.decodificar(objeto));
+    }
+
+    public ProgramaExecutavel carregar(Path arquivo) throws IOException {
+        return preparar(ArquivoObjeto.carregar(arquivo));
+    }
+
+    public ProgramaExecutavel preparar(ProgramaDecodificado programa) {
+        ProgramaDecodificado execucao = programa.comSuperinstrucoes(fusoes);
+        if (motor != MaquinaVirtual.Motor.INTERPRETADOR) {
+            return new ProgramaExecutavel(execucao, motor);
+        }
+        return new ProgramaExecutavel(execucao, usarJit ? new CompiladorJit(execucao, limiarJit) : null);
+    }
+
+    private ProgramaDecodificado compilarBytes(ScannerBytes scanner, long bytes) {
+        if (leitura == Leitura.BYTES) {
+            return compilarLexico(scanner, bytes);
+        }
+        FasesCompilacao.Fase lexica = iniciar("léxica");
+        BufferTokens tokens = scanner.tokenizar();
+        terminar(lexica, bytes, tokens.quantidade(), 0, 0);
+        if (listagem != null && listarTokens) {
+            listagem.println("=== TOKENS ENCONTRADOS ===");
+            for (int i = 0; i < tokens.quantidade(); i++) {
+                listagem.println(tokens.informacoes(i));
+            }
+        }
+        if (tokens.getErroLexico() != null) {
+            throw new RuntimeException(tokens.getErroLexico());
+        }
+        if (listagem != null && listarTokens) {
+            listagem.println("\n>>> Total de tokens: " + tokens.quantidade() + " <<<\n");
+        }
+        return gerar(new Parser(tokens), tokens.quantidade());
+    }
+
+    // Sem listagem e sem fases, o Parser pede os tokens um a um ao scanner. Com elas,
+    // os tokens são lidos antes (é a fase léxica) e o Parser os recebe da lista.
+    private ProgramaDecodificado compilarLexico(AnalisadorLexico lexer, long bytes) {
+        if ((listagem == null || !listarTokens) && fases == null) {
+            return gerar(new Parser(lexer), 0);
+        }
+        FasesCompilacao.Fase lexica = iniciar("léxica");
+        List<TokenInformacoes> tokens = new ArrayList<>();
+        TokenInformacoes token;
+        do {
+            token = lexer.proximoToken();
+            tokens.add(token);
+        } while (token.getTipo() != Token.EOF);
+        terminar(lexica, bytes, tokens.size(), 0, 0);
+        if (listagem != null && listarTokens) {
+            listagem.println("=== TOKENS ENCONTRADOS ===");
+            for (TokenInformacoes informacoes : tokens) {
+                listagem.println(informacoes);
+            }
+            listagem.println("\n>>> Total de tokens: " + tokens.size() + " <<<\n");
+        }
+        Iterator<TokenInformacoes> lidos = tokens.iterator();
+        TokenInformacoes fim = token;
+        return gerar(new Parser(() -> lidos.hasNext() ? lidos.next() : fim), tokens.size());
+    }
+
+    private ProgramaDecodificado gerar(Parser parser, long tokens) {
+        // sintática e semântica; o código é emitido durante a análise
+        if (listagem != null && listarSimbolos) {
+            listagem.println("=== ANÁLISE SINTÁTICA ===");
+        }
+        FasesCompilacao.Fase sintatica = iniciar("sintática");
+        parser.analisar();
+        GeradorCodigo gerador = parser.getGerador();
+        terminar(sintatica, 0, tokens, parser.getTabela().quantidade(), gerador.getCodigo().size());
+        if (listagem != null && listarSimbolos) {
+            listagem.println("Análise sintática concluida com sucesso!");
+            parser.getTabela().imprimir(listagem);
+        }
+        if (listagem != null && listarCodigo) {
+            gerador.imprimir(listagem);
+        }
+
+        // geração: fluxo de controle, peephole e conversão para a forma decodificada
+        FasesCompilacao.Fase geracao = iniciar("geração");
+        List<Instrucao> codigo = gerador.getCodigo();
+        OtimizadorFluxo otimizadorFluxo = null;
+        if (fluxo) {
+            otimizadorFluxo = new OtimizadorFluxo();
+            codigo = otimizadorFluxo.otimizar(codigo);
+        }
+        OtimizadorPeephole peephole = null;
+        if (regrasPeephole != null) {
+            peephole = new OtimizadorPeephole(OtimizadorPeephole.lerRegras(regrasPeephole));
+            codigo = peephole.otimizar(codigo);
+        }
+        ProgramaDecodificado programa = ProgramaDecodificado.decodificar(codigo, gerador);
+        terminar(geracao, 0, 0, 0, programa.tamanho());
+        if (listagem != null && listarCodigo) {
+            if (otimizadorFluxo != null) {
+                if (diferencasFluxo) {
+                    listagem.println(otimizadorFluxo.getDiferencas());
+                }
+                listagem.println(">>> Fluxo: " + otimizadorFluxo.getEliminadas() + " instruções eliminadas, "
+                        + otimizadorFluxo.getEncurtados() + " desvios encurtados, "
+                        + otimizadorFluxo.getProcedimentosRemovidos() + " procedimentos removidos <<<");
+            }
+            if (peephole != null) {
+                listagem.println(">>> Peephole: " + peephole.getEliminadas() + " instruções eliminadas <<<");
+            }
+        }
+        return programa;
+    }
+
+    private FasesCompilacao.Fase iniciar(String nome) {
+        return fases != null ? fases.iniciar(nome) : null;
+    }
+
+    private static void terminar(FasesCompilacao.Fase fase, long bytes, long tokens, long simbolos,
+            long instrucoes) {
+        if (fase != null) {
+            fase.terminar(bytes, tokens, simbolos, instrucoes);
+        }
+    }
+}
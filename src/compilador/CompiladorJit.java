@@ -0,0 +1,602 @@
+package compilador;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Segundo nível de execução da máquina virtual. O interpretador conta as entradas
+// em procedimentos (destinos de CHPR) e os desvios para trás dos laços (DSVI);
+// quando um contador atinge o limiar, o trecho é traduzido para uma classe da JVM
+// e a primeira instrução dele passa a ser JIT no vetor de execução. Instruções
+// que o tradutor não cobre (chamadas, retorno, PARA) viram saídas de volta para o
+// interpretador, que continua sendo o caminho padrão.
+public final class CompiladorJit {
+
+    public static final int LIMIAR_PADRAO = 1000;
+    private static final int MAX_INSTRUCOES_REGIAO = 4000;
+    private static final int MAX_BYTECODE = 65535;
+
+    private static final String MAQUINA = "compilador/MaquinaVirtual";
+
+    private static final String MATH = "java/lang/Math";
+
+    // variáveis locais do método gerado, depois de this, memoria (1), memoriaInteira (2)
+    // e maquina (3)
+    private static final int LOCAL_TEMPORARIO = 4; // double ou long, ocupa 4 e 5
+    private static final int LOCAL_CONTADOR = 6; // long, ocupa 6 e 7
+
+    private final ProgramaDecodificado programa;
+    private final int limiar;
+    private final int[] execucao;
+    private final int[] contadores;
+    private final RegiaoCompilada[] regioes;
+    private final boolean[] descartadas;
+    private int compiladas;
+
+    public CompiladorJit(ProgramaDecodificado programa) {
+        this(programa, LIMIAR_PADRAO);
+    }
+
+    public CompiladorJit(ProgramaDecodificado programa, int limiar) {
+        if (limiar < 1) {
+            throw new RuntimeException("Limiar do JIT inválido: " + limiar);
+        }
+        this.programa = programa;
+        this.limiar = limiar;
+        this.execucao = programa.execucao().clone();
+        this.contadores = new int[programa.tamanho()];
+        this.regioes = new RegiaoCompilada[programa.tamanho()];
+        this.descartadas = new boolean[programa.tamanho()];
+    }
+
+    public synchronized int getRegioesCompiladas() {
+        return compiladas;
+    }
+
+    // vetor de execução com as entradas das regiões compiladas trocadas por JIT
+    int[] execucao() {
+        return execucao;
+    }
+
+    RegiaoCompilada regiao(int pc) {
+        RegiaoCompilada regiao = regioes[pc];
+        return regiao != null ? regiao : regiaoPublicada(pc);
+    }
+
+    private synchronized RegiaoCompilada regiaoPublicada(int pc) {
+        return regioes[pc];
+    }
+
+    // desvio para trás: o laço vai do cabeçalho até o DSVI
+    void laco(int cabecalho, int fim) {
+        if (++contadores[cabecalho] == limiar) {
+            compilar(cabecalho, fim);
+        }
+    }
+
+    // os ARMZ e ARMI do início do procedimento (depois dos ALME das variáveis locais)
+    // tiram os parâmetros da pilha do interpretador, então a região começa depois
+    // deles e vai até o RTPR
+    void chamada(int alvo) {
+        if (++contadores[alvo] == limiar) {
+            int n = programa.tamanho();
+            int inicio = alvo;
+            while (inicio < n && (programa.getOperacao(inicio) == CodigoOperacao.ALME
+                    || programa.getOperacao(inicio) == CodigoOperacao.ARMZ
+                    || programa.getOperacao(inicio) == CodigoOperacao.ARMI)) {
+                inicio++;
+            }
+            int fim = inicio;
+            while (fim < n - 1 && programa.getOperacao(fim) != CodigoOperacao.RTPR) {
+                fim++;
+            }
+            if (inicio < n) {
+                compilar(inicio, fim);
+            }
+        }
+    }
+
+    private synchronized void compilar(int inicio, int fim) {
+        if (regioes[inicio] != null || descartadas[inicio]) {
+            return;
+        }
+        RegiaoCompilada regiao = fim - inicio < MAX_INSTRUCOES_REGIAO ? traduzir(inicio, fim) : null;
+        if (regiao == null) {
+            descartadas[inicio] = true;
+            return;
+        }
+        regioes[inicio] = regiao;
+        execucao[inicio] = CodigoOperacao.JIT;
+        compiladas++;
+    }
+
+    // retorna null se a região não pode ser compilada; ela continua interpretada
+    private RegiaoCompilada traduzir(int inicio, int fim) {
+        int[] profundidades = analisar(inicio, fim);
+        if (profundidades == null) {
+            return null;
+        }
+        try {
+            byte[] classe = gerarClasse(inicio, fim, profundidades);
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classe, true);
+            return (RegiaoCompilada) lookup.lookupClass().getDeclaredConstructor().newInstance();
+        } catch (IllegalStateException | ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // Profundidade da pilha de operandos antes de cada instrução da região, relativa
+    // à entrada, ou -1 se a instrução não é alcançada a partir da entrada. Na JVM a
+    // pilha precisa ter a mesma altura em toda junção, e as saídas só podem
+    // acontecer com a pilha vazia, já que os valores não voltam para o interpretador.
+    // Reais e inteiros ocupam dois slots da JVM cada; um programa que misture as
+    // faixas num mesmo valor é recusado pelo verificador, e a região fica
+    // interpretada.
+    private int[] analisar(int inicio, int fim) {
+        if (!suportada(programa.getOperacao(inicio))) {
+            return null;
+        }
+        int[] profundidades = new int[fim - inicio + 1];
+        Arrays.fill(profundidades, -1);
+        int[] pendentes = new int[profundidades.length];
+        int quantidade = 0;
+        profundidades[0] = 0;
+        pendentes[quantidade++] = inicio;
+
+        while (quantidade > 0) {
+            int i = pendentes[--quantidade];
+            int op = programa.getOperacao(i);
+            int antes = profundidades[i - inicio];
+            if (!suportada(op)) {
+                if (antes != 0) {
+                    return null;
+                }
+                continue;
+            }
+            if (antes < consumo(op)) {
+                return null;
+            }
+            int depois = antes + efeito(op);
+            int[] sucessores;
+            if (op == CodigoOperacao.DSVI) {
+                sucessores = new int[] { programa.getArgumento(i) };
+            } else if (op == CodigoOperacao.DSVF) {
+                sucessores = new int[] { i + 1, programa.getArgumento(i) };
+            } else {
+                sucessores = new int[] { i + 1 };
+            }
+            for (int s : sucessores) {
+                if (s < inicio || s > fim) {
+                    if (depois != 0) {
+                        return null;
+                    }
+                } else if (profundidades[s - inicio] < 0) {
+                    profundidades[s - inicio] = depois;
+                    pendentes[quantidade++] = s;
+                } else if (profundidades[s - inicio] != depois) {
+                    return null;
+                }
+            }
+        }
+        return profundidades;
+    }
+
+    private static boolean suportada(int op) {
+        switch (op) {
+            case CodigoOperacao.PARA:
+            case CodigoOperacao.PUSHER:
+            case CodigoOperacao.CHPR:
+            case CodigoOperacao.RTPR:
+            case CodigoOperacao.PARAM:
+            case CodigoOperacao.PARI:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    // quantos valores a operação precisa encontrar na pilha
+    private static int consumo(int op) {
+        switch (op) {
+            case CodigoOperacao.ARMZ:
+            case CodigoOperacao.ARMC:
+            case CodigoOperacao.ARMI:
+            case CodigoOperacao.ARCI:
+            case CodigoOperacao.INVE:
+            case CodigoOperacao.INVI:
+            case CodigoOperacao.TRUN:
+            case CodigoOperacao.REAL:
+            case CodigoOperacao.IMPR:
+            case CodigoOperacao.IMPI:
+            case CodigoOperacao.DSVF:
+                return 1;
+            case CodigoOperacao.SOMA:
+            case CodigoOperacao.SUBT:
+            case CodigoOperacao.MULT:
+            case CodigoOperacao.DIVI:
+            case CodigoOperacao.SOMI:
+            case CodigoOperacao.SUBI:
+            case CodigoOperacao.MULI:
+            case CodigoOperacao.CMIG:
+            case CodigoOperacao.CMDG:
+            case CodigoOperacao.CMAI:
+            case CodigoOperacao.CPMI:
+            case CodigoOperacao.CMMA:
+            case CodigoOperacao.CMME:
+            case CodigoOperacao.CIIG:
+            case CodigoOperacao.CIDG:
+            case CodigoOperacao.CIAI:
+            case CodigoOperacao.CIMI:
+            case CodigoOperacao.CIMA:
+            case CodigoOperacao.CIME:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    // variação da altura da pilha
+    private static int efeito(int op) {
+        switch (op) {
+            case CodigoOperacao.CRCT:
+            case CodigoOperacao.CRVL:
+            case CodigoOperacao.CRCI:
+            case CodigoOperacao.CRVI:
+            case CodigoOperacao.LEIT:
+                return 1;
+            case CodigoOperacao.ARMZ:
+            case CodigoOperacao.ARMI:
+            case CodigoOperacao.IMPR:
+            case CodigoOperacao.IMPI:
+            case CodigoOperacao.DSVF:
+            case CodigoOperacao.SOMA:
+            case CodigoOperacao.SUBT:
+            case CodigoOperacao.MULT:
+            case CodigoOperacao.DIVI:
+            case CodigoOperacao.SOMI:
+            case CodigoOperacao.SUBI:
+            case CodigoOperacao.MULI:
+            case CodigoOperacao.CMIG:
+            case CodigoOperacao.CMDG:
+            case CodigoOperacao.CMAI:
+            case CodigoOperacao.CPMI:
+            case CodigoOperacao.CMMA:
+            case CodigoOperacao.CMME:
+            case CodigoOperacao.CIIG:
+            case CodigoOperacao.CIDG:
+            case CodigoOperacao.CIAI:
+            case CodigoOperacao.CIMI:
+            case CodigoOperacao.CIMA:
+            case CodigoOperacao.CIME:
+                return -1;
+            default:
+                return 0;
+        }
+    }
+
+    // Gera uma classe que implementa RegiaoCompilada. A pilha de operandos do LALG
+    // vira a pilha da JVM, cada desvio interno vira um goto/if e cada saída conta as
+    // instruções executadas na máquina e retorna o próximo pc.
+    private byte[] gerarClasse(int inicio, int fim, int[] profundidades) {
+        EscritorClasse classe = new EscritorClasse("compilador/RegiaoJit", "java/lang/Object",
+                "compilador/RegiaoCompilada");
+
+        EscritorClasse.Codigo construtor = new EscritorClasse.Codigo();
+        construtor.op(EscritorClasse.ALOAD_0);
+        construtor.op16(EscritorClasse.INVOKESPECIAL, classe.metodo("java/lang/Object", "<init>", "()V"));
+        construtor.op(EscritorClasse.RETURN);
+        construtor.maxPilha = 1;
+        construtor.maxLocais = 1;
+        classe.adicionarMetodo(EscritorClasse.ACC_PUBLIC, "<init>", "()V", construtor);
+
+        EscritorClasse.Codigo c = new EscritorClasse.Codigo();
+        int tamanho = fim - inicio + 1;
+        int[] rotulos = new int[tamanho];
+        boolean[] alvo = new boolean[tamanho];
+        int maxProfundidade = 0;
+        for (int i = inicio; i <= fim; i++) {
+            if (profundidades[i - inicio] < 0) {
+                continue;
+            }
+            rotulos[i - inicio] = c.novoRotulo();
+            maxProfundidade = Math.max(maxProfundidade, profundidades[i - inicio] + 1);
+            int op = programa.getOperacao(i);
+            if (CodigoOperacao.ehDesvio(op)) {
+                int destino = programa.getArgumento(i);
+                if (destino >= inicio && destino <= fim) {
+                    alvo[destino - inicio] = true;
+                }
+            }
+        }
+        Map<Integer, Integer> saidas = new LinkedHashMap<>();
+        Map<Integer, Integer> estouros = new LinkedHashMap<>(); // pc da operação inteira -> tratador
+
+        c.op(EscritorClasse.LCONST_0);
+        c.op(EscritorClasse.LSTORE, LOCAL_CONTADOR);
+        for (int i = inicio; i <= fim; i++) {
+            if (profundidades[i - inicio] < 0) {
+                continue;
+            }
+            c.marcar(rotulos[i - inicio]);
+            int op = programa.getOperacao(i);
+            int arg = programa.getArgumento(i);
+            if (!suportada(op)) {
+                emitirSaida(c, classe, i);
+                continue;
+            }
+
+            // comparação seguida de DSVF vira um único desvio condicional
+            if (comparacao(op) != null && i < fim && programa.getOperacao(i + 1) == CodigoOperacao.DSVF
+                    && !alvo[i + 1 - inicio]) {
+                int[] cmp = comparacao(op);
+                contar(c, 2);
+                c.op(cmp[0]);
+                c.desvio(cmp[2], rotulo(c, programa.getArgumento(i + 1), inicio, fim, rotulos, saidas));
+                i++;
+            } else {
+                contar(c, 1);
+                int antes = c.tamanho();
+                emitir(c, classe, op, arg, inicio, fim, rotulos, saidas);
+                if (op == CodigoOperacao.SOMI || op == CodigoOperacao.SUBI || op == CodigoOperacao.MULI
+                        || op == CodigoOperacao.INVI) {
+                    int tratador = c.novoRotulo();
+                    c.tratador(antes, c.tamanho(), tratador, classe.classe("java/lang/ArithmeticException"));
+                    estouros.put(i, tratador);
+                }
+                if (op == CodigoOperacao.DSVI) {
+                    continue;
+                }
+            }
+            if (i == fim) {
+                emitirSaida(c, classe, fim + 1);
+            }
+        }
+        for (Map.Entry<Integer, Integer> saida : saidas.entrySet()) {
+            c.marcar(saida.getValue());
+            emitirSaida(c, classe, saida.getKey());
+        }
+        // o estouro de um Math.*Exact vira o mesmo erro do interpretador, com o pc da operação
+        for (Map.Entry<Integer, Integer> estouro : estouros.entrySet()) {
+            c.marcar(estouro.getValue());
+            c.op(EscritorClasse.POP);
+            c.op(EscritorClasse.ALOAD_3);
+            c.op(EscritorClasse.LLOAD, LOCAL_CONTADOR);
+            c.op16(EscritorClasse.INVOKEVIRTUAL, classe.metodo(MAQUINA, "contarInstrucoes", "(J)V"));
+            empilharInteiro(c, classe, estouro.getKey());
+            c.op16(EscritorClasse.INVOKESTATIC,
+                    classe.metodo(MAQUINA, "estouroInteiro", "(I)Ljava/lang/RuntimeException;"));
+            c.op(EscritorClasse.ATHROW);
+        }
+        if (c.tamanho() >= MAX_BYTECODE) {
+            throw new IllegalStateException("Região grande demais para um método: " + c.tamanho());
+        }
+        // dois slots por valor (double ou long), mais arranjo, índice e contador nas
+        // sequências geradas
+        c.maxPilha = 2 * maxProfundidade + 4;
+        c.maxLocais = LOCAL_CONTADOR + 2;
+        classe.adicionarMetodo(EscritorClasse.ACC_PUBLIC, "executar", "([D[JL" + MAQUINA + ";)I", c);
+        return classe.gerar();
+    }
+
+    private void emitir(EscritorClasse.Codigo c, EscritorClasse classe, int op, int arg, int inicio, int fim,
+            int[] rotulos, Map<Integer, Integer> saidas) {
+        switch (op) {
+            case CodigoOperacao.CRCT:
+                double valor = programa.getConstante(arg);
+                if (Double.doubleToRawLongBits(valor) == 0L) {
+                    c.op(EscritorClasse.DCONST_0);
+                } else if (valor == 1.0) {
+                    c.op(EscritorClasse.DCONST_1);
+                } else {
+                    c.op16(EscritorClasse.LDC2_W, classe.real(valor));
+                }
+                break;
+            case CodigoOperacao.CRVL:
+                c.op(EscritorClasse.ALOAD_1);
+                empilharInteiro(c, classe, arg);
+                c.op(EscritorClasse.DALOAD);
+                break;
+            case CodigoOperacao.ARMC:
+                c.op(EscritorClasse.DUP2);
+                armazenar(c, classe, arg);
+                break;
+            case CodigoOperacao.ARMZ:
+                armazenar(c, classe, arg);
+                break;
+            case CodigoOperacao.SOMA:
+                c.op(EscritorClasse.DADD);
+                break;
+            case CodigoOperacao.SUBT:
+                c.op(EscritorClasse.DSUB);
+                break;
+            case CodigoOperacao.MULT:
+                c.op(EscritorClasse.DMUL);
+                break;
+            case CodigoOperacao.DIVI:
+                c.op(EscritorClasse.DDIV);
+                break;
+            case CodigoOperacao.INVE:
+                c.op(EscritorClasse.DNEG);
+                break;
+            case CodigoOperacao.CRCI:
+                long inteiro = programa.getConstanteInteira(arg);
+                if (inteiro == 0L) {
+                    c.op(EscritorClasse.LCONST_0);
+                } else if (inteiro == 1L) {
+                    c.op(EscritorClasse.LCONST_1);
+                } else {
+                    c.op16(EscritorClasse.LDC2_W, classe.longo(inteiro));
+                }
+                break;
+            case CodigoOperacao.CRVI:
+                c.op(EscritorClasse.ALOAD_2);
+                empilharInteiro(c, classe, arg);
+                c.op(EscritorClasse.LALOAD);
+                break;
+            case CodigoOperacao.ARCI:
+                c.op(EscritorClasse.DUP2);
+                armazenarInteiro(c, classe, arg);
+                break;
+            case CodigoOperacao.ARMI:
+                armazenarInteiro(c, classe, arg);
+                break;
+            // o HotSpot troca os Math.*Exact por instruções com teste de overflow
+            case CodigoOperacao.SOMI:
+                c.op16(EscritorClasse.INVOKESTATIC, classe.metodo(MATH, "addExact", "(JJ)J"));
+                break;
+            case CodigoOperacao.SUBI:
+                c.op16(EscritorClasse.INVOKESTATIC, classe.metodo(MATH, "subtractExact", "(JJ)J"));
+                break;
+            case CodigoOperacao.MULI:
+                c.op16(EscritorClasse.INVOKESTATIC, classe.metodo(MATH, "multiplyExact", "(JJ)J"));
+                break;
+            case CodigoOperacao.INVI:
+                c.op16(EscritorClasse.INVOKESTATIC, classe.metodo(MATH, "negateExact", "(J)J"));
+                break;
+            case CodigoOperacao.TRUN:
+                c.op16(EscritorClasse.INVOKESTATIC, classe.metodo(MAQUINA, "truncar", "(D)J"));
+                break;
+            case CodigoOperacao.REAL:
+                c.op(EscritorClasse.L2D);
+                break;
+            case CodigoOperacao.LEIT:
+                c.op(EscritorClasse.ALOAD_3);
+                c.op16(EscritorClasse.INVOKEVIRTUAL, classe.metodo(MAQUINA, "ler", "()D"));
+                break;
+            case CodigoOperacao.IMPR:
+                c.op(EscritorClasse.DSTORE, LOCAL_TEMPORARIO);
+                c.op(EscritorClasse.ALOAD_3);
+                c.op(EscritorClasse.DLOAD, LOCAL_TEMPORARIO);
+                c.op16(EscritorClasse.INVOKEVIRTUAL, classe.metodo(MAQUINA, "imprimir", "(D)V"));
+                break;
+            case CodigoOperacao.IMPI:
+                c.op(EscritorClasse.LSTORE, LOCAL_TEMPORARIO);
+                c.op(EscritorClasse.ALOAD_3);
+                c.op(EscritorClasse.LLOAD, LOCAL_TEMPORARIO);
+                c.op16(EscritorClasse.INVOKEVIRTUAL, classe.metodo(MAQUINA, "imprimir", "(J)V"));
+                break;
+            case CodigoOperacao.CMIG:
+            case CodigoOperacao.CMDG:
+            case CodigoOperacao.CMAI:
+            case CodigoOperacao.CPMI:
+            case CodigoOperacao.CMMA:
+            case CodigoOperacao.CMME:
+            case CodigoOperacao.CIIG:
+            case CodigoOperacao.CIDG:
+            case CodigoOperacao.CIAI:
+            case CodigoOperacao.CIMI:
+            case CodigoOperacao.CIMA:
+            case CodigoOperacao.CIME:
+                int[] cmp = comparacao(op);
+                int verdadeiro = c.novoRotulo();
+                int depois = c.novoRotulo();
+                c.op(cmp[0]);
+                c.desvio(cmp[1], verdadeiro);
+                c.op(EscritorClasse.DCONST_0);
+                c.desvio(EscritorClasse.GOTO, depois);
+                c.marcar(verdadeiro);
+                c.op(EscritorClasse.DCONST_1);
+                c.marcar(depois);
+                break;
+            case CodigoOperacao.DSVF:
+                c.op(EscritorClasse.DCONST_0);
+                c.op(EscritorClasse.DCMPL);
+                c.desvio(EscritorClasse.IFEQ, rotulo(c, arg, inicio, fim, rotulos, saidas));
+                break;
+            case CodigoOperacao.DSVI:
+                c.desvio(EscritorClasse.GOTO, rotulo(c, arg, inicio, fim, rotulos, saidas));
+                break;
+            default: // INPP, ALME e DESM não fazem nada na máquina
+                break;
+        }
+    }
+
+    // {comparação, desvio se verdadeiro, desvio se falso}; o dcmpl/dcmpg é escolhido
+    // para que NaN sempre dê falso, como nas comparações do interpretador
+    private static int[] comparacao(int op) {
+        switch (op) {
+            case CodigoOperacao.CIIG:
+                return new int[] { EscritorClasse.LCMP, EscritorClasse.IFEQ, EscritorClasse.IFNE };
+            case CodigoOperacao.CIDG:
+                return new int[] { EscritorClasse.LCMP, EscritorClasse.IFNE, EscritorClasse.IFEQ };
+            case CodigoOperacao.CIAI:
+                return new int[] { EscritorClasse.LCMP, EscritorClasse.IFGE, EscritorClasse.IFLT };
+            case CodigoOperacao.CIMI:
+                return new int[] { EscritorClasse.LCMP, EscritorClasse.IFLE, EscritorClasse.IFGT };
+            case CodigoOperacao.CIMA:
+                return new int[] { EscritorClasse.LCMP, EscritorClasse.IFGT, EscritorClasse.IFLE };
+            case CodigoOperacao.CIME:
+                return new int[] { EscritorClasse.LCMP, EscritorClasse.IFLT, EscritorClasse.IFGE };
+            case CodigoOperacao.CMIG:
+                return new int[] { EscritorClasse.DCMPL, EscritorClasse.IFEQ, EscritorClasse.IFNE };
+            case CodigoOperacao.CMDG:
+                return new int[] { EscritorClasse.DCMPL, EscritorClasse.IFNE, EscritorClasse.IFEQ };
+            case CodigoOperacao.CMAI:
+                return new int[] { EscritorClasse.DCMPL, EscritorClasse.IFGE, EscritorClasse.IFLT };
+            case CodigoOperacao.CPMI:
+                return new int[] { EscritorClasse.DCMPG, EscritorClasse.IFLE, EscritorClasse.IFGT };
+            case CodigoOperacao.CMMA:
+                return new int[] { EscritorClasse.DCMPL, EscritorClasse.IFGT, EscritorClasse.IFLE };
+            case CodigoOperacao.CMME:
+                return new int[] { EscritorClasse.DCMPG, EscritorClasse.IFLT, EscritorClasse.IFGE };
+            default:
+                return null;
+        }
+    }
+
+    // rótulo da instrução de destino, ou de uma saída se ela estiver fora da região
+    private static int rotulo(EscritorClasse.Codigo c, int destino, int inicio, int fim, int[] rotulos,
+            Map<Integer, Integer> saidas) {
+        if (destino >= inicio && destino <= fim) {
+            return rotulos[destino - inicio];
+        }
+        return saidas.computeIfAbsent(destino, d -> c.novoRotulo());
+    }
+
+    private static void armazenar(EscritorClasse.Codigo c, EscritorClasse classe, int endereco) {
+        c.op(EscritorClasse.DSTORE, LOCAL_TEMPORARIO);
+        c.op(EscritorClasse.ALOAD_1);
+        empilharInteiro(c, classe, endereco);
+        c.op(EscritorClasse.DLOAD, LOCAL_TEMPORARIO);
+        c.op(EscritorClasse.DASTORE);
+    }
+
+    private static void armazenarInteiro(EscritorClasse.Codigo c, EscritorClasse classe, int endereco) {
+        c.op(EscritorClasse.LSTORE, LOCAL_TEMPORARIO);
+        c.op(EscritorClasse.ALOAD_2);
+        empilharInteiro(c, classe, endereco);
+        c.op(EscritorClasse.LLOAD, LOCAL_TEMPORARIO);
+        c.op(EscritorClasse.LASTORE);
+    }
+
+    // o HotSpot junta os incrementos de um mesmo bloco em uma soma só
+    private static void contar(EscritorClasse.Codigo c, int instrucoes) {
+        c.op(EscritorClasse.LLOAD, LOCAL_CONTADOR);
+        for (int i = 0; i < instrucoes; i++) {
+            c.op(EscritorClasse.LCONST_1);
+            c.op(EscritorClasse.LADD);
+        }
+        c.op(EscritorClasse.LSTORE, LOCAL_CONTADOR);
+    }
+
+    private static void emitirSaida(EscritorClasse.Codigo c, EscritorClasse classe, int destino) {
+        c.op(EscritorClasse.ALOAD_3);
+        c.op(EscritorClasse.LLOAD, LOCAL_CONTADOR);
+        c.op16(EscritorClasse.INVOKEVIRTUAL, classe.metodo(MAQUINA, "contarInstrucoes", "(J)V"));
+        empilharInteiro(c, classe, destino);
+        c.op(EscritorClasse.IRETURN);
+    }
+
+    private static void empilharInteiro(EscritorClasse.Codigo c, EscritorClasse classe, int valor) {
+        if (valor <= 5) {
+            c.op(EscritorClasse.ICONST_0 + valor);
+        } else if (valor <= Byte.MAX_VALUE) {
+            c.op(EscritorClasse.BIPUSH, valor);
+        } else if (valor <= Short.MAX_VALUE) {
+            c.op16(EscritorClasse.SIPUSH, valor);
+        } else {
+            c.op16(EscritorClasse.LDC_W, classe.inteiro(valor));
+        }
+    }
+}
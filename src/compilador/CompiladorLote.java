@@ -0,0 +1,304 @@
+package compilador;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Compila muitos fontes de uma vez num ForkJoinPool (roubo de trabalho) com uma
+// thread por núcleo. Cada arquivo tem seu próprio ScannerLexico, Parser e
+// GeradorCodigo, sem nada compartilhado entre as tarefas, e gera um .obj ao lado
+// do fonte (ou no diretório de saída). Erros de um arquivo não param os outros:
+// vão para o relatório. Com um CacheCompilacao, fontes já vistos só copiam o .obj
+// guardado. Fontes que dariam o mesmo .obj (o mesmo nome em diretórios diferentes,
+// com diretório de saída) são erros, e cada .obj é gravado num temporário e movido
+// de uma vez, para que ninguém leia um arquivo pela metade.
+public class CompiladorLote {
+
+    // extensões procuradas ao percorrer um diretório; arquivos passados direto
+    // são compilados qualquer que seja a extensão
+    static final String[] EXTENSOES = { ".pascal.txt", ".pas", ".lalg" };
+
+    private final String regrasPeephole;
+    private final boolean fluxo;
+    private final Path diretorioSaida;
+    private final int threads;
+    private final CacheCompilacao cache;
+    private final String opcoesCache;
+
+    // regrasPeephole null desliga o peephole; fluxo false desliga o OtimizadorFluxo
+    // (--sem-fluxo); diretorioSaida null grava ao lado do fonte; cache null compila sempre
+    public CompiladorLote(String regrasPeephole, boolean fluxo, Path diretorioSaida, int threads,
+            CacheCompilacao cache) {
+        if (threads < 1) {
+            throw new RuntimeException("Número de threads inválido: " + threads);
+        }
+        this.regrasPeephole = regrasPeephole;
+        this.fluxo = fluxo;
+        this.diretorioSaida = diretorioSaida;
+        this.threads = threads;
+        this.cache = cache;
+        this.opcoesCache = CacheCompilacao.opcoes(regrasPeephole, fluxo);
+    }
+
+    public CompiladorLote(String regrasPeephole, Path diretorioSaida, int threads, CacheCompilacao cache) {
+        this(regrasPeephole, true, diretorioSaida, threads, cache);
+    }
+
+    public CompiladorLote(String regrasPeephole, Path diretorioSaida) {
+        this(regrasPeephole, diretorioSaida, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    // expande diretórios (recursivamente) nos fontes que eles contêm
+    public static List<Path> listarFontes(List<String> caminhos) throws IOException {
+        List<Path> fontes = new ArrayList<>();
+        for (String caminho : caminhos) {
+            Path p = Paths.get(caminho);
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> arquivos = Files.walk(p)) {
+                    fontes.addAll(arquivos.filter(Files::isRegularFile)
+                            .filter(CompiladorLote::ehFonte)
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                fontes.add(p);
+            }
+        }
+        return fontes;
+    }
+
+    private static boolean ehFonte(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        for (String extensao : EXTENSOES) {
+            if (nome.endsWith(extensao)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Relatorio compilar(List<Path> fontes) {
+        long inicio = System.nanoTime();
+        long acertos = cache == null ? 0 : cache.getAcertos();
+        long faltas = cache == null ? 0 : cache.getFaltas();
+        Map<Path, List<Path>> porObjeto = agruparPorObjeto(fontes);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Future<Resultado>> tarefas = new ArrayList<>();
+            for (List<Path> mesmoObjeto : porObjeto.values()) {
+                if (mesmoObjeto.size() == 1) {
+                    Path fonte = mesmoObjeto.get(0);
+                    tarefas.add(pool.submit(() -> compilarArquivo(fonte)));
+                    continue;
+                }
+                for (Path fonte : mesmoObjeto) {
+                    List<Path> outros = new ArrayList<>(mesmoObjeto);
+                    outros.remove(fonte);
+                    tarefas.add(CompletableFuture.completedFuture(new Resultado(fonte, null,
+                            "O objeto " + caminhoObjeto(fonte) + " também seria gerado por " + outros, 0)));
+                }
+            }
+            List<Resultado> resultados = new ArrayList<>();
+            for (Future<Resultado> tarefa : tarefas) {
+                resultados.add(tarefa.get());
+            }
+            Relatorio relatorio = new Relatorio(resultados, System.nanoTime() - inicio, threads);
+            if (cache != null) {
+                relatorio.acertosCache = cache.getAcertos() - acertos;
+                relatorio.faltasCache = cache.getFaltas() - faltas;
+            }
+            return relatorio;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Compilação em lote interrompida");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Falha na compilação em lote: " + e.getCause(), e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // fontes pelo .obj que gerariam, na ordem em que vieram; o mesmo arquivo
+    // listado duas vezes (um diretório e um arquivo dentro dele) conta uma vez só
+    private Map<Path, List<Path>> agruparPorObjeto(List<Path> fontes) {
+        Map<Path, List<Path>> porObjeto = new LinkedHashMap<>();
+        Set<Path> vistos = new HashSet<>();
+        for (Path fonte : fontes) {
+            if (vistos.add(fonte.toAbsolutePath().normalize())) {
+                porObjeto.computeIfAbsent(caminhoObjeto(fonte).toAbsolutePath().normalize(),
+                        k -> new ArrayList<>()).add(fonte);
+            }
+        }
+        return porObjeto;
+    }
+
+    private Resultado compilarArquivo(Path fonte) {
+        long inicio = System.nanoTime();
+        try {
+            byte[] bytes = Files.readAllBytes(fonte);
+            Path objeto = caminhoObjeto(fonte);
+            if (diretorioSaida != null) {
+                Files.createDirectories(diretorioSaida);
+            }
+            // ao lado do destino, para o move ser atômico; createTempFile deixaria o
+            // .obj só com permissão do dono
+            Path temporario = objeto.resolveSibling(objeto.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            try {
+                String chave = null;
+                boolean copiado = false;
+                if (cache != null) {
+                    chave = cache.chave(bytes, opcoesCache);
+                    copiado = cache.copiar(chave, temporario);
+                }
+                if (!copiado) {
+                    ProgramaDecodificado programa = compilarFonte(new String(bytes, StandardCharsets.UTF_8),
+                            regrasPeephole, fluxo);
+                    ArquivoObjeto.salvar(programa, temporario);
+                    if (cache != null) {
+                        cache.guardar(chave, programa);
+                    }
+                }
+                Files.move(temporario, objeto, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(temporario);
+            }
+            return new Resultado(fonte, objeto, null, System.nanoTime() - inicio);
+        } catch (IOException e) {
+            return new Resultado(fonte, null, "Erro ao ler/escrever arquivo: " + e.getMessage(),
+                    System.nanoTime() - inicio);
+        } catch (RuntimeException e) {
+            return new Resultado(fonte, null, e.getMessage(), System.nanoTime() - inicio);
+        } catch (StackOverflowError e) {
+            return new Resultado(fonte, null, "Programa aninhado demais para o Parser (estouro de pilha)",
+                    System.nanoTime() - inicio);
+        }
+    }
+
+    // compila um fonte em memória, sem imprimir nada; usado também pelo servidor
+    public static ProgramaDecodificado compilarFonte(String codigoFonte, String regrasPeephole) {
+        return compilarFonte(codigoFonte, regrasPeephole, true);
+    }
+
+    public static ProgramaDecodificado compilarFonte(String codigoFonte, String regrasPeephole, boolean fluxo) {
+        Compilador compilador = new Compilador();
+        compilador.setPeephole(regrasPeephole);
+        compilador.setFluxo(fluxo);
+        return compilador.compilarObjeto(codigoFonte);
+    }
+
+    private Path caminhoObjeto(Path fonte) {
+        String nome = fonte.getFileName().toString();
+        for (String extensao : EXTENSOES) {
+            if (nome.endsWith(extensao)) {
+                nome = nome.substring(0, nome.length() - extensao.length());
+                break;
+            }
+        }
+        nome += ".obj";
+        if (diretorioSaida == null) {
+            return fonte.resolveSibling(nome);
+        }
+        return diretorioSaida.resolve(nome);
+    }
+
+    public static class Resultado {
+        private final Path fonte;
+        private final Path objeto;
+        private final String erro;
+        private final long nanos;
+
+        Resultado(Path fonte, Path objeto, String erro, long nanos) {
+            this.fonte = fonte;
+            this.objeto = objeto;
+            this.erro = erro;
+            this.nanos = nanos;
+        }
+
+        public Path getFonte() {
+            return fonte;
+        }
+
+        public Path getObjeto() {
+            return objeto;
+        }
+
+        // mensagem do erro, ou null se compilou
+        public String getErro() {
+            return erro;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    public static class Relatorio {
+        private final List<Resultado> resultados;
+        private final long nanos;
+        private final int threads;
+        private long acertosCache = -1; // -1 sem cache
+        private long faltasCache = -1;
+
+        Relatorio(List<Resultado> resultados, long nanos, int threads) {
+            this.resultados = Collections.unmodifiableList(resultados);
+            this.nanos = nanos;
+            this.threads = threads;
+        }
+
+        public List<Resultado> getResultados() {
+            return resultados;
+        }
+
+        public List<Resultado> getFalhas() {
+            return resultados.stream().filter(r -> r.getErro() != null).collect(Collectors.toList());
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getAcertosCache() {
+            return acertosCache;
+        }
+
+        public long getFaltasCache() {
+            return faltasCache;
+        }
+
+        public double arquivosPorSegundo() {
+            return nanos == 0 ? 0 : resultados.size() * 1e9 / nanos;
+        }
+
+        public void imprimir() {
+            List<Resultado> falhas = getFalhas();
+            System.out.println("=== COMPILAÇÃO EM LOTE ===");
+            for (Resultado falha : falhas) {
+                System.out.println("FALHA " + falha.getFonte() + ": " + falha.getErro());
+            }
+            System.out.printf(">>> %d arquivos em %.3f s (%.1f arquivos/s, %d threads) <<<%n",
+                    resultados.size(), nanos / 1e9, arquivosPorSegundo(), threads);
+            System.out.println(">>> " + (resultados.size() - falhas.size()) + " compilados, " + falhas.size()
+                    + " com erro <<<");
+            if (acertosCache >= 0) {
+                System.out.println(">>> Cache: " + acertosCache + " acertos, " + faltasCache + " faltas <<<");
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package compilador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// Lê os valores do LEIT direto dos bytes de um InputStream, em blocos de 64 KB.
+// Aceita o mesmo que o Scanner.nextDouble aceitava na prática: sinal, parte
+// inteira, parte decimal e expoente, separados por espaços ou quebras de linha.
+// Números de até 15 algarismos com expoente pequeno viram double com uma
+// multiplicação ou divisão exata por potência de 10 (o resultado é o mesmo do
+// Double.parseDouble); o resto, incluindo NaN e Infinity, cai no
+// Double.parseDouble.
+public final class EntradaBuffer implements EntradaVM {
+
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final int MAX_ALGARISMOS_EXATOS = 15;
+
+    // 10^0 a 10^22 são exatos em double
+    private static final double[] POTENCIAS = new double[23];
+
+    static {
+        POTENCIAS[0] = 1.0;
+        for (int i = 1; i < POTENCIAS.length; i++) {
+            POTENCIAS[i] = POTENCIAS[i - 1] * 10.0;
+        }
+    }
+
+    private InputStream entrada;
+    private final byte[] buffer;
+    private int posicao;
+    private int limite;
+    private boolean fim;
+
+    public EntradaBuffer(InputStream entrada) {
+        this(entrada, TAMANHO_BUFFER);
+    }
+
+    public EntradaBuffer(InputStream entrada, int tamanhoBuffer) {
+        this.entrada = entrada;
+        this.buffer = new byte[tamanhoBuffer];
+    }
+
+    // passa a ler de outro fluxo, reaproveitando o buffer
+    public void reabrir(InputStream entrada) {
+        this.entrada = entrada;
+        posicao = 0;
+        limite = 0;
+        fim = false;
+    }
+
+    @Override
+    public double ler() {
+        if (!pularEspacos()) {
+            throw new RuntimeException("ERRO: fim da entrada ao executar LEIT");
+        }
+        int fimToken = fimDoToken(); // pode mover o token para o início do buffer
+        double valor = converter(posicao, fimToken);
+        posicao = fimToken;
+        return valor;
+    }
+
+    @Override
+    public boolean pronta() {
+        boolean dentroDeToken = false;
+        for (int i = posicao; i < limite; i++) {
+            boolean espaco = ehEspaco(buffer[i]);
+            if (espaco && dentroDeToken) {
+                return true;
+            }
+            dentroDeToken |= !espaco;
+        }
+        return fim;
+    }
+
+    // false no fim da entrada
+    private boolean pularEspacos() {
+        while (true) {
+            while (posicao < limite) {
+                if (!ehEspaco(buffer[posicao])) {
+                    return true;
+                }
+                posicao++;
+            }
+            if (!encher()) {
+                return false;
+            }
+        }
+    }
+
+    // posição logo depois do token que começa em "posicao"; se ele não couber no
+    // que foi lido, o restante do buffer vai para o início e lê-se mais
+    private int fimDoToken() {
+        int i = posicao;
+        while (true) {
+            while (i < limite) {
+                if (ehEspaco(buffer[i])) {
+                    return i;
+                }
+                i++;
+            }
+            if (fim) {
+                return i;
+            }
+            int lidos = i - posicao;
+            if (posicao > 0) {
+                System.arraycopy(buffer, posicao, buffer, 0, lidos);
+                limite = lidos;
+                posicao = 0;
+                i = lidos;
+            } else if (limite == buffer.length) {
+                throw new RuntimeException("ERRO: valor de entrada longo demais no LEIT");
+            }
+            if (!lerMais()) {
+                return i;
+            }
+        }
+    }
+
+    private boolean encher() {
+        posicao = 0;
+        limite = 0;
+        return lerMais();
+    }
+
+    private boolean lerMais() {
+        if (fim) {
+            return false;
+        }
+        try {
+            int lidos = entrada.read(buffer, limite, buffer.length - limite);
+            if (lidos < 0) {
+                fim = true;
+                return false;
+            }
+            limite += lidos;
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException("ERRO: falha ao ler a entrada: " + e.getMessage());
+        }
+    }
+
+    private static boolean ehEspaco(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t' || b == '\f';
+    }
+
+    private double converter(int inicio, int fimToken) {
+        int i = inicio;
+        boolean negativo = false;
+        if (buffer[i] == '-' || buffer[i] == '+') {
+            negativo = buffer[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int algarismos = 0; // significativos, sem os zeros à esquerda
+        int expoente = 0;
+        boolean temAlgarismo = false;
+        while (i < fimToken && buffer[i] >= '0' && buffer[i] <= '9') {
+            temAlgarismo = true;
+            if (algarismos < 18) {
+                mantissa = mantissa * 10 + (buffer[i] - '0');
+                if (mantissa != 0) {
+                    algarismos++;
+                }
+            } else {
+                algarismos++;
+                expoente++;
+            }
+            i++;
+        }
+        if (i < fimToken && buffer[i] == '.') {
+            i++;
+            while (i < fimToken && buffer[i] >= '0' && buffer[i] <= '9') {
+                temAlgarismo = true;
+                if (algarismos < 18) {
+                    mantissa = mantissa * 10 + (buffer[i] - '0');
+                    if (mantissa != 0) {
+                        algarismos++;
+                    }
+                    expoente--;
+                }
+                i++;
+            }
+        }
+        if (temAlgarismo && i < fimToken && (buffer[i] == 'e' || buffer[i] == 'E')) {
+            int j = i + 1;
+            boolean expoenteNegativo = false;
+            if (j < fimToken && (buffer[j] == '-' || buffer[j] == '+')) {
+                expoenteNegativo = buffer[j] == '-';
+                j++;
+            }
+            int valorExpoente = 0;
+            boolean temExpoente = false;
+            while (j < fimToken && buffer[j] >= '0' && buffer[j] <= '9') {
+                temExpoente = true;
+                valorExpoente = Math.min(valorExpoente * 10 + (buffer[j] - '0'), 100_000);
+                j++;
+            }
+            if (temExpoente) {
+                expoente += expoenteNegativo ? -valorExpoente : valorExpoente;
+                i = j;
+            }
+        }
+        if (!temAlgarismo || i != fimToken || algarismos > MAX_ALGARISMOS_EXATOS
+                || expoente < -22 || expoente > 22) {
+            return converterDevagar(inicio, fimToken);
+        }
+        double valor = expoente >= 0 ? mantissa * POTENCIAS[expoente] : mantissa / POTENCIAS[-expoente];
+        return negativo ? -valor : valor;
+    }
+
+    private double converterDevagar(int inicio, int fimToken) {
+        String token = new String(buffer, inicio, fimToken - inicio, StandardCharsets.UTF_8);
+        try {
+            return Double.parseDouble(token);
+        } catch (NumberFormatException e) {
+            throw new RuntimeException("ERRO: valor de entrada inválido no LEIT: " + token);
+        }
+    }
+}
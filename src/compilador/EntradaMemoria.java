@@ -0,0 +1,34 @@
+package compilador;
+
+// Entrada do LEIT a partir de um vetor de valores, para testes e benchmarks.
+public final class EntradaMemoria implements EntradaVM {
+
+    private final double[] valores;
+    private int proximo;
+
+    public EntradaMemoria(double... valores) {
+        this.valores = valores;
+    }
+
+    @Override
+    public double ler() {
+        if (proximo == valores.length) {
+            throw new RuntimeException("ERRO: fim da entrada ao executar LEIT");
+        }
+        return valores[proximo++];
+    }
+
+    @Override
+    public boolean pronta() {
+        return true;
+    }
+
+    // volta ao primeiro valor, para reaproveitar a mesma entrada
+    public void reiniciar() {
+        proximo = 0;
+    }
+
+    public int getLidos() {
+        return proximo;
+    }
+}
@@ -0,0 +1,12 @@
+package compilador;
+
+// De onde o LEIT tira os valores. A implementação padrão é a EntradaBuffer sobre
+// System.in; a EntradaMemoria serve valores de um vetor.
+public interface EntradaVM {
+
+    double ler();
+
+    // true se o próximo ler() não vai esperar por dados; a VM descarrega a saída
+    // antes de uma leitura que pode bloquear, para o prompt aparecer
+    boolean pronta();
+}
@@ -0,0 +1,281 @@
+package compilador;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Escreve arquivos .class mínimos para o JIT: pool de constantes, métodos com
+// atributo Code, desvios por rótulo e tabela de exceções. Gera a versão 49 do formato, que ainda não
+// exige StackMapTable, então não é preciso calcular frames.
+class EscritorClasse {
+
+    static final int ACC_PUBLIC = 0x0001;
+    static final int ACC_FINAL = 0x0010;
+    static final int ACC_SUPER = 0x0020;
+
+    // opcodes da JVM usados pelo JIT
+    static final int ICONST_0 = 0x03;
+    static final int LCONST_0 = 0x09;
+    static final int LCONST_1 = 0x0a;
+    static final int DCONST_0 = 0x0e;
+    static final int DCONST_1 = 0x0f;
+    static final int BIPUSH = 0x10;
+    static final int SIPUSH = 0x11;
+    static final int LDC_W = 0x13;
+    static final int LDC2_W = 0x14;
+    static final int LLOAD = 0x16;
+    static final int DLOAD = 0x18;
+    static final int ALOAD_0 = 0x2a;
+    static final int ALOAD_1 = 0x2b;
+    static final int ALOAD_2 = 0x2c;
+    static final int ALOAD_3 = 0x2d;
+    static final int LALOAD = 0x2f;
+    static final int DALOAD = 0x31;
+    static final int LSTORE = 0x37;
+    static final int DSTORE = 0x39;
+    static final int LASTORE = 0x50;
+    static final int DASTORE = 0x52;
+    static final int POP = 0x57;
+    static final int DUP2 = 0x5c;
+    static final int LADD = 0x61;
+    static final int DADD = 0x63;
+    static final int DSUB = 0x67;
+    static final int DMUL = 0x6b;
+    static final int DDIV = 0x6f;
+    static final int DNEG = 0x77;
+    static final int L2D = 0x8a;
+    static final int LCMP = 0x94;
+    static final int DCMPL = 0x97;
+    static final int DCMPG = 0x98;
+    static final int IFEQ = 0x99;
+    static final int IFNE = 0x9a;
+    static final int IFLT = 0x9b;
+    static final int IFGE = 0x9c;
+    static final int IFGT = 0x9d;
+    static final int IFLE = 0x9e;
+    static final int GOTO = 0xa7;
+    static final int IRETURN = 0xac;
+    static final int RETURN = 0xb1;
+    static final int INVOKEVIRTUAL = 0xb6;
+    static final int INVOKESPECIAL = 0xb7;
+    static final int INVOKESTATIC = 0xb8;
+    static final int ATHROW = 0xbf;
+
+    private final List<byte[]> pool = new ArrayList<>();
+    private final Map<String, Integer> indicesPool = new HashMap<>();
+    private int proximoIndicePool = 1;
+    private final List<byte[]> metodos = new ArrayList<>();
+    private final int estaClasse;
+    private final int superClasse;
+    private final int[] interfaces;
+
+    EscritorClasse(String nome, String superClasse, String... interfaces) {
+        this.estaClasse = classe(nome);
+        this.superClasse = classe(superClasse);
+        this.interfaces = new int[interfaces.length];
+        for (int i = 0; i < interfaces.length; i++) {
+            this.interfaces[i] = classe(interfaces[i]);
+        }
+    }
+
+    private int entrada(String chave, byte[] bytes, int slots) {
+        Integer indice = indicesPool.get(chave);
+        if (indice != null) {
+            return indice;
+        }
+        indice = proximoIndicePool;
+        proximoIndicePool += slots;
+        pool.add(bytes);
+        indicesPool.put(chave, indice);
+        return indice;
+    }
+
+    int utf8(String valor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(1);
+            out.writeUTF(valor);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return entrada("U" + valor, bytes.toByteArray(), 1);
+    }
+
+    int classe(String nomeInterno) {
+        int nome = utf8(nomeInterno);
+        return entrada("C" + nomeInterno, new byte[] { 7, (byte) (nome >> 8), (byte) nome }, 1);
+    }
+
+    int inteiro(int valor) {
+        return entrada("I" + valor, new byte[] { 3, (byte) (valor >> 24), (byte) (valor >> 16),
+                (byte) (valor >> 8), (byte) valor }, 1);
+    }
+
+    int longo(long valor) {
+        byte[] bytes = new byte[9];
+        bytes[0] = 5;
+        for (int i = 0; i < 8; i++) {
+            bytes[1 + i] = (byte) (valor >> (56 - 8 * i));
+        }
+        return entrada("J" + valor, bytes, 2);
+    }
+
+    int real(double valor) {
+        long bits = Double.doubleToRawLongBits(valor);
+        byte[] bytes = new byte[9];
+        bytes[0] = 6;
+        for (int i = 0; i < 8; i++) {
+            bytes[1 + i] = (byte) (bits >> (56 - 8 * i));
+        }
+        return entrada("D" + bits, bytes, 2);
+    }
+
+    int metodo(String dono, String nome, String descritor) {
+        int c = classe(dono);
+        int n = utf8(nome);
+        int d = utf8(descritor);
+        int nt = entrada("N" + nome + descritor,
+                new byte[] { 12, (byte) (n >> 8), (byte) n, (byte) (d >> 8), (byte) d }, 1);
+        return entrada("M" + dono + "." + nome + descritor,
+                new byte[] { 10, (byte) (c >> 8), (byte) c, (byte) (nt >> 8), (byte) nt }, 1);
+    }
+
+    void adicionarMetodo(int acesso, String nome, String descritor, Codigo codigo) {
+        byte[] bytecode = codigo.resolver();
+        List<int[]> tratadores = codigo.tratadores();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeShort(acesso);
+            out.writeShort(utf8(nome));
+            out.writeShort(utf8(descritor));
+            out.writeShort(1);
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + bytecode.length + 8 * tratadores.size());
+            out.writeShort(codigo.maxPilha);
+            out.writeShort(codigo.maxLocais);
+            out.writeInt(bytecode.length);
+            out.write(bytecode);
+            out.writeShort(tratadores.size()); // tabela de exceções
+            for (int[] tratador : tratadores) {
+                for (int campo : tratador) {
+                    out.writeShort(campo);
+                }
+            }
+            out.writeShort(0); // atributos do Code
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        metodos.add(bytes.toByteArray());
+    }
+
+    byte[] gerar() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            out.writeShort(proximoIndicePool);
+            for (byte[] entrada : pool) {
+                out.write(entrada);
+            }
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(estaClasse);
+            out.writeShort(superClasse);
+            out.writeShort(interfaces.length);
+            for (int i : interfaces) {
+                out.writeShort(i);
+            }
+            out.writeShort(0); // campos
+            out.writeShort(metodos.size());
+            for (byte[] metodo : metodos) {
+                out.write(metodo);
+            }
+            out.writeShort(0); // atributos da classe
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // corpo de um método; desvios apontam para rótulos resolvidos no final
+    static class Codigo {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final List<Integer> posicoesRotulos = new ArrayList<>();
+        private final List<int[]> desvios = new ArrayList<>(); // {posição da instrução, rótulo}
+        private final List<int[]> tratadores = new ArrayList<>(); // {início, fim, rótulo, classe}
+        int maxPilha;
+        int maxLocais;
+
+        int tamanho() {
+            return bytes.size();
+        }
+
+        void op(int opcode) {
+            bytes.write(opcode);
+        }
+
+        void op(int opcode, int argumento) {
+            bytes.write(opcode);
+            bytes.write(argumento);
+        }
+
+        void op16(int opcode, int argumento) {
+            bytes.write(opcode);
+            bytes.write(argumento >> 8);
+            bytes.write(argumento);
+        }
+
+        int novoRotulo() {
+            posicoesRotulos.add(-1);
+            return posicoesRotulos.size() - 1;
+        }
+
+        void marcar(int rotulo) {
+            posicoesRotulos.set(rotulo, bytes.size());
+        }
+
+        void desvio(int opcode, int rotulo) {
+            desvios.add(new int[] { bytes.size(), rotulo });
+            op16(opcode, 0);
+        }
+
+        // o trecho [inicio, fim) do bytecode desvia para o rótulo quando lança a classe
+        // (índice no pool); a exceção chega no topo da pilha
+        void tratador(int inicio, int fim, int rotulo, int classe) {
+            tratadores.add(new int[] { inicio, fim, rotulo, classe });
+        }
+
+        List<int[]> tratadores() {
+            List<int[]> resolvidos = new ArrayList<>();
+            for (int[] t : tratadores) {
+                int destino = posicoesRotulos.get(t[2]);
+                if (destino < 0) {
+                    throw new IllegalStateException("Rótulo não marcado: " + t[2]);
+                }
+                resolvidos.add(new int[] { t[0], t[1], destino, t[3] });
+            }
+            return resolvidos;
+        }
+
+        byte[] resolver() {
+            byte[] codigo = bytes.toByteArray();
+            for (int[] desvio : desvios) {
+                int destino = posicoesRotulos.get(desvio[1]);
+                if (destino < 0) {
+                    throw new IllegalStateException("Rótulo não marcado: " + desvio[1]);
+                }
+                int deslocamento = destino - desvio[0];
+                if (deslocamento < Short.MIN_VALUE || deslocamento > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Desvio longo demais: " + deslocamento);
+                }
+                codigo[desvio[0] + 1] = (byte) (deslocamento >> 8);
+                codigo[desvio[0] + 2] = (byte) deslocamento;
+            }
+            return codigo;
+        }
+    }
+}
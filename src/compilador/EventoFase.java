@@ -0,0 +1,39 @@
+package compilador;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Evento do Java Flight Recorder para uma fase do compilador (FasesCompilacao).
+// Com "java -XX:StartFlightRecording ..." os eventos entram na gravação;
+// "jfr print --events compilador.Fase gravacao.jfr" lista as fases. Os tamanhos
+// que não se aplicam à fase ficam em 0.
+@Name("compilador.Fase")
+@Label("Fase do Compilador")
+@Category({ "Compilador LALG" })
+@Description("Duração e tamanhos de uma fase da compilação ou da execução")
+@StackTrace(false)
+public final class EventoFase extends jdk.jfr.Event {
+
+    @Label("Fase")
+    public String fase;
+
+    @Label("Arquivo")
+    public String arquivo;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Tokens")
+    public long tokens;
+
+    @Label("Símbolos")
+    public long simbolos;
+
+    @Label("Instruções")
+    public long instrucoes;
+}
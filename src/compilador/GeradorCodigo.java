@@ -1,5 +1,6 @@
 package compilador;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -7,10 +8,55 @@ public class GeradorCodigo {
 
     private List<Instrucao> codigo;
     private int enderecoAtual; 
+    private List<String> procedimentos;
+    private int procedimentoAtual;
+    private int linhaAtual;
+    // quadro de cada procedimento: parâmetros e locais ficam em endereços seguidos
+    private List<Integer> basesQuadros;
+    private List<Integer> tamanhosQuadros;
+    private int tamanhoGlobais;
 
     public GeradorCodigo() {
         this.codigo = new ArrayList<>();
         this.enderecoAtual = 0;
+        this.procedimentos = new ArrayList<>();
+        this.procedimentos.add("principal");
+        this.basesQuadros = new ArrayList<>();
+        this.basesQuadros.add(0);
+        this.tamanhosQuadros = new ArrayList<>();
+        this.tamanhosQuadros.add(0);
+    }
+
+    // linha do fonte das próximas instruções emitidas; o Parser passa a linha do
+    // último token consumido
+    public void setLinha(int linha) {
+        this.linhaAtual = linha;
+    }
+
+    public void setNomePrograma(String nome) {
+        procedimentos.set(0, nome);
+    }
+
+    // as instruções emitidas até sairProcedimento() pertencem ao procedimento
+    public void entrarProcedimento(String nome) {
+        procedimentos.add(nome);
+        procedimentoAtual = procedimentos.size() - 1;
+        basesQuadros.add(enderecoAtual);
+        tamanhosQuadros.add(0);
+    }
+
+    public void sairProcedimento() {
+        procedimentoAtual = 0;
+    }
+
+    // nomes dos procedimentos pelo índice guardado nas instruções; 0 é o programa
+    public List<String> getProcedimentos() {
+        return procedimentos;
+    }
+
+    private Instrucao comOrigem(Instrucao instrucao) {
+        instrucao.setOrigem(linhaAtual, procedimentoAtual);
+        return instrucao;
     }
 
     
@@ -20,27 +66,57 @@ public class GeradorCodigo {
 
     
     public int alocarMemoria() {
+        if (procedimentoAtual == 0) {
+            tamanhoGlobais++;
+        } else {
+            tamanhosQuadros.set(procedimentoAtual, tamanhosQuadros.get(procedimentoAtual) + 1);
+        }
         return enderecoAtual++;
     }
 
+    // variáveis do programa principal
+    public int getTamanhoGlobais() {
+        return tamanhoGlobais;
+    }
+
+    // primeiro endereço e tamanho do quadro de cada procedimento, pelo mesmo índice
+    // de getProcedimentos(); o 0 (programa principal) tem tamanho 0
+    public List<Integer> getBasesQuadros() {
+        return basesQuadros;
+    }
+
+    public List<Integer> getTamanhosQuadros() {
+        return tamanhosQuadros;
+    }
+
+    
+    public int getTamanhoMemoria() {
+        return enderecoAtual;
+    }
+
     
     public void emitir(String operacao) {
-        codigo.add(new Instrucao(operacao));
+        codigo.add(comOrigem(new Instrucao(operacao)));
     }
 
     
     public void emitir(String operacao, int argumento) {
-        codigo.add(new Instrucao(operacao, argumento));
+        codigo.add(comOrigem(new Instrucao(operacao, argumento)));
+    }
+
+    
+    public void emitir(String operacao, long argumento) {
+        codigo.add(comOrigem(new Instrucao(operacao, argumento)));
     }
 
     
     public void emitir(String operacao, double argumento) {
-        codigo.add(new Instrucao(operacao, argumento));
+        codigo.add(comOrigem(new Instrucao(operacao, argumento)));
     }
 
     
     public void emitir(String operacao, String argumento) {
-        codigo.add(new Instrucao(operacao, argumento));
+        codigo.add(comOrigem(new Instrucao(operacao, argumento)));
     }
 
     
@@ -49,12 +125,41 @@ public class GeradorCodigo {
     }
 
     
+    public Instrucao getInstrucao(int indice) {
+        return codigo.get(indice);
+    }
+
+    
+    public void substituir(int indice, Instrucao instrucao) {
+        codigo.set(indice, instrucao);
+    }
+
+    // usados pela dobra de constantes e pelas conversões de tipo, sempre dentro de
+    // uma expressão, onde não há destinos de desvio pendentes
+    public void inserir(int indice, String operacao) {
+        codigo.add(indice, comOrigem(new Instrucao(operacao)));
+    }
+
+    public void remover(int indice) {
+        codigo.remove(indice);
+    }
+
+    
+    public void removerDesde(int indice) {
+        codigo.subList(indice, codigo.size()).clear();
+    }
+
+    
     public void imprimir() {
-        System.out.println("\n=== CÓDIGO GERADO ===");
+        imprimir(System.out);
+    }
+
+    public void imprimir(PrintStream saida) {
+        saida.println("\n=== CÓDIGO GERADO ===");
         for (int i = 0; i < codigo.size(); i++) {
-            System.out.println(i + ": " + codigo.get(i));
+            saida.println(i + ": " + codigo.get(i));
         }
-        System.out.println("=====================\n");
+        saida.println("=====================\n");
     }
 
     
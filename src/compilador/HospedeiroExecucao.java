@@ -0,0 +1,145 @@
+package compilador;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Executa muitas vezes, ao mesmo tempo, um ou vários programas, cada execução com
+// a sua entrada e a sua saída. O programa (ProgramaExecutavel) é compartilhado e só
+// o estado da execução é por tarefa: cada uma pega uma MaquinaVirtual livre do
+// programa, reinicia com os seus fluxos e devolve ao terminar. Com N threads nunca
+// existem mais de N máquinas por programa, por mais execuções que sejam submetidas.
+//
+// Por padrão usa um pool fixo de threads da plataforma; qualquer ExecutorService
+// serve (no Java 21, Executors.newVirtualThreadPerTaskExecutor()). Uma execução
+// parada no LEIT esperando entrada ocupa a thread dela.
+public class HospedeiroExecucao implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final AtomicLong execucoes = new AtomicLong();
+    private final AtomicLong falhas = new AtomicLong();
+    private volatile MetricasVM metricas;
+
+    public HospedeiroExecucao(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public HospedeiroExecucao(int threads) {
+        this(Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "hospedeiro-execucao");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    public HospedeiroExecucao() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    // erros de execução não lançam exceção no get(): ficam em Execucao.getErro()
+    public Future<Execucao> submeter(ProgramaExecutavel programa, InputStream entrada, PrintStream saida) {
+        return executor.submit(() -> executar(programa, entrada, saida));
+    }
+
+    public Future<Execucao> submeter(ProgramaExecutavel programa, EntradaVM entrada, SaidaVM saida) {
+        return executor.submit(() -> executar(programa, entrada, saida));
+    }
+
+    // executa na thread que chamou, com uma máquina do pool; os fluxos são lidos e
+    // escritos pelos buffers da própria máquina
+    public Execucao executar(ProgramaExecutavel programa, InputStream entrada, PrintStream saida) {
+        MaquinaVirtual vm = programa.obterMaquina();
+        vm.reiniciar(entrada, saida);
+        return executar(programa, vm);
+    }
+
+    public Execucao executar(ProgramaExecutavel programa, EntradaVM entrada, SaidaVM saida) {
+        MaquinaVirtual vm = programa.obterMaquina();
+        vm.reiniciar(entrada, saida);
+        return executar(programa, vm);
+    }
+
+    private Execucao executar(ProgramaExecutavel programa, MaquinaVirtual vm) {
+        long inicio = System.nanoTime();
+        vm.setMetricas(metricas);
+        String erro = null;
+        long instrucoes;
+        int maxPilha;
+        try {
+            vm.executar();
+        } catch (RuntimeException e) {
+            erro = e.getMessage();
+            falhas.incrementAndGet();
+        } finally {
+            // também num Error (StackOverflowError, OutOfMemoryError), para o pool não
+            // perder a máquina; os contadores são lidos antes, porque ela é reiniciada
+            instrucoes = vm.getInstrucoesExecutadas();
+            maxPilha = vm.getMaxPilha();
+            execucoes.incrementAndGet();
+            programa.devolverMaquina(vm);
+        }
+        return new Execucao(instrucoes, maxPilha, erro, System.nanoTime() - inicio);
+    }
+
+    // métricas somadas de todas as execuções daqui em diante; null desliga
+    public void setMetricas(MetricasVM metricas) {
+        this.metricas = metricas;
+    }
+
+    public long getExecucoes() {
+        return execucoes.get();
+    }
+
+    public long getFalhas() {
+        return falhas.get();
+    }
+
+    // espera as execuções já submetidas terminarem; interrompida, volta sem esperar
+    // e deixa a interrupção marcada na thread
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // execuções paradas no LEIT podem demorar
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static class Execucao {
+        private final long instrucoes;
+        private final int maxPilha;
+        private final String erro;
+        private final long nanos;
+
+        Execucao(long instrucoes, int maxPilha, String erro, long nanos) {
+            this.instrucoes = instrucoes;
+            this.maxPilha = maxPilha;
+            this.erro = erro;
+            this.nanos = nanos;
+        }
+
+        public long getInstrucoes() {
+            return instrucoes;
+        }
+
+        public int getMaxPilha() {
+            return maxPilha;
+        }
+
+        // mensagem do erro de execução, ou null se terminou normalmente
+        public String getErro() {
+            return erro;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -4,6 +4,8 @@ public class Instrucao {
 
     private String operacao; 
     private String argumento; 
+    private int linha; // linha do fonte que gerou a instrução; 0 se desconhecida
+    private int procedimento; // índice em GeradorCodigo.getProcedimentos(); 0 é o programa principal
 
     public Instrucao(String operacao) {
         this.operacao = operacao;
@@ -20,6 +22,11 @@ public class Instrucao {
         this.argumento = String.valueOf(argumento);
     }
 
+    public Instrucao(String operacao, long argumento) {
+        this.operacao = operacao;
+        this.argumento = String.valueOf(argumento);
+    }
+
     public Instrucao(String operacao, double argumento) {
         this.operacao = operacao;
         this.argumento = String.valueOf(argumento);
@@ -37,6 +44,25 @@ public class Instrucao {
         this.argumento = argumento;
     }
 
+    public int getLinha() {
+        return linha;
+    }
+
+    public int getProcedimento() {
+        return procedimento;
+    }
+
+    public void setOrigem(int linha, int procedimento) {
+        this.linha = linha;
+        this.procedimento = procedimento;
+    }
+
+    // para instruções que substituem outra (peephole)
+    public Instrucao comOrigemDe(Instrucao outra) {
+        setOrigem(outra.linha, outra.procedimento);
+        return this;
+    }
+
     @Override
     public String toString() {
         if (argumento.isEmpty()) {
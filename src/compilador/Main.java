@@ -1,9 +1,12 @@
 package compilador;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class Main {
@@ -11,43 +14,245 @@ public class Main {
 
         String caminhoFonte = "../descricao/correto.pascal.txt";
         String caminhoObjeto = "../descricao/saida.obj";
+        String caminhoTexto = "../descricao/saida.txt";
+        boolean relatarPilha = false;
+        boolean gerarTexto = false;
+        String regrasPeephole = null;
+        String superinstrucoes = "todas";
+        boolean usarJit = true;
+        int limiarJit = CompiladorJit.LIMIAR_PADRAO;
+        String motor = "interpretador";
+        boolean scannerBytes = false;
+        boolean bufferTokens = false;
+        boolean lote = false;
+        String diretorioSaida = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> entradas = new ArrayList<>();
+        String diretorioCache = null;
+        long limiteCache = CacheCompilacao.LIMITE_PADRAO;
+        String socketServidor = null;
+        boolean semPrompt = false;
+        boolean comMetricas = false;
+        boolean comPerfil = false;
+        String arquivoPilhas = null;
+        boolean mostrarTempos = false;
+        boolean emMemoria = false;
+        boolean otimizarFluxo = true;
+        boolean diferencasFluxo = false;
 
-        try {
+        for (String arg : args) {
+            if (arg.equals("--pilha")) {
+                relatarPilha = true;
+            } else if (arg.equals("--text")) {
+                gerarTexto = true;
+            } else if (arg.equals("--peephole")) {
+                regrasPeephole = "";
+            } else if (arg.startsWith("--peephole=")) {
+                regrasPeephole = arg.substring("--peephole=".length());
+            } else if (arg.startsWith("--super=")) {
+                superinstrucoes = arg.substring("--super=".length());
+            } else if (arg.equals("--interpretar")) {
+                usarJit = false;
+            } else if (arg.equals("--scanner=bytes")) {
+                scannerBytes = true;
+            } else if (arg.equals("--buffer")) {
+                bufferTokens = true;
+            } else if (arg.startsWith("--motor=")) {
+                motor = arg.substring("--motor=".length());
+            } else if (arg.startsWith("--jit=")) {
+                limiarJit = Integer.parseInt(arg.substring("--jit=".length()));
+            } else if (arg.equals("--lote")) {
+                lote = true;
+            } else if (arg.startsWith("--saida=")) {
+                diretorioSaida = arg.substring("--saida=".length());
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.equals("--cache")) {
+                diretorioCache = Paths.get(System.getProperty("user.home"), ".cache", "compiladorPascal").toString();
+            } else if (arg.startsWith("--cache=")) {
+                diretorioCache = arg.substring("--cache=".length());
+            } else if (arg.startsWith("--cache-limite=")) {
+                limiteCache = Long.parseLong(arg.substring("--cache-limite=".length())) * 1024 * 1024;
+            } else if (arg.equals("--metricas")) {
+                comMetricas = true;
+            } else if (arg.equals("--perfil")) {
+                comPerfil = true;
+            } else if (arg.startsWith("--perfil=")) {
+                comPerfil = true;
+                arquivoPilhas = arg.substring("--perfil=".length());
+            } else if (arg.equals("--sem-fluxo")) {
+                otimizarFluxo = false;
+            } else if (arg.equals("--fluxo-diff")) {
+                diferencasFluxo = true;
+            } else if (arg.equals("--memoria")) {
+                emMemoria = true;
+            } else if (arg.equals("--timings")) {
+                mostrarTempos = true;
+            } else if (arg.equals("--sem-prompt")) {
+                semPrompt = true;
+            } else if (arg.equals("--servidor")) {
+                socketServidor = ServidorCompilacao.socketPadrao().toString();
+            } else if (arg.startsWith("--servidor=")) {
+                socketServidor = arg.substring("--servidor=".length());
+            } else if (!arg.startsWith("--")) {
+                entradas.add(arg);
+            }
+        }
 
-            System.out.println("=== COMPILADOR PASCAL DESCENDENTE RECURSIVO ===\n");
+        if (socketServidor != null) {
+            // --servidor: fica residente atendendo o ClienteCompilacao até receber "parar"
+            try {
+                CacheCompilacao cache =
+                        diretorioCache == null ? null : new CacheCompilacao(Paths.get(diretorioCache), limiteCache);
+                ServidorCompilacao servidor = new ServidorCompilacao(Paths.get(socketServidor), cache);
+                if (comMetricas) {
+                    MetricasVM metricas = new MetricasVM();
+                    metricas.registrar("servidor");
+                    servidor.setMetricas(metricas);
+                }
+                servidor.executar();
+            } catch (IOException e) {
+                System.err.println("Erro no socket do servidor: " + e.getMessage());
+            }
+            return;
+        }
 
-            String codigoFonte = new String(Files.readAllBytes(Paths.get(caminhoFonte)));
+        if (lote) {
+            // --lote arquivos/diretórios: compila tudo em paralelo, um .obj por fonte
+            try {
+                List<Path> fontes = CompiladorLote.listarFontes(entradas);
+                CacheCompilacao cache =
+                        diretorioCache == null ? null : new CacheCompilacao(Paths.get(diretorioCache), limiteCache);
+                CompiladorLote compilador = new CompiladorLote(regrasPeephole, otimizarFluxo,
+                        diretorioSaida == null ? null : Paths.get(diretorioSaida), threads, cache);
+                compilador.compilar(fontes).imprimir();
+            } catch (IOException e) {
+                System.err.println("Erro ao ler/escrever arquivo: " + e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
 
-            ScannerLexico lexer = new ScannerLexico(codigoFonte);
+        if (emMemoria) {
+            // --memoria: compila e executa pela API do Compilador, sem listagens e sem o saida.obj
+            try {
+                Compilador compilador = novoCompilador(otimizarFluxo, regrasPeephole, superinstrucoes, motor,
+                        usarJit ? limiarJit : 0);
+                ProgramaExecutavel programa = compilador.compilar(Paths.get(caminhoFonte));
+                if (semPrompt) {
+                    programa.executar(new EntradaBuffer(System.in),
+                            new SaidaBuffer(System.out, Charset.defaultCharset(), false));
+                } else {
+                    programa.executar(System.in, System.out);
+                }
+            } catch (IOException e) {
+                System.err.println("Erro ao ler/escrever arquivo: " + e.getMessage());
+            } catch (RuntimeException e) {
+                System.err.println(e.getMessage());
+            }
+            return;
+        }
 
-            System.out.println("=== TOKENS ENCONTRADOS ===");
-            ScannerLexico lexerVisual = new ScannerLexico(codigoFonte);
-            TokenInformacoes token;
-            int contadorTokens = 0;
-            do {
-                token = lexerVisual.proximoToken();
-                System.out.println(token);
-                contadorTokens++;
-            } while (token.getTipo() != Token.EOF);
-            System.out.println("\n>>> Total de tokens: " + contadorTokens + " <<<\n");
+        try {
 
-            System.out.println("=== ANÁLISE SINTÁTICA ===");
-            Parser parser = new Parser(lexer);
-            parser.parse();
+            System.out.println("=== COMPILADOR PASCAL DESCENDENTE RECURSIVO ===\n");
 
-            parser.getTabela().imprimir();
+            // o mesmo caminho do --memoria, com as listagens ligadas; cada fase vira um
+            // EventoFase no JFR e, com --timings, também um resumo no fim
+            FasesCompilacao fases = new FasesCompilacao(caminhoFonte);
+            Compilador compilador = novoCompilador(otimizarFluxo, regrasPeephole, superinstrucoes, motor,
+                    usarJit ? limiarJit : 0);
+            compilador.setListagem(System.out, true, true, true);
+            compilador.setDiferencasFluxo(diferencasFluxo);
+            compilador.setFases(fases);
+            // --buffer lê todos os tokens de uma vez para arrays paralelos; --scanner=bytes lê o
+            // fonte mapeado em memória, sem convertê-lo para String
+            compilador.setLeitura(bufferTokens ? Compilador.Leitura.BUFFER
+                    : scannerBytes ? Compilador.Leitura.BYTES : Compilador.Leitura.TEXTO);
 
-            parser.getGerador().imprimir();
+            // --cache: fonte já compilado com as mesmas opções pula direto para o código objeto
+            CacheCompilacao cache = null;
+            String chave = null;
+            ProgramaDecodificado programa = null;
+            if (diretorioCache != null) {
+                FasesCompilacao.Fase consulta = fases.iniciar("cache");
+                cache = new CacheCompilacao(Paths.get(diretorioCache), limiteCache);
+                chave = cache.chave(Files.readAllBytes(Paths.get(caminhoFonte)),
+                        CacheCompilacao.opcoes(regrasPeephole, otimizarFluxo));
+                programa = cache.carregar(chave);
+                consulta.terminar(Files.size(Paths.get(caminhoFonte)), 0, 0,
+                        programa != null ? programa.tamanho() : 0);
+                if (programa != null) {
+                    System.out.println(">>> Código objeto obtido do cache: " + chave + " <<<");
+                }
+            }
+            if (programa == null) {
+                programa = compilador.compilarObjeto(Paths.get(caminhoFonte));
+                if (cache != null) {
+                    cache.guardar(chave, programa);
+                }
+            }
 
-            salvarCodigoObjeto(parser.getGerador().getCodigo(), caminhoObjeto);
+            FasesCompilacao.Fase escrita = fases.iniciar("escrita do objeto");
+            ArquivoObjeto.salvar(programa, Paths.get(caminhoObjeto));
+            escrita.terminar(Files.size(Paths.get(caminhoObjeto)), 0, 0, programa.tamanho());
             System.out.println("\n>>> Código objeto salvo em: " + caminhoObjeto + " <<<\n");
 
-            System.out.println("=== CARREGANDO CÓDIGO OBJETO ===\n");
-            List<Instrucao> codigoCarregado = carregarCodigoObjeto(caminhoObjeto);
-            System.out.println(">>> " + codigoCarregado.size() + " instruções carregadas <<<");
+            if (gerarTexto) {
+                Path texto = Paths.get(caminhoTexto);
+                ArquivoObjeto.salvarTexto(programa.paraInstrucoes(), texto);
+                System.out.println(">>> Código objeto em texto salvo em: " + caminhoTexto + " <<<");
+            }
 
-            MaquinaVirtual vm = new MaquinaVirtual(codigoCarregado);
-            vm.executar();
+            // executa o programa compilado em memória; o saida.obj fica para quem quiser carregá-lo depois
+            MaquinaVirtual vm = new MaquinaVirtual(compilador.preparar(programa));
+            if (vm.getExecutavel().getMotorRegistros() != null) {
+                System.out.println();
+                System.out.print(vm.getExecutavel().getMotorRegistros().listar());
+            }
+            vm.setRelatarPilha(relatarPilha);
+            if (semPrompt) {
+                // --sem-prompt: só os valores do IMPR, um por linha, para entradas e saídas em arquivo
+                vm.setSaida(new SaidaBuffer(System.out, Charset.defaultCharset(), false));
+            }
+            // --metricas: contadores da execução, também publicados no JMX enquanto ela roda
+            MetricasVM metricas = null;
+            if (comMetricas) {
+                metricas = new MetricasVM();
+                metricas.registrar("main");
+                vm.setMetricas(metricas);
+            }
+            // --perfil[=ARQUIVO]: linhas e procedimentos mais quentes; as pilhas para flame graph vão para ARQUIVO
+            Perfilador perfil = null;
+            if (comPerfil) {
+                perfil = new Perfilador(programa);
+                String fonte = new String(Files.readAllBytes(Paths.get(caminhoFonte)));
+                perfil.setFonte(Arrays.asList(fonte.split("\\R")));
+                vm.setPerfil(perfil);
+            }
+            FasesCompilacao.Fase execucao = fases.iniciar("execução");
+            try {
+                vm.executar();
+            } finally {
+                execucao.terminar(0, 0, 0, vm.getInstrucoesExecutadas());
+            }
+            if (metricas != null) {
+                System.out.println();
+                System.out.print(metricas.instantaneo());
+            }
+            if (perfil != null) {
+                System.out.println();
+                System.out.print(perfil.relatorio(15));
+                if (arquivoPilhas != null) {
+                    perfil.salvarPilhas(Paths.get(arquivoPilhas), false);
+                    System.out.println(">>> Pilhas para flame graph salvas em: " + arquivoPilhas + " <<<");
+                }
+            }
+            if (mostrarTempos) {
+                System.out.println();
+                System.out.println(fases.resumo());
+            }
 
         } catch (IOException e) {
             System.err.println("Erro ao ler/escrever arquivo: " + e.getMessage());
@@ -56,34 +261,20 @@ public class Main {
         }
     }
 
-    private static void salvarCodigoObjeto(List<Instrucao> codigo, String caminho) throws IOException {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(caminho))) {
-            for (Instrucao inst : codigo) {
-                if (inst.getArgumento() != null) {
-                    writer.println(inst.getOperacao() + " " + inst.getArgumento());
-                } else {
-                    writer.println(inst.getOperacao());
-                }
-            }
+    private static Compilador novoCompilador(boolean fluxo, String regrasPeephole, String superinstrucoes,
+            String motor, int limiarJit) {
+        Compilador compilador = new Compilador();
+        compilador.setFluxo(fluxo);
+        compilador.setPeephole(regrasPeephole);
+        compilador.setSuperinstrucoes(superinstrucoes);
+        if (motor.equalsIgnoreCase("nos")) {
+            compilador.setMotor(MaquinaVirtual.Motor.NOS);
+        } else if (motor.equalsIgnoreCase("registros")) {
+            compilador.setMotor(MaquinaVirtual.Motor.REGISTROS);
+        } else if (!motor.equalsIgnoreCase("interpretador")) {
+            throw new RuntimeException("Motor de execução desconhecido: " + motor);
         }
-    }
-
-    private static List<Instrucao> carregarCodigoObjeto(String caminho) throws IOException {
-        List<Instrucao> codigo = new ArrayList<>();
-        List<String> linhas = Files.readAllLines(Paths.get(caminho));
-
-        for (String linha : linhas) {
-            linha = linha.trim();
-            if (linha.isEmpty())
-                continue;
-
-            String[] partes = linha.split("\\s+", 2);
-            String operacao = partes[0];
-            String argumento = partes.length > 1 ? partes[1] : null;
-
-            codigo.add(new Instrucao(operacao, argumento));
-        }
-
-        return codigo;
+        compilador.setLimiarJit(limiarJit);
+        return compilador;
     }
 }
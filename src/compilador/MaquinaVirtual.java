@@ -1,153 +1,807 @@
 package compilador;
 
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
-import java.util.Stack;
 
 public class MaquinaVirtual {
 
-    private List<Instrucao> codigo;
-    private double[] memoria;
-    private Stack<Double> pilha;
-    private Stack<Integer> retorno;
+    // 2^63: o TRUN aceita reais em [-2^63, 2^63), a faixa do long
+    private static final double LIMITE_TRUNCAR = 9.223372036854775808E18;
+
+    // INTERPRETADOR: laço com switch, com o JIT por cima quando houver um CompiladorJit;
+    // NOS: blocos básicos convertidos em cadeias de nós antes da execução (MotorNos);
+    // REGISTROS: código de três endereços sobre registradores virtuais (MotorRegistros)
+    public enum Motor {
+        INTERPRETADOR,
+        NOS,
+        REGISTROS
+    }
+
+    // o que é do programa, compartilhável entre execuções
+    private final ProgramaExecutavel executavel;
+    private final ProgramaDecodificado programa;
+    private final CompiladorJit jit;
+    private final MotorNos motorNos;
+    private final MotorRegistros motorRegistros;
+
+    // estado desta execução; os inteiros ficam nos mesmos endereços e na mesma
+    // altura de pilha, mas em vetores long
+    private final double[] memoria;
+    private final long[] memoriaInteira;
+    private final PilhaAtivacao ativacoes;
+    private MotorNos.Quadro quadro;
+    private MotorRegistros.Estado estado;
+    private double[] pilha;
+    private long[] pilhaInteira;
+    private int topo;
+    private int[] retorno;
+    private int topoRetorno;
+    private int maxPilha;
+    private int maxRetorno;
+    private long instrucoesExecutadas;
+    private MetricasVM metricas; // null: sem métricas
+    private long[] porOperacao; // contagem desta execução, só com métricas
+    private long chamadas;
+    private long despachos;
+    private long nanosLeitura;
+    private Perfilador perfil; // null: sem perfil
+    private boolean relatarPilha;
     private int pc;
-    private Scanner scanner;
+    private EntradaVM entrada; // null: System.in, aberta no primeiro uso
+    private SaidaVM saida; // null: System.out
+    private EntradaBuffer entradaBuffer; // da própria máquina, reaproveitados entre execuções
+    private SaidaBuffer saidaBuffer;
 
     public MaquinaVirtual(List<Instrucao> codigo) {
-        this.codigo = codigo;
-        this.memoria = new double[1000];
-        this.pilha = new Stack<>();
-        this.retorno = new Stack<>();
-        this.pc = 0;
-        this.scanner = new Scanner(System.in);
+        this(ProgramaDecodificado.decodificar(codigo));
+    }
+
+    public MaquinaVirtual(ProgramaDecodificado programa) {
+        this(programa, new CompiladorJit(programa));
+    }
+
+    public MaquinaVirtual(ProgramaDecodificado programa, Motor motor) {
+        this(new ProgramaExecutavel(programa, motor));
+    }
+
+    // jit null força a execução só pelo interpretador; um mesmo CompiladorJit pode ser
+    // reaproveitado entre execuções do mesmo programa
+    public MaquinaVirtual(ProgramaDecodificado programa, CompiladorJit jit) {
+        this(new ProgramaExecutavel(programa, jit));
+    }
+
+    public MaquinaVirtual(ProgramaExecutavel executavel) {
+        this.executavel = executavel;
+        this.programa = executavel.getPrograma();
+        this.jit = executavel.getJit();
+        this.motorNos = executavel.getMotorNos();
+        this.motorRegistros = executavel.getMotorRegistros();
+        // no motor de registradores a memória é o começo do vetor de registradores
+        this.memoria = new double[motorRegistros != null ? motorRegistros.tamanhoRegistros()
+                : programa.getTamanhoMemoria()];
+        this.memoriaInteira = new long[memoria.length];
+        this.ativacoes = new PilhaAtivacao(memoria, memoriaInteira, programa);
+        this.pilha = new double[64];
+        this.pilhaInteira = new long[64];
+        this.retorno = new int[16];
+        this.pc = programa.getPontoEntrada();
+    }
+
+    public ProgramaExecutavel getExecutavel() {
+        return executavel;
+    }
+
+    // volta ao estado de uma máquina nova, mantendo as pilhas já crescidas, para
+    // executar o programa de novo sem alocar outra máquina
+    public void reiniciar() {
+        Arrays.fill(memoria, 0.0);
+        Arrays.fill(memoriaInteira, 0L);
+        topo = 0;
+        topoRetorno = 0;
+        maxPilha = 0;
+        maxRetorno = 0;
+        instrucoesExecutadas = 0;
+        pc = programa.getPontoEntrada();
+        ativacoes.reiniciar();
+        if (quadro != null) {
+            quadro.reiniciar();
+        }
+        if (estado != null) {
+            estado.reiniciar();
+        }
+        entrada = null;
+        saida = null;
+    }
+
+    // reinicia e troca a entrada e a saída; o uso normal do HospedeiroExecucao
+    public void reiniciar(InputStream entrada, PrintStream saida) {
+        reiniciar();
+        setEntrada(entrada);
+        setSaida(saida);
+    }
+
+    public void reiniciar(EntradaVM entrada, SaidaVM saida) {
+        reiniciar();
+        setEntrada(entrada);
+        setSaida(saida);
+    }
+
+    // entrada do LEIT e saída do programa; por padrão System.in e System.out, com
+    // buffer (EntradaBuffer e SaidaBuffer, reaproveitados pela máquina)
+    public void setEntrada(InputStream entrada) {
+        if (entradaBuffer == null) {
+            entradaBuffer = new EntradaBuffer(entrada);
+        } else {
+            entradaBuffer.reabrir(entrada);
+        }
+        this.entrada = entradaBuffer;
+    }
+
+    // a saída é escrita em bytes no charset padrão, o mesmo do System.out
+    public void setSaida(PrintStream saida) {
+        if (saidaBuffer == null) {
+            saidaBuffer = new SaidaBuffer(saida);
+        } else {
+            saidaBuffer.reabrir(saida);
+        }
+        this.saida = saidaBuffer;
+    }
+
+    public void setEntrada(EntradaVM entrada) {
+        this.entrada = entrada;
+    }
+
+    public void setSaida(SaidaVM saida) {
+        this.saida = saida;
+    }
+
+    private EntradaVM entrada() {
+        if (entrada == null) {
+            setEntrada(System.in);
+        }
+        return entrada;
+    }
+
+    private SaidaVM saida() {
+        if (saida == null) {
+            setSaida(System.out);
+        }
+        return saida;
+    }
+
+    // cada execução soma seus contadores em metricas ao terminar; null desliga
+    public void setMetricas(MetricasVM metricas) {
+        this.metricas = metricas;
+        if (metricas != null && porOperacao == null) {
+            porOperacao = new long[CodigoOperacao.quantidadeTotal()];
+        }
+    }
+
+    // com perfil a execução vai sempre pelo interpretador, sem superinstruções e sem
+    // JIT, mesmo que a máquina tenha sido criada com o motor de nós; null desliga
+    public void setPerfil(Perfilador perfil) {
+        this.perfil = perfil;
+    }
+
+    // imprime o pico das pilhas ao final da execução
+    public void setRelatarPilha(boolean relatarPilha) {
+        this.relatarPilha = relatarPilha;
+    }
+
+    public int getMaxPilha() {
+        return maxPilha;
+    }
+
+    public int getMaxRetorno() {
+        return maxRetorno;
+    }
+
+    public long getInstrucoesExecutadas() {
+        return instrucoesExecutadas;
+    }
+
+    // toda instrução empilha no máximo um valor, então basta garantir uma posição
+    // livre antes de cada despacho
+    private void crescerPilha() {
+        pilha = Arrays.copyOf(pilha, pilha.length * 2);
+        pilhaInteira = Arrays.copyOf(pilhaInteira, pilhaInteira.length * 2);
+    }
+
+    private void empilharRetorno(int endereco) {
+        if (topoRetorno == retorno.length) {
+            retorno = Arrays.copyOf(retorno, retorno.length * 2);
+        }
+        retorno[topoRetorno++] = endereco;
+        if (topoRetorno > maxRetorno) {
+            maxRetorno = topoRetorno;
+        }
+    }
+
+    private int desempilharRetorno() {
+        return retorno[--topoRetorno];
+    }
+
+    // TRUN: trunca em direção ao zero, como o trunc do Pascal. Também chamado pelo
+    // código do JIT e pelos outros motores.
+    static long truncar(double valor) {
+        if (!(valor >= -LIMITE_TRUNCAR && valor < LIMITE_TRUNCAR)) { // também NaN
+            throw new RuntimeException("ERRO: valor real fora da faixa dos inteiros: " + valor);
+        }
+        return (long) valor;
+    }
+
+    // SOMI, SUBI, MULI e INVI usam os Math.*Exact. Cada motor (e o JIT) troca o
+    // ArithmeticException por este erro com o pc da operação inteira que estourou,
+    // então a mensagem é a mesma em todos.
+    static RuntimeException estouroInteiro(int pc) {
+        return new RuntimeException("ERRO: estouro de inteiro na instrução " + pc);
+    }
+
+    // LEIT, IMPR e a contagem de instruções também são chamados pelo código do JIT
+    double ler() {
+        SaidaVM saida = saida();
+        saida.prompt();
+        EntradaVM entrada = entrada();
+        if (!entrada.pronta()) {
+            saida.descarregar(); // a leitura vai esperar: o prompt tem que aparecer antes
+        }
+        if (metricas == null) {
+            return entrada.ler();
+        }
+        long inicio = System.nanoTime();
+        try {
+            return entrada.ler();
+        } finally {
+            nanosLeitura += System.nanoTime() - inicio;
+        }
+    }
+
+    void imprimir(double valor) {
+        saida.imprimir(valor);
+    }
+
+    void imprimir(long valor) {
+        saida.imprimir(valor);
+    }
+
+    void contarInstrucoes(long quantidade) {
+        instrucoesExecutadas += quantidade;
+        if (metricas != null) {
+            porOperacao[CodigoOperacao.JIT] += quantidade;
+        }
     }
 
     public void executar() {
-        System.out.println("\n=== EXECUTANDO PROGRAMA ===\n");
-        while (pc < codigo.size()) {
-            Instrucao inst = codigo.get(pc);
-            String op = inst.getOperacao();
-            String arg = inst.getArgumento();
-            switch (op) {
-                case "INPP": // início do programa
-                    pc++;
-                    break;
-                case "PARA": // fim do programa
-                    System.out.println("\n=== PROGRAMA FINALIZADO ===");
-                    return;
-                case "ALME": // alocar memória
-                    pc++;
-                    break;
-                case "CRCT": // carregar constante na pilha
-                    pilha.push(Double.parseDouble(arg));
-                    pc++;
-                    break;
-                case "CRVL": // carregar valor da memória na pilha
-                    pilha.push(memoria[Integer.parseInt(arg)]);
-                    pc++;
-                    break;
-                case "ARMZ": // armazenar valor da pilha na memória
-                    memoria[Integer.parseInt(arg)] = pilha.pop();
-                    pc++;
-                    break;
-                case "SOMA": // soma dois valores do topo da pilha
-                    double b1 = pilha.pop();
-                    double a1 = pilha.pop();
-                    pilha.push(a1 + b1);
-                    pc++;
-                    break;
-                case "SUBT": // subtrai dois valores do topo da pilha
-                    double b2 = pilha.pop();
-                    double a2 = pilha.pop();
-                    pilha.push(a2 - b2);
-                    pc++;
-                    break;
-                case "MULT": // multiplica dois valores do topo da pilha
-                    double b3 = pilha.pop();
-                    double a3 = pilha.pop();
-                    pilha.push(a3 * b3);
-                    pc++;
-                    break;
-                case "DIVI": // divide dois valores do topo da pilha
-                    double b4 = pilha.pop();
-                    double a4 = pilha.pop();
-                    pilha.push(a4 / b4);
-                    pc++;
-                    break;
-                case "LEIT": // lê valor do usuário
-                    System.out.print("Digite um valor: ");
-                    double valor = scanner.nextDouble();
-                    pilha.push(valor);
-                    pc++;
-                    break;
-                case "IMPR": // imprime valor do topo da pilha
-                    System.out.println("Saída: " + pilha.pop());
-                    pc++;
-                    break;
-                case "CMIG": // compara se é igual (==)
-                    pilha.push(pilha.pop().equals(pilha.pop()) ? 1.0 : 0.0);
-                    pc++;
-                    break;
-                case "CMDG": // compara se é diferente (<>)
-                    pilha.push(!pilha.pop().equals(pilha.pop()) ? 1.0 : 0.0);
-                    pc++;
-                    break;
-                case "CMAI": // compara se é maior ou igual (>=)
-                    double r1 = pilha.pop();
-                    double l1 = pilha.pop();
-                    pilha.push(l1 >= r1 ? 1.0 : 0.0);
-                    pc++;
-                    break;
-                case "CPMI": // compara se é menor ou igual (<=)
-                    double r2 = pilha.pop();
-                    double l2 = pilha.pop();
-                    pilha.push(l2 <= r2 ? 1.0 : 0.0);
-                    pc++;
-                    break;
-                case "CMMA": // compara se é maior (>)
-                    double r3 = pilha.pop();
-                    double l3 = pilha.pop();
-                    pilha.push(l3 > r3 ? 1.0 : 0.0);
-                    pc++;
-                    break;
-                case "CMME": // compara se é menor (<)
-                    double r4 = pilha.pop();
-                    double l4 = pilha.pop();
-                    pilha.push(l4 < r4 ? 1.0 : 0.0);
-                    pc++;
-                    break;
-                case "DSVF": // desvia pra outra instrução se o topo da pilha for falso (0)
-                    if (pilha.pop() == 0.0) {
-                        pc = Integer.parseInt(arg);
-                    } else {
-                        pc++;
-                    }
-                    break;
-                case "DSVI": // desvio incondicional
-                    pc = Integer.parseInt(arg);
-                    break;
-                case "PUSHER": // empilha endereço de retorno
-                    retorno.push(Integer.parseInt(arg));
-                    pc++;
-                    break;
-                case "CHPR": // chama procedimento
-                    pc = Integer.parseInt(arg);
-                    break;
-                case "RTPR": // retorna do procedimento
-                    pc = retorno.pop();
-                    break;
-                case "PARAM": // passa parâmetro (empilha valor)
-                    int endParam = Integer.parseInt(arg);
-                    pilha.push(memoria[endParam]);
-                    pc++;
-                    break;
-                case "DESM": // desempilha (limpa memória local)
-                    pc++;
-                    break;
-                default:
-                    System.out.println("ERRO: Instrução desconhecida: " + op);
-                    return;
+        saida(); // abre a saída padrão se nenhuma foi definida
+        MetricasVM metricas = this.metricas;
+        long inicio = 0;
+        long instrucoesAntes = instrucoesExecutadas;
+        chamadas = 0;
+        despachos = 0;
+        if (metricas != null) {
+            Arrays.fill(porOperacao, 0);
+            nanosLeitura = 0;
+            metricas.iniciar();
+            inicio = System.nanoTime();
+        }
+        boolean nos = motorNos != null && perfil == null;
+        boolean registros = motorRegistros != null && perfil == null;
+        try {
+            if (nos) {
+                executarNos();
+            } else if (registros) {
+                executarRegistros();
+            } else {
+                executarInstrucoes();
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            if (nos || registros) {
+                throw new RuntimeException("ERRO: acesso inválido à pilha ou à memória");
+            }
+            throw new RuntimeException("ERRO: acesso inválido à pilha ou à memória na instrução " + pc);
+        } finally {
+            saida.descarregar();
+            if (metricas != null) {
+                metricas.terminar(instrucoesExecutadas - instrucoesAntes, chamadas, maxPilha, maxRetorno,
+                        System.nanoTime() - inicio, nanosLeitura, porOperacao);
+            }
+        }
+    }
+
+    PilhaAtivacao getAtivacoes() {
+        return ativacoes;
+    }
+
+    // chamadas (CHPR) da última execução
+    public long getChamadas() {
+        return chamadas;
+    }
+
+    // instruções despachadas pelo motor de registradores na última execução; os
+    // outros motores não contam (0)
+    public long getDespachos() {
+        return despachos;
+    }
+
+    private void finalizar(int maxPilha) {
+        saida.linha("\n=== PROGRAMA FINALIZADO ===");
+        if (relatarPilha) {
+            saida.linha("Pico da pilha de operandos: " + maxPilha
+                    + " | pico da pilha de retorno: " + maxRetorno
+                    + " | pico dos quadros salvos: " + ativacoes.getMaxSalvos());
+            if (motorRegistros != null) {
+                saida.linha("Despachos no motor de registradores: " + despachos + " para "
+                        + instrucoesExecutadas + " instruções de pilha");
+            }
+        }
+    }
+
+    // os nós usam a pilha real só para valores que passam de um bloco para outro,
+    // então o pico relatado costuma ser menor que o do interpretador
+    private void executarNos() {
+        saida.linha("\n=== EXECUTANDO PROGRAMA ===\n");
+        if (quadro == null) {
+            quadro = motorNos.novoQuadro(memoria, memoriaInteira, this);
+        }
+        MotorNos.Quadro quadro = this.quadro;
+        try {
+            motorNos.executar(quadro);
+        } finally {
+            this.maxPilha = quadro.maxPilha;
+            this.maxRetorno = quadro.maxRetorno;
+            this.instrucoesExecutadas += quadro.executadas;
+            this.chamadas += quadro.chamadas;
+        }
+        if (quadro.finalizado) {
+            finalizar(maxPilha);
+        }
+    }
+
+    // como nos nós, a pilha real só guarda valores que passam de um bloco para outro
+    private void executarRegistros() {
+        saida.linha("\n=== EXECUTANDO PROGRAMA ===\n");
+        if (estado == null) {
+            estado = motorRegistros.novoEstado(memoria, memoriaInteira, this);
+        }
+        MotorRegistros.Estado estado = this.estado;
+        long executadasAntes = estado.executadas;
+        long despachosAntes = estado.despachos;
+        long chamadasAntes = estado.chamadas;
+        try {
+            motorRegistros.executar(estado);
+        } finally {
+            this.maxPilha = estado.maxPilha;
+            this.maxRetorno = estado.maxRetorno;
+            this.instrucoesExecutadas += estado.executadas - executadasAntes;
+            this.despachos += estado.despachos - despachosAntes;
+            this.chamadas += estado.chamadas - chamadasAntes;
+        }
+        if (estado.finalizado) {
+            finalizar(maxPilha);
+        }
+    }
+
+    // pc, topo e o vetor da pilha ficam em variáveis locais durante o laço, para que o
+    // JIT os mantenha em registradores; os campos são atualizados ao sair
+    private void executarInstrucoes() {
+        saida.linha("\n=== EXECUTANDO PROGRAMA ===\n");
+        final Perfilador perfil = this.perfil;
+        final CompiladorJit jit = perfil == null ? this.jit : null;
+        final int[] operacoes = perfil != null ? programa.operacoes() : jit != null ? jit.execucao()
+                : programa.execucao();
+        final int[] argumentos = programa.argumentos();
+        final double[] constantes = programa.constantes();
+        final long[] constantesInteiras = programa.constantesInteiras();
+        final double[] memoria = this.memoria;
+        final long[] memoriaInteira = this.memoriaInteira;
+        final int tamanho = operacoes.length;
+        double[] pilha = this.pilha;
+        long[] pilhaInteira = this.pilhaInteira;
+        int topo = this.topo;
+        int maxPilha = this.maxPilha;
+        int pc = this.pc;
+        long executadas = 0;
+        long chamadas = 0;
+        final long[] porOperacao = metricas != null ? this.porOperacao : null;
+        if (perfil != null) {
+            perfil.iniciar();
+        }
+        try {
+            while (pc < tamanho) {
+                if (topo == pilha.length) {
+                    crescerPilha();
+                    pilha = this.pilha;
+                    pilhaInteira = this.pilhaInteira;
+                }
+                if (topo > maxPilha) {
+                    maxPilha = topo;
+                }
+                executadas++;
+                int arg = argumentos[pc];
+                int operacao = operacoes[pc];
+                if (porOperacao != null) {
+                    porOperacao[operacao]++;
+                }
+                if (perfil != null) {
+                    perfil.instrucao(pc);
+                }
+                switch (operacao) {
+                    case CodigoOperacao.INPP: // início do programa
+                        pc++;
+                        break;
+                    case CodigoOperacao.PARA: // fim do programa
+                        finalizar(maxPilha);
+                        return;
+                    case CodigoOperacao.ALME: // alocar memória
+                        pc++;
+                        break;
+                    case CodigoOperacao.CRCT: // carregar constante na pilha
+                        pilha[topo++] = constantes[arg];
+                        pc++;
+                        break;
+                    case CodigoOperacao.CRVL: // carregar valor da memória na pilha
+                        pilha[topo++] = memoria[arg];
+                        pc++;
+                        break;
+                    case CodigoOperacao.ARMZ: // armazenar valor da pilha na memória
+                        memoria[arg] = pilha[--topo];
+                        pc++;
+                        break;
+                    case CodigoOperacao.ARMC: // armazena o topo da pilha na memória sem desempilhar
+                        memoria[arg] = pilha[topo - 1];
+                        pc++;
+                        break;
+                    case CodigoOperacao.SOMA: // soma dois valores do topo da pilha
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] + pilha[topo];
+                        pc++;
+                        break;
+                    case CodigoOperacao.SUBT: // subtrai dois valores do topo da pilha
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] - pilha[topo];
+                        pc++;
+                        break;
+                    case CodigoOperacao.MULT: // multiplica dois valores do topo da pilha
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] * pilha[topo];
+                        pc++;
+                        break;
+                    case CodigoOperacao.DIVI: // divide dois valores do topo da pilha
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] / pilha[topo];
+                        pc++;
+                        break;
+                    case CodigoOperacao.INVE: // inverte o sinal do topo da pilha
+                        pilha[topo - 1] = -pilha[topo - 1];
+                        pc++;
+                        break;
+                    case CodigoOperacao.CRCI: // carregar constante inteira
+                        pilhaInteira[topo++] = constantesInteiras[arg];
+                        pc++;
+                        break;
+                    case CodigoOperacao.CRVI: // carregar variável inteira
+                    case CodigoOperacao.PARI:
+                        pilhaInteira[topo++] = memoriaInteira[arg];
+                        pc++;
+                        break;
+                    case CodigoOperacao.ARMI: // armazenar inteiro
+                        memoriaInteira[arg] = pilhaInteira[--topo];
+                        pc++;
+                        break;
+                    case CodigoOperacao.ARCI: // armazenar inteiro sem desempilhar
+                        memoriaInteira[arg] = pilhaInteira[topo - 1];
+                        pc++;
+                        break;
+                    case CodigoOperacao.SOMI: // soma inteira
+                        topo--;
+                        pilhaInteira[topo - 1] = Math.addExact(pilhaInteira[topo - 1], pilhaInteira[topo]);
+                        pc++;
+                        break;
+                    case CodigoOperacao.SUBI: // subtração inteira
+                        topo--;
+                        pilhaInteira[topo - 1] = Math.subtractExact(pilhaInteira[topo - 1], pilhaInteira[topo]);
+                        pc++;
+                        break;
+                    case CodigoOperacao.MULI: // multiplicação inteira
+                        topo--;
+                        pilhaInteira[topo - 1] = Math.multiplyExact(pilhaInteira[topo - 1], pilhaInteira[topo]);
+                        pc++;
+                        break;
+                    case CodigoOperacao.INVI: // menos unário inteiro
+                        pilhaInteira[topo - 1] = Math.negateExact(pilhaInteira[topo - 1]);
+                        pc++;
+                        break;
+                    case CodigoOperacao.TRUN: // converte real em inteiro
+                        pilhaInteira[topo - 1] = truncar(pilha[topo - 1]);
+                        pc++;
+                        break;
+                    case CodigoOperacao.REAL: // converte inteiro em real
+                        pilha[topo - 1] = pilhaInteira[topo - 1];
+                        pc++;
+                        break;
+                    case CodigoOperacao.IMPI: // imprime inteiro
+                        imprimir(pilhaInteira[--topo]);
+                        pc++;
+                        break;
+                    case CodigoOperacao.CIIG: // comparações inteiras, com o resultado na faixa real
+                        topo--;
+                        pilha[topo - 1] = pilhaInteira[topo - 1] == pilhaInteira[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CIDG:
+                        topo--;
+                        pilha[topo - 1] = pilhaInteira[topo - 1] != pilhaInteira[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CIAI:
+                        topo--;
+                        pilha[topo - 1] = pilhaInteira[topo - 1] >= pilhaInteira[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CIMI:
+                        topo--;
+                        pilha[topo - 1] = pilhaInteira[topo - 1] <= pilhaInteira[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CIMA:
+                        topo--;
+                        pilha[topo - 1] = pilhaInteira[topo - 1] > pilhaInteira[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CIME:
+                        topo--;
+                        pilha[topo - 1] = pilhaInteira[topo - 1] < pilhaInteira[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.LEIT: // lê valor do usuário
+                        pilha[topo++] = ler();
+                        pc++;
+                        break;
+                    case CodigoOperacao.IMPR: // imprime valor do topo da pilha
+                        imprimir(pilha[--topo]);
+                        pc++;
+                        break;
+                    case CodigoOperacao.CMIG: // compara se é igual (==)
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] == pilha[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CMDG: // compara se é diferente (<>)
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] != pilha[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CMAI: // compara se é maior ou igual (>=)
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] >= pilha[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CPMI: // compara se é menor ou igual (<=)
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] <= pilha[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CMMA: // compara se é maior (>)
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] > pilha[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.CMME: // compara se é menor (<)
+                        topo--;
+                        pilha[topo - 1] = pilha[topo - 1] < pilha[topo] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CodigoOperacao.DSVF: // desvia pra outra instrução se o topo da pilha for falso (0)
+                        if (pilha[--topo] == 0.0) {
+                            pc = arg;
+                        } else {
+                            pc++;
+                        }
+                        break;
+                    case CodigoOperacao.DSVI: // desvio incondicional
+                        if (jit != null && arg <= pc) { // fim de laço
+                            jit.laco(arg, pc);
+                        }
+                        pc = arg;
+                        break;
+                    case CodigoOperacao.PUSHER: // empilha endereço de retorno
+                        empilharRetorno(arg);
+                        pc++;
+                        break;
+                    case CodigoOperacao.CHPR: // chama procedimento
+                        chamadas++;
+                        if (jit != null) {
+                            jit.chamada(arg);
+                        }
+                        if (perfil != null) {
+                            perfil.chamada(arg);
+                        }
+                        ativacoes.entrar(arg);
+                        pc = arg;
+                        break;
+                    case CodigoOperacao.RTPR: // retorna do procedimento
+                        pc = desempilharRetorno();
+                        ativacoes.sair();
+                        if (perfil != null) {
+                            perfil.retorno();
+                        }
+                        break;
+                    case CodigoOperacao.PARAM: // passa parâmetro (empilha valor)
+                        pilha[topo++] = memoria[arg];
+                        pc++;
+                        break;
+                    case CodigoOperacao.DESM: // desempilha (limpa memória local)
+                        pc++;
+                        break;
+                    case CodigoOperacao.SOMA_VV: // CRVL a, CRVL b, SOMA
+                        executadas += 2; // conta as instruções que a superinstrução substitui
+                        pilha[topo++] = memoria[arg] + memoria[argumentos[pc + 1]];
+                        pc += 3;
+                        break;
+                    case CodigoOperacao.SOMA_VC: // CRVL a, CRCT k, SOMA
+                        executadas += 2;
+                        pilha[topo++] = memoria[arg] + constantes[argumentos[pc + 1]];
+                        pc += 3;
+                        break;
+                    case CodigoOperacao.MOVE_VV: // CRVL a, ARMZ b
+                        executadas++;
+                        memoria[argumentos[pc + 1]] = memoria[arg];
+                        pc += 2;
+                        break;
+                    case CodigoOperacao.MOVE_CV: // CRCT k, ARMZ b
+                        executadas++;
+                        memoria[argumentos[pc + 1]] = constantes[arg];
+                        pc += 2;
+                        break;
+                    case CodigoOperacao.DSVF_IG_VC: // CRVL a, CRCT k, CMIG, DSVF e
+                        executadas += 3;
+                        pc = memoria[arg] == constantes[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_DG_VC:
+                        executadas += 3;
+                        pc = memoria[arg] != constantes[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_AI_VC:
+                        executadas += 3;
+                        pc = memoria[arg] >= constantes[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_MI_VC:
+                        executadas += 3;
+                        pc = memoria[arg] <= constantes[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_MA_VC:
+                        executadas += 3;
+                        pc = memoria[arg] > constantes[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_ME_VC:
+                        executadas += 3;
+                        pc = memoria[arg] < constantes[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_IG_VV: // CRVL a, CRVL b, CMIG, DSVF e
+                        executadas += 3;
+                        pc = memoria[arg] == memoria[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_DG_VV:
+                        executadas += 3;
+                        pc = memoria[arg] != memoria[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_AI_VV:
+                        executadas += 3;
+                        pc = memoria[arg] >= memoria[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_MI_VV:
+                        executadas += 3;
+                        pc = memoria[arg] <= memoria[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_MA_VV:
+                        executadas += 3;
+                        pc = memoria[arg] > memoria[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_ME_VV:
+                        executadas += 3;
+                        pc = memoria[arg] < memoria[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.SOMI_VV: // CRVI a, CRVI b, SOMI
+                        executadas += 2;
+                        pilhaInteira[topo++] = Math.addExact(memoriaInteira[arg], memoriaInteira[argumentos[pc + 1]]);
+                        pc += 3;
+                        break;
+                    case CodigoOperacao.SOMI_VC: // CRVI a, CRCI k, SOMI
+                        executadas += 2;
+                        pilhaInteira[topo++] = Math.addExact(memoriaInteira[arg],
+                                constantesInteiras[argumentos[pc + 1]]);
+                        pc += 3;
+                        break;
+                    case CodigoOperacao.MOVI_VV: // CRVI a, ARMI b
+                        executadas++;
+                        memoriaInteira[argumentos[pc + 1]] = memoriaInteira[arg];
+                        pc += 2;
+                        break;
+                    case CodigoOperacao.MOVI_CV: // CRCI k, ARMI b
+                        executadas++;
+                        memoriaInteira[argumentos[pc + 1]] = constantesInteiras[arg];
+                        pc += 2;
+                        break;
+                    case CodigoOperacao.DSVF_IG_VCI: // CRVI a, CRCI k, CIIG, DSVF e
+                        executadas += 3;
+                        pc = memoriaInteira[arg] == constantesInteiras[argumentos[pc + 1]] ? pc + 4
+                                : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_DG_VCI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] != constantesInteiras[argumentos[pc + 1]] ? pc + 4
+                                : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_AI_VCI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] >= constantesInteiras[argumentos[pc + 1]] ? pc + 4
+                                : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_MI_VCI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] <= constantesInteiras[argumentos[pc + 1]] ? pc + 4
+                                : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_MA_VCI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] > constantesInteiras[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_ME_VCI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] < constantesInteiras[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_IG_VVI: // CRVI a, CRVI b, CIIG, DSVF e
+                        executadas += 3;
+                        pc = memoriaInteira[arg] == memoriaInteira[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_DG_VVI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] != memoriaInteira[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_AI_VVI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] >= memoriaInteira[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_MI_VVI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] <= memoriaInteira[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_MA_VVI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] > memoriaInteira[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.DSVF_ME_VVI:
+                        executadas += 3;
+                        pc = memoriaInteira[arg] < memoriaInteira[argumentos[pc + 1]] ? pc + 4 : argumentos[pc + 3];
+                        break;
+                    case CodigoOperacao.JIT: // região compilada; ela mesma conta suas instruções
+                        executadas--;
+                        if (porOperacao != null) {
+                            porOperacao[CodigoOperacao.JIT]--;
+                        }
+                        pc = jit.regiao(pc).executar(memoria, memoriaInteira, this);
+                        break;
+                    default:
+                        saida.linha("ERRO: Instrução desconhecida: " + operacao);
+                        return;
+                }
+            }
+        } catch (ArithmeticException e) {
+            // numa SOMI_VV ou SOMI_VC, a SOMI que estourou está duas instruções adiante
+            int operacao = operacoes[pc];
+            boolean fundida = operacao == CodigoOperacao.SOMI_VV || operacao == CodigoOperacao.SOMI_VC;
+            throw estouroInteiro(fundida ? pc + 2 : pc);
+        } finally {
+            if (perfil != null) {
+                perfil.terminar();
             }
+            this.pc = pc;
+            this.topo = topo;
+            this.maxPilha = Math.max(maxPilha, topo);
+            this.instrucoesExecutadas += executadas;
+            this.chamadas += chamadas;
         }
     }
-}
\ No newline at end of file
+}
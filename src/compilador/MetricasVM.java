@@ -0,0 +1,225 @@
+package compilador;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Contadores somados de todas as execuções das máquinas que usam esta instância
+// (MaquinaVirtual.setMetricas). Durante a execução a máquina conta em variáveis
+// próprias e só soma aqui quando termina, então o laço do interpretador não
+// paga nenhuma operação atômica; sem métricas, o custo é um teste de null por
+// instrução. Só as execuções ativas mudam enquanto um programa roda.
+//
+// A contagem por operação é feita pelo interpretador: as instruções de regiões
+// do JIT entram em "JIT" e as do motor de nós só no total.
+public class MetricasVM implements MetricasVMMXBean {
+
+    private final LongAdder instrucoes = new LongAdder();
+    private final LongAdder execucoes = new LongAdder();
+    private final AtomicLong ativas = new AtomicLong();
+    private final LongAdder chamadas = new LongAdder();
+    private final LongAdder nanosExecucao = new LongAdder();
+    private final LongAdder nanosLeitura = new LongAdder();
+    private final AtomicInteger maxPilha = new AtomicInteger();
+    private final AtomicInteger maxRetorno = new AtomicInteger();
+    private final AtomicLongArray porOperacao = new AtomicLongArray(CodigoOperacao.quantidadeTotal());
+
+    void iniciar() {
+        ativas.incrementAndGet();
+    }
+
+    void terminar(long instrucoes, long chamadas, int maxPilha, int maxRetorno, long nanos, long nanosLeitura,
+            long[] porOperacao) {
+        this.instrucoes.add(instrucoes);
+        this.chamadas.add(chamadas);
+        this.nanosExecucao.add(nanos);
+        this.nanosLeitura.add(nanosLeitura);
+        this.maxPilha.accumulateAndGet(maxPilha, Math::max);
+        this.maxRetorno.accumulateAndGet(maxRetorno, Math::max);
+        for (int op = 0; op < porOperacao.length; op++) {
+            if (porOperacao[op] != 0) {
+                this.porOperacao.addAndGet(op, porOperacao[op]);
+            }
+        }
+        execucoes.increment();
+        ativas.decrementAndGet();
+    }
+
+    // publica no servidor de MBeans da plataforma como compilador:type=MetricasVM,name=<nome>
+    public ObjectName registrar(String nome) {
+        try {
+            ObjectName objeto = new ObjectName("compilador:type=MetricasVM,name=" + ObjectName.quote(nome));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objeto);
+            return objeto;
+        } catch (JMException e) {
+            throw new RuntimeException("Não foi possível registrar as métricas no JMX: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public long getInstrucoes() {
+        return instrucoes.sum();
+    }
+
+    @Override
+    public long getExecucoes() {
+        return execucoes.sum();
+    }
+
+    @Override
+    public long getExecucoesAtivas() {
+        return ativas.get();
+    }
+
+    @Override
+    public long getChamadas() {
+        return chamadas.sum();
+    }
+
+    @Override
+    public int getMaxPilha() {
+        return maxPilha.get();
+    }
+
+    @Override
+    public int getMaxRetorno() {
+        return maxRetorno.get();
+    }
+
+    // pelo tempo de execução sem a espera no LEIT
+    @Override
+    public double getInstrucoesPorSegundo() {
+        long nanos = nanosExecucao.sum() - nanosLeitura.sum();
+        return nanos <= 0 ? 0 : instrucoes.sum() * 1e9 / nanos;
+    }
+
+    @Override
+    public double getSegundosExecucao() {
+        return nanosExecucao.sum() / 1e9;
+    }
+
+    @Override
+    public double getSegundosLeitura() {
+        return nanosLeitura.sum() / 1e9;
+    }
+
+    // só as operações que apareceram, na ordem dos códigos
+    @Override
+    public Map<String, Long> getInstrucoesPorOperacao() {
+        Map<String, Long> mapa = new LinkedHashMap<>();
+        for (int op = 0; op < porOperacao.length(); op++) {
+            long quantidade = porOperacao.get(op);
+            if (quantidade != 0) {
+                mapa.put(CodigoOperacao.nome(op), quantidade);
+            }
+        }
+        return mapa;
+    }
+
+    @Override
+    public void zerar() {
+        instrucoes.reset();
+        execucoes.reset();
+        chamadas.reset();
+        nanosExecucao.reset();
+        nanosLeitura.reset();
+        maxPilha.set(0);
+        maxRetorno.set(0);
+        for (int op = 0; op < porOperacao.length(); op++) {
+            porOperacao.set(op, 0);
+        }
+    }
+
+    public Instantaneo instantaneo() {
+        return new Instantaneo(this);
+    }
+
+    // cópia dos valores num momento; os contadores continuam mudando depois
+    public static class Instantaneo {
+        private final long instrucoes;
+        private final long execucoes;
+        private final long execucoesAtivas;
+        private final long chamadas;
+        private final int maxPilha;
+        private final int maxRetorno;
+        private final double instrucoesPorSegundo;
+        private final double segundosExecucao;
+        private final double segundosLeitura;
+        private final Map<String, Long> instrucoesPorOperacao;
+
+        Instantaneo(MetricasVM metricas) {
+            this.instrucoes = metricas.getInstrucoes();
+            this.execucoes = metricas.getExecucoes();
+            this.execucoesAtivas = metricas.getExecucoesAtivas();
+            this.chamadas = metricas.getChamadas();
+            this.maxPilha = metricas.getMaxPilha();
+            this.maxRetorno = metricas.getMaxRetorno();
+            this.instrucoesPorSegundo = metricas.getInstrucoesPorSegundo();
+            this.segundosExecucao = metricas.getSegundosExecucao();
+            this.segundosLeitura = metricas.getSegundosLeitura();
+            this.instrucoesPorOperacao = metricas.getInstrucoesPorOperacao();
+        }
+
+        public long getInstrucoes() {
+            return instrucoes;
+        }
+
+        public long getExecucoes() {
+            return execucoes;
+        }
+
+        public long getExecucoesAtivas() {
+            return execucoesAtivas;
+        }
+
+        public long getChamadas() {
+            return chamadas;
+        }
+
+        public int getMaxPilha() {
+            return maxPilha;
+        }
+
+        public int getMaxRetorno() {
+            return maxRetorno;
+        }
+
+        public double getInstrucoesPorSegundo() {
+            return instrucoesPorSegundo;
+        }
+
+        public double getSegundosExecucao() {
+            return segundosExecucao;
+        }
+
+        public double getSegundosLeitura() {
+            return segundosLeitura;
+        }
+
+        public Map<String, Long> getInstrucoesPorOperacao() {
+            return instrucoesPorOperacao;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("=== MÉTRICAS DA VM ===\n");
+            sb.append(String.format("Execuções: %d (%d ativas)%n", execucoes, execucoesAtivas));
+            sb.append(String.format("Instruções: %d (%.0f por segundo)%n", instrucoes, instrucoesPorSegundo));
+            sb.append(String.format("Chamadas (CHPR): %d%n", chamadas));
+            sb.append(String.format("Pico da pilha de operandos: %d | pico da pilha de retorno: %d%n", maxPilha,
+                    maxRetorno));
+            sb.append(String.format("Tempo: %.3f s, %.3f s esperando o LEIT%n", segundosExecucao, segundosLeitura));
+            for (Map.Entry<String, Long> e : instrucoesPorOperacao.entrySet()) {
+                sb.append(String.format("  %-11s %d%n", e.getKey(), e.getValue()));
+            }
+            return sb.toString();
+        }
+    }
+}
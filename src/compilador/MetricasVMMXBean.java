@@ -0,0 +1,29 @@
+package compilador;
+
+import java.util.Map;
+
+// Atributos das métricas da VM publicados no JMX (jconsole, VisualVM, jcmd).
+public interface MetricasVMMXBean {
+
+    long getInstrucoes();
+
+    long getExecucoes();
+
+    long getExecucoesAtivas();
+
+    long getChamadas();
+
+    int getMaxPilha();
+
+    int getMaxRetorno();
+
+    double getInstrucoesPorSegundo();
+
+    double getSegundosExecucao();
+
+    double getSegundosLeitura();
+
+    Map<String, Long> getInstrucoesPorOperacao();
+
+    void zerar();
+}
@@ -0,0 +1,1202 @@
+package compilador;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Motor de execução alternativo ao laço com switch. Antes de executar, cada bloco
+// básico vira uma cadeia de nós já ligados: os valores que a pilha de operandos
+// levaria de uma instrução a outra viram árvores de expressões, cada comando guarda
+// seus operandos resolvidos e o nó seguinte, e o último nó do bloco aponta direto
+// para o primeiro nó do bloco de destino. A execução é só seguir os nós.
+//
+// Os nós não guardam estado de execução (ele fica no Quadro), então a mesma cadeia
+// pode ser executada várias vezes. Expressões inteiras são ExpressaoInteira e
+// calculam em long, sobre a faixa dos inteiros da memória e da pilha.
+final class MotorNos {
+
+    private final No entrada;
+    private final int quantidadeTemporarios;
+
+    private MotorNos(No entrada, int quantidadeTemporarios) {
+        this.entrada = entrada;
+        this.quantidadeTemporarios = quantidadeTemporarios;
+    }
+
+    Quadro novoQuadro(double[] memoria, long[] memoriaInteira, MaquinaVirtual maquina) {
+        return new Quadro(memoria, memoriaInteira, maquina, quantidadeTemporarios);
+    }
+
+    void executar(Quadro quadro) {
+        No no = entrada;
+        while (no != null) {
+            no = no.executar(quadro);
+        }
+    }
+
+    // estado de uma execução
+    static final class Quadro {
+        final double[] memoria;
+        final long[] memoriaInteira;
+        final MaquinaVirtual maquina;
+        final PilhaAtivacao ativacoes;
+        final double[] temporarios;
+        final long[] temporariosInteiros;
+        double[] pilha = new double[64];
+        long[] pilhaInteira = new long[64];
+        int topo;
+        int maxPilha;
+        int[] retorno = new int[16];
+        int topoRetorno;
+        int maxRetorno;
+        long executadas;
+        long chamadas;
+        boolean finalizado;
+
+        Quadro(double[] memoria, long[] memoriaInteira, MaquinaVirtual maquina, int quantidadeTemporarios) {
+            this.memoria = memoria;
+            this.memoriaInteira = memoriaInteira;
+            this.maquina = maquina;
+            this.ativacoes = maquina.getAtivacoes();
+            this.temporarios = new double[quantidadeTemporarios];
+            this.temporariosInteiros = new long[quantidadeTemporarios];
+        }
+
+        // a memória é zerada pela própria MaquinaVirtual
+        void reiniciar() {
+            topo = 0;
+            maxPilha = 0;
+            topoRetorno = 0;
+            maxRetorno = 0;
+            executadas = 0;
+            chamadas = 0;
+            finalizado = false;
+        }
+
+        void empilhar(double valor) {
+            if (topo == pilha.length) {
+                crescerPilha();
+            }
+            pilha[topo++] = valor;
+            if (topo > maxPilha) {
+                maxPilha = topo;
+            }
+        }
+
+        void empilharInteiro(long valor) {
+            if (topo == pilha.length) {
+                crescerPilha();
+            }
+            pilhaInteira[topo++] = valor;
+            if (topo > maxPilha) {
+                maxPilha = topo;
+            }
+        }
+
+        private void crescerPilha() {
+            pilha = Arrays.copyOf(pilha, pilha.length * 2);
+            pilhaInteira = Arrays.copyOf(pilhaInteira, pilha.length);
+        }
+
+        double desempilhar() {
+            return pilha[--topo];
+        }
+
+        long desempilharInteiro() {
+            return pilhaInteira[--topo];
+        }
+
+        void empilharRetorno(int endereco) {
+            if (topoRetorno == retorno.length) {
+                retorno = Arrays.copyOf(retorno, retorno.length * 2);
+            }
+            retorno[topoRetorno++] = endereco;
+            if (topoRetorno > maxRetorno) {
+                maxRetorno = topoRetorno;
+            }
+        }
+
+        int desempilharRetorno() {
+            return retorno[--topoRetorno];
+        }
+    }
+
+    // ---------------------------------------------------------------- construção
+
+    static MotorNos construir(ProgramaDecodificado programa) {
+        int n = programa.tamanho();
+        boolean[] lider = new boolean[n + 1];
+        lider[0] = true;
+        lider[programa.getPontoEntrada()] = true;
+        for (int i = 0; i < n; i++) {
+            int op = programa.getOperacao(i);
+            if (CodigoOperacao.ehDesvio(op)) {
+                lider[programa.getArgumento(i)] = true;
+            }
+            if (terminaBloco(op)) {
+                lider[i + 1] = true;
+            }
+        }
+
+        // entradas[i] é o primeiro nó do bloco que começa em i; entradas[n] fica null (fim)
+        No[] entradas = new No[n + 1];
+        List<Terminador> terminadores = new ArrayList<>();
+        Construtor construtor = new Construtor(programa);
+        int inicio = 0;
+        while (inicio < n) {
+            int fim = inicio + 1;
+            while (fim < n && !lider[fim]) {
+                fim++;
+            }
+            Terminador terminador = construtor.bloco(inicio, fim, entradas);
+            entradas[inicio] = construtor.primeiro;
+            terminadores.add(terminador);
+            inicio = fim;
+        }
+        for (Terminador terminador : terminadores) {
+            terminador.ligar(entradas);
+        }
+        return new MotorNos(entradas[programa.getPontoEntrada()], construtor.maxTemporarios);
+    }
+
+    private static boolean terminaBloco(int op) {
+        return op == CodigoOperacao.DSVF || op == CodigoOperacao.DSVI || op == CodigoOperacao.CHPR
+                || op == CodigoOperacao.RTPR || op == CodigoOperacao.PARA;
+    }
+
+    // Simula a pilha de operandos dentro de um bloco, montando expressões em vez de
+    // empilhar valores. Uma expressão só é avaliada quando consumida, então antes de
+    // gravar num endereço as expressões pendentes que o leem são guardadas em
+    // temporários. O que sobra na pilha no fim do bloco vai para a pilha real. Cada
+    // operação tira da pilha valores da sua faixa (real ou inteira); um programa que
+    // misture as faixas num mesmo valor não é aceito.
+    private static final class Construtor {
+        private final ProgramaDecodificado programa;
+        private final List<Expressao> pilha = new ArrayList<>();
+        private final List<Comando> comandos = new ArrayList<>();
+        private int temporarios;
+        private int instrucao;
+        int maxTemporarios;
+        No primeiro;
+
+        Construtor(ProgramaDecodificado programa) {
+            this.programa = programa;
+        }
+
+        Terminador bloco(int inicio, int fim, No[] entradas) {
+            pilha.clear();
+            comandos.clear();
+            temporarios = 0;
+            Terminador terminador = null;
+
+            for (int i = inicio; i < fim; i++) {
+                int op = programa.getOperacao(i);
+                int arg = programa.getArgumento(i);
+                instrucao = i;
+                switch (op) {
+                    case CodigoOperacao.INPP:
+                    case CodigoOperacao.ALME:
+                    case CodigoOperacao.DESM:
+                        break;
+                    case CodigoOperacao.CRCT:
+                        pilha.add(new Constante(programa.getConstante(arg)));
+                        break;
+                    case CodigoOperacao.CRCI:
+                        pilha.add(new ConstanteInteira(programa.getConstanteInteira(arg)));
+                        break;
+                    case CodigoOperacao.CRVI:
+                    case CodigoOperacao.PARI:
+                        pilha.add(new VariavelInteira(arg));
+                        break;
+                    case CodigoOperacao.ARMI:
+                        if (pilha.isEmpty()) {
+                            comandos.add(new ArmazenaDesempilhadoInteiro(arg));
+                        } else {
+                            ExpressaoInteira valor = desempilharInteiro();
+                            preservar(arg);
+                            comandos.add(new ArmazenaInteiro(arg, valor));
+                        }
+                        break;
+                    case CodigoOperacao.ARCI: {
+                        ExpressaoInteira valor = desempilharInteiro();
+                        preservar(arg);
+                        comandos.add(new ArmazenaInteiro(arg, valor));
+                        pilha.add(new VariavelInteira(arg));
+                        break;
+                    }
+                    case CodigoOperacao.SOMI:
+                    case CodigoOperacao.SUBI:
+                    case CodigoOperacao.MULI:
+                    case CodigoOperacao.CIIG:
+                    case CodigoOperacao.CIDG:
+                    case CodigoOperacao.CIAI:
+                    case CodigoOperacao.CIMI:
+                    case CodigoOperacao.CIMA:
+                    case CodigoOperacao.CIME: {
+                        ExpressaoInteira direita = desempilharInteiro();
+                        ExpressaoInteira esquerda = desempilharInteiro();
+                        pilha.add(binariaInteira(op, esquerda, direita, i));
+                        break;
+                    }
+                    case CodigoOperacao.INVI:
+                        pilha.add(new NegacaoInteira(desempilharInteiro(), i));
+                        break;
+                    case CodigoOperacao.REAL:
+                        pilha.add(new Conversao(desempilharInteiro()));
+                        break;
+                    case CodigoOperacao.IMPI:
+                        comandos.add(new ImprimeInteiro(desempilharInteiro()));
+                        break;
+                    case CodigoOperacao.CRVL:
+                    case CodigoOperacao.PARAM:
+                        pilha.add(new Variavel(arg));
+                        break;
+                    case CodigoOperacao.ARMZ:
+                        if (pilha.isEmpty()) {
+                            comandos.add(new ArmazenaDesempilhado(arg));
+                        } else {
+                            Expressao valor = desempilhar();
+                            preservar(arg);
+                            comandos.add(new Armazena(arg, valor));
+                        }
+                        break;
+                    case CodigoOperacao.ARMC: {
+                        Expressao valor = desempilhar();
+                        preservar(arg);
+                        comandos.add(new Armazena(arg, valor));
+                        pilha.add(new Variavel(arg));
+                        break;
+                    }
+                    case CodigoOperacao.SOMA:
+                    case CodigoOperacao.SUBT:
+                    case CodigoOperacao.MULT:
+                    case CodigoOperacao.DIVI:
+                    case CodigoOperacao.CMIG:
+                    case CodigoOperacao.CMDG:
+                    case CodigoOperacao.CMAI:
+                    case CodigoOperacao.CPMI:
+                    case CodigoOperacao.CMMA:
+                    case CodigoOperacao.CMME: {
+                        Expressao direita = desempilhar();
+                        Expressao esquerda = desempilhar();
+                        pilha.add(binaria(op, esquerda, direita));
+                        break;
+                    }
+                    case CodigoOperacao.INVE:
+                        pilha.add(new Negacao(desempilhar()));
+                        break;
+                    case CodigoOperacao.TRUN:
+                        pilha.add(new Truncamento(desempilhar()));
+                        break;
+                    case CodigoOperacao.LEIT: {
+                        int t = novoTemporario();
+                        comandos.add(new Le(t));
+                        pilha.add(new Temporario(t));
+                        break;
+                    }
+                    case CodigoOperacao.IMPR:
+                        comandos.add(new Imprime(desempilhar()));
+                        break;
+                    case CodigoOperacao.PUSHER:
+                        comandos.add(new EmpilhaRetorno(arg));
+                        break;
+                    case CodigoOperacao.DSVI:
+                        terminador = new Salto(arg);
+                        break;
+                    case CodigoOperacao.CHPR:
+                        terminador = new Chamada(arg);
+                        break;
+                    case CodigoOperacao.DSVF: {
+                        Expressao condicao = desempilhar();
+                        terminador = new Condicional(condicao, i + 1, arg);
+                        break;
+                    }
+                    case CodigoOperacao.RTPR:
+                        terminador = new Retorno(entradas);
+                        break;
+                    case CodigoOperacao.PARA:
+                        terminador = new Fim();
+                        break;
+                    default:
+                        throw new RuntimeException("Instrução desconhecida para o motor de nós: " + op);
+                }
+            }
+            if (terminador == null) {
+                terminador = new Salto(fim);
+            }
+            terminador.instrucoes = fim - inicio;
+
+            // o que sobrou na pilha (parâmetros de uma chamada, por exemplo) vai para a pilha real
+            for (Expressao valor : pilha) {
+                comandos.add(valor.inteira() ? new EmpilhaInteiro((ExpressaoInteira) valor) : new Empilha(valor));
+            }
+
+            No seguinte = terminador;
+            for (int i = comandos.size() - 1; i >= 0; i--) {
+                comandos.get(i).proximo = seguinte;
+                seguinte = comandos.get(i);
+            }
+            primeiro = seguinte;
+            return terminador;
+        }
+
+        // o valor real do topo; se a pilha simulada estiver vazia, ele veio de outro
+        // bloco e é tirado da pilha real neste ponto
+        private Expressao desempilhar() {
+            if (!pilha.isEmpty()) {
+                Expressao valor = pilha.remove(pilha.size() - 1);
+                if (valor.inteira()) {
+                    throw faixaErrada();
+                }
+                return valor;
+            }
+            int t = novoTemporario();
+            comandos.add(new Desempilha(t));
+            return new Temporario(t);
+        }
+
+        private ExpressaoInteira desempilharInteiro() {
+            if (!pilha.isEmpty()) {
+                Expressao valor = pilha.remove(pilha.size() - 1);
+                if (!valor.inteira()) {
+                    throw faixaErrada();
+                }
+                return (ExpressaoInteira) valor;
+            }
+            int t = novoTemporario();
+            comandos.add(new DesempilhaInteiro(t));
+            return new TemporarioInteiro(t);
+        }
+
+        private RuntimeException faixaErrada() {
+            return new RuntimeException("Valor real e inteiro misturados na pilha, na instrução " + instrucao
+                    + ", para o motor de nós");
+        }
+
+        private void preservar(int endereco) {
+            for (int i = 0; i < pilha.size(); i++) {
+                Expressao pendente = pilha.get(i);
+                if (pendente.le(endereco)) {
+                    int t = novoTemporario();
+                    if (pendente.inteira()) {
+                        comandos.add(new ArmazenaTemporarioInteiro(t, (ExpressaoInteira) pendente));
+                        pilha.set(i, new TemporarioInteiro(t));
+                    } else {
+                        comandos.add(new ArmazenaTemporario(t, pendente));
+                        pilha.set(i, new Temporario(t));
+                    }
+                }
+            }
+        }
+
+        private int novoTemporario() {
+            int t = temporarios++;
+            maxTemporarios = Math.max(maxTemporarios, temporarios);
+            return t;
+        }
+
+        private static Expressao binaria(int op, Expressao esquerda, Expressao direita) {
+            switch (op) {
+                case CodigoOperacao.SOMA:
+                    return new Soma(esquerda, direita);
+                case CodigoOperacao.SUBT:
+                    return new Subtracao(esquerda, direita);
+                case CodigoOperacao.MULT:
+                    return new Multiplicacao(esquerda, direita);
+                case CodigoOperacao.DIVI:
+                    return new Divisao(esquerda, direita);
+                case CodigoOperacao.CMIG:
+                    return new Igual(esquerda, direita);
+                case CodigoOperacao.CMDG:
+                    return new Diferente(esquerda, direita);
+                case CodigoOperacao.CMAI:
+                    return new MaiorIgual(esquerda, direita);
+                case CodigoOperacao.CPMI:
+                    return new MenorIgual(esquerda, direita);
+                case CodigoOperacao.CMMA:
+                    return new Maior(esquerda, direita);
+                default:
+                    return new Menor(esquerda, direita);
+            }
+        }
+
+        private static Expressao binariaInteira(int op, ExpressaoInteira esquerda, ExpressaoInteira direita,
+                int instrucao) {
+            switch (op) {
+                case CodigoOperacao.SOMI:
+                    return new SomaInteira(esquerda, direita, instrucao);
+                case CodigoOperacao.SUBI:
+                    return new SubtracaoInteira(esquerda, direita, instrucao);
+                case CodigoOperacao.MULI:
+                    return new MultiplicacaoInteira(esquerda, direita, instrucao);
+                case CodigoOperacao.CIIG:
+                    return new IgualInteiro(esquerda, direita);
+                case CodigoOperacao.CIDG:
+                    return new DiferenteInteiro(esquerda, direita);
+                case CodigoOperacao.CIAI:
+                    return new MaiorIgualInteiro(esquerda, direita);
+                case CodigoOperacao.CIMI:
+                    return new MenorIgualInteiro(esquerda, direita);
+                case CodigoOperacao.CIMA:
+                    return new MaiorInteiro(esquerda, direita);
+                default:
+                    return new MenorInteiro(esquerda, direita);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- nós
+
+    abstract static class No {
+        // executa e retorna o próximo nó, ou null no fim do programa
+        abstract No executar(Quadro q);
+    }
+
+    private abstract static class Comando extends No {
+        No proximo;
+    }
+
+    private static final class Armazena extends Comando {
+        private final int endereco;
+        private final Expressao valor;
+
+        Armazena(int endereco, Expressao valor) {
+            this.endereco = endereco;
+            this.valor = valor;
+        }
+
+        No executar(Quadro q) {
+            q.memoria[endereco] = valor.avaliar(q);
+            return proximo;
+        }
+    }
+
+    private static final class ArmazenaDesempilhado extends Comando {
+        private final int endereco;
+
+        ArmazenaDesempilhado(int endereco) {
+            this.endereco = endereco;
+        }
+
+        No executar(Quadro q) {
+            q.memoria[endereco] = q.desempilhar();
+            return proximo;
+        }
+    }
+
+    private static final class ArmazenaInteiro extends Comando {
+        private final int endereco;
+        private final ExpressaoInteira valor;
+
+        ArmazenaInteiro(int endereco, ExpressaoInteira valor) {
+            this.endereco = endereco;
+            this.valor = valor;
+        }
+
+        No executar(Quadro q) {
+            q.memoriaInteira[endereco] = valor.avaliarInteiro(q);
+            return proximo;
+        }
+    }
+
+    private static final class ArmazenaDesempilhadoInteiro extends Comando {
+        private final int endereco;
+
+        ArmazenaDesempilhadoInteiro(int endereco) {
+            this.endereco = endereco;
+        }
+
+        No executar(Quadro q) {
+            q.memoriaInteira[endereco] = q.desempilharInteiro();
+            return proximo;
+        }
+    }
+
+    private static final class ArmazenaTemporario extends Comando {
+        private final int indice;
+        private final Expressao valor;
+
+        ArmazenaTemporario(int indice, Expressao valor) {
+            this.indice = indice;
+            this.valor = valor;
+        }
+
+        No executar(Quadro q) {
+            q.temporarios[indice] = valor.avaliar(q);
+            return proximo;
+        }
+    }
+
+    private static final class ArmazenaTemporarioInteiro extends Comando {
+        private final int indice;
+        private final ExpressaoInteira valor;
+
+        ArmazenaTemporarioInteiro(int indice, ExpressaoInteira valor) {
+            this.indice = indice;
+            this.valor = valor;
+        }
+
+        No executar(Quadro q) {
+            q.temporariosInteiros[indice] = valor.avaliarInteiro(q);
+            return proximo;
+        }
+    }
+
+    private static final class Desempilha extends Comando {
+        private final int indice;
+
+        Desempilha(int indice) {
+            this.indice = indice;
+        }
+
+        No executar(Quadro q) {
+            q.temporarios[indice] = q.desempilhar();
+            return proximo;
+        }
+    }
+
+    private static final class DesempilhaInteiro extends Comando {
+        private final int indice;
+
+        DesempilhaInteiro(int indice) {
+            this.indice = indice;
+        }
+
+        No executar(Quadro q) {
+            q.temporariosInteiros[indice] = q.desempilharInteiro();
+            return proximo;
+        }
+    }
+
+    private static final class Empilha extends Comando {
+        private final Expressao valor;
+
+        Empilha(Expressao valor) {
+            this.valor = valor;
+        }
+
+        No executar(Quadro q) {
+            q.empilhar(valor.avaliar(q));
+            return proximo;
+        }
+    }
+
+    private static final class EmpilhaInteiro extends Comando {
+        private final ExpressaoInteira valor;
+
+        EmpilhaInteiro(ExpressaoInteira valor) {
+            this.valor = valor;
+        }
+
+        No executar(Quadro q) {
+            q.empilharInteiro(valor.avaliarInteiro(q));
+            return proximo;
+        }
+    }
+
+    private static final class Le extends Comando {
+        private final int indice;
+
+        Le(int indice) {
+            this.indice = indice;
+        }
+
+        No executar(Quadro q) {
+            q.temporarios[indice] = q.maquina.ler();
+            return proximo;
+        }
+    }
+
+    private static final class Imprime extends Comando {
+        private final Expressao valor;
+
+        Imprime(Expressao valor) {
+            this.valor = valor;
+        }
+
+        No executar(Quadro q) {
+            q.maquina.imprimir(valor.avaliar(q));
+            return proximo;
+        }
+    }
+
+    private static final class ImprimeInteiro extends Comando {
+        private final ExpressaoInteira valor;
+
+        ImprimeInteiro(ExpressaoInteira valor) {
+            this.valor = valor;
+        }
+
+        No executar(Quadro q) {
+            q.maquina.imprimir(valor.avaliarInteiro(q));
+            return proximo;
+        }
+    }
+
+    private static final class EmpilhaRetorno extends Comando {
+        private final int endereco;
+
+        EmpilhaRetorno(int endereco) {
+            this.endereco = endereco;
+        }
+
+        No executar(Quadro q) {
+            q.empilharRetorno(endereco);
+            return proximo;
+        }
+    }
+
+    // último nó de um bloco; conta as instruções do bloco de uma vez
+    private abstract static class Terminador extends No {
+        int instrucoes;
+
+        void ligar(No[] entradas) {
+        }
+    }
+
+    private static final class Salto extends Terminador {
+        private final int alvo;
+        private No destino;
+
+        Salto(int alvo) {
+            this.alvo = alvo;
+        }
+
+        void ligar(No[] entradas) {
+            destino = entradas[alvo];
+        }
+
+        No executar(Quadro q) {
+            q.executadas += instrucoes;
+            return destino;
+        }
+    }
+
+    // CHPR: um Salto que conta a chamada e abre o quadro do procedimento
+    private static final class Chamada extends Terminador {
+        private final int alvo;
+        private No destino;
+
+        Chamada(int alvo) {
+            this.alvo = alvo;
+        }
+
+        void ligar(No[] entradas) {
+            destino = entradas[alvo];
+        }
+
+        No executar(Quadro q) {
+            q.executadas += instrucoes;
+            q.chamadas++;
+            q.ativacoes.entrar(alvo);
+            return destino;
+        }
+    }
+
+    // DSVF: segue para a próxima instrução se a condição for verdadeira
+    private static final class Condicional extends Terminador {
+        private final Expressao condicao;
+        private final int alvoVerdadeiro;
+        private final int alvoFalso;
+        private No seVerdadeiro;
+        private No seFalso;
+
+        Condicional(Expressao condicao, int alvoVerdadeiro, int alvoFalso) {
+            this.condicao = condicao;
+            this.alvoVerdadeiro = alvoVerdadeiro;
+            this.alvoFalso = alvoFalso;
+        }
+
+        void ligar(No[] entradas) {
+            seVerdadeiro = entradas[alvoVerdadeiro];
+            seFalso = entradas[alvoFalso];
+        }
+
+        No executar(Quadro q) {
+            q.executadas += instrucoes;
+            return condicao.testar(q) ? seVerdadeiro : seFalso;
+        }
+    }
+
+    private static final class Retorno extends Terminador {
+        private final No[] entradas;
+
+        Retorno(No[] entradas) {
+            this.entradas = entradas;
+        }
+
+        No executar(Quadro q) {
+            q.executadas += instrucoes;
+            q.ativacoes.sair();
+            return entradas[q.desempilharRetorno()];
+        }
+    }
+
+    private static final class Fim extends Terminador {
+        No executar(Quadro q) {
+            q.executadas += instrucoes;
+            q.finalizado = true;
+            return null;
+        }
+    }
+
+    // ---------------------------------------------------------------- expressões
+
+    abstract static class Expressao {
+        abstract double avaliar(Quadro q);
+
+        // valor como condição do DSVF: só 0 é falso
+        boolean testar(Quadro q) {
+            return avaliar(q) != 0.0;
+        }
+
+        // se a expressão lê o endereço da memória
+        boolean le(int endereco) {
+            return false;
+        }
+
+        boolean inteira() {
+            return false;
+        }
+    }
+
+    // expressões da faixa dos inteiros; o Construtor só as entrega a quem consome
+    // inteiros, então avaliar() nunca é chamado
+    private abstract static class ExpressaoInteira extends Expressao {
+        abstract long avaliarInteiro(Quadro q);
+
+        final double avaliar(Quadro q) {
+            throw new IllegalStateException("Expressão inteira avaliada como real");
+        }
+
+        final boolean inteira() {
+            return true;
+        }
+    }
+
+    private static final class Constante extends Expressao {
+        private final double valor;
+
+        Constante(double valor) {
+            this.valor = valor;
+        }
+
+        double avaliar(Quadro q) {
+            return valor;
+        }
+    }
+
+    private static final class Variavel extends Expressao {
+        private final int endereco;
+
+        Variavel(int endereco) {
+            this.endereco = endereco;
+        }
+
+        double avaliar(Quadro q) {
+            return q.memoria[endereco];
+        }
+
+        boolean le(int endereco) {
+            return this.endereco == endereco;
+        }
+    }
+
+    private static final class Temporario extends Expressao {
+        private final int indice;
+
+        Temporario(int indice) {
+            this.indice = indice;
+        }
+
+        double avaliar(Quadro q) {
+            return q.temporarios[indice];
+        }
+    }
+
+    private static final class Negacao extends Expressao {
+        private final Expressao operando;
+
+        Negacao(Expressao operando) {
+            this.operando = operando;
+        }
+
+        double avaliar(Quadro q) {
+            return -operando.avaliar(q);
+        }
+
+        boolean le(int endereco) {
+            return operando.le(endereco);
+        }
+    }
+
+    // TRUN
+    private static final class Truncamento extends ExpressaoInteira {
+        private final Expressao operando;
+
+        Truncamento(Expressao operando) {
+            this.operando = operando;
+        }
+
+        long avaliarInteiro(Quadro q) {
+            return MaquinaVirtual.truncar(operando.avaliar(q));
+        }
+
+        boolean le(int endereco) {
+            return operando.le(endereco);
+        }
+    }
+
+    // REAL
+    private static final class Conversao extends Expressao {
+        private final ExpressaoInteira operando;
+
+        Conversao(ExpressaoInteira operando) {
+            this.operando = operando;
+        }
+
+        double avaliar(Quadro q) {
+            return operando.avaliarInteiro(q);
+        }
+
+        boolean le(int endereco) {
+            return operando.le(endereco);
+        }
+    }
+
+    private abstract static class Binaria extends Expressao {
+        final Expressao esquerda;
+        final Expressao direita;
+
+        Binaria(Expressao esquerda, Expressao direita) {
+            this.esquerda = esquerda;
+            this.direita = direita;
+        }
+
+        boolean le(int endereco) {
+            return esquerda.le(endereco) || direita.le(endereco);
+        }
+    }
+
+    private static final class Soma extends Binaria {
+        Soma(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        double avaliar(Quadro q) {
+            return esquerda.avaliar(q) + direita.avaliar(q);
+        }
+    }
+
+    private static final class Subtracao extends Binaria {
+        Subtracao(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        double avaliar(Quadro q) {
+            return esquerda.avaliar(q) - direita.avaliar(q);
+        }
+    }
+
+    private static final class Multiplicacao extends Binaria {
+        Multiplicacao(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        double avaliar(Quadro q) {
+            return esquerda.avaliar(q) * direita.avaliar(q);
+        }
+    }
+
+    private static final class Divisao extends Binaria {
+        Divisao(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        double avaliar(Quadro q) {
+            return esquerda.avaliar(q) / direita.avaliar(q);
+        }
+    }
+
+    // comparações valem 1 ou 0 como valor, mas o DSVF usa testar direto
+    private abstract static class Comparacao extends Binaria {
+        Comparacao(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        double avaliar(Quadro q) {
+            return testar(q) ? 1.0 : 0.0;
+        }
+
+        abstract boolean testar(Quadro q);
+    }
+
+    private static final class Igual extends Comparacao {
+        Igual(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliar(q) == direita.avaliar(q);
+        }
+    }
+
+    private static final class Diferente extends Comparacao {
+        Diferente(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliar(q) != direita.avaliar(q);
+        }
+    }
+
+    private static final class MaiorIgual extends Comparacao {
+        MaiorIgual(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliar(q) >= direita.avaliar(q);
+        }
+    }
+
+    private static final class MenorIgual extends Comparacao {
+        MenorIgual(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliar(q) <= direita.avaliar(q);
+        }
+    }
+
+    private static final class Maior extends Comparacao {
+        Maior(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliar(q) > direita.avaliar(q);
+        }
+    }
+
+    private static final class Menor extends Comparacao {
+        Menor(Expressao esquerda, Expressao direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliar(q) < direita.avaliar(q);
+        }
+    }
+
+    // ---------------------------------------------------------------- expressões inteiras
+
+    private static final class ConstanteInteira extends ExpressaoInteira {
+        private final long valor;
+
+        ConstanteInteira(long valor) {
+            this.valor = valor;
+        }
+
+        long avaliarInteiro(Quadro q) {
+            return valor;
+        }
+    }
+
+    private static final class VariavelInteira extends ExpressaoInteira {
+        private final int endereco;
+
+        VariavelInteira(int endereco) {
+            this.endereco = endereco;
+        }
+
+        long avaliarInteiro(Quadro q) {
+            return q.memoriaInteira[endereco];
+        }
+
+        boolean le(int endereco) {
+            return this.endereco == endereco;
+        }
+    }
+
+    private static final class TemporarioInteiro extends ExpressaoInteira {
+        private final int indice;
+
+        TemporarioInteiro(int indice) {
+            this.indice = indice;
+        }
+
+        long avaliarInteiro(Quadro q) {
+            return q.temporariosInteiros[indice];
+        }
+    }
+
+    private static final class NegacaoInteira extends ExpressaoInteira {
+        private final ExpressaoInteira operando;
+        private final int instrucao;
+
+        NegacaoInteira(ExpressaoInteira operando, int instrucao) {
+            this.operando = operando;
+            this.instrucao = instrucao;
+        }
+
+        long avaliarInteiro(Quadro q) {
+            try {
+                return Math.negateExact(operando.avaliarInteiro(q));
+            } catch (ArithmeticException e) {
+                throw MaquinaVirtual.estouroInteiro(instrucao);
+            }
+        }
+
+        boolean le(int endereco) {
+            return operando.le(endereco);
+        }
+    }
+
+    // SOMI, SUBI e MULI; o estouro é informado com o pc da operação, como no interpretador
+    private abstract static class BinariaInteira extends ExpressaoInteira {
+        final ExpressaoInteira esquerda;
+        final ExpressaoInteira direita;
+        private final int instrucao;
+
+        BinariaInteira(ExpressaoInteira esquerda, ExpressaoInteira direita, int instrucao) {
+            this.esquerda = esquerda;
+            this.direita = direita;
+            this.instrucao = instrucao;
+        }
+
+        // os operandos lançam o próprio erro, então só o Math.*Exact deste nó chega aqui
+        RuntimeException estouro() {
+            return MaquinaVirtual.estouroInteiro(instrucao);
+        }
+
+        boolean le(int endereco) {
+            return esquerda.le(endereco) || direita.le(endereco);
+        }
+    }
+
+    private static final class SomaInteira extends BinariaInteira {
+        SomaInteira(ExpressaoInteira esquerda, ExpressaoInteira direita, int instrucao) {
+            super(esquerda, direita, instrucao);
+        }
+
+        long avaliarInteiro(Quadro q) {
+            try {
+                return Math.addExact(esquerda.avaliarInteiro(q), direita.avaliarInteiro(q));
+            } catch (ArithmeticException e) {
+                throw estouro();
+            }
+        }
+    }
+
+    private static final class SubtracaoInteira extends BinariaInteira {
+        SubtracaoInteira(ExpressaoInteira esquerda, ExpressaoInteira direita, int instrucao) {
+            super(esquerda, direita, instrucao);
+        }
+
+        long avaliarInteiro(Quadro q) {
+            try {
+                return Math.subtractExact(esquerda.avaliarInteiro(q), direita.avaliarInteiro(q));
+            } catch (ArithmeticException e) {
+                throw estouro();
+            }
+        }
+    }
+
+    private static final class MultiplicacaoInteira extends BinariaInteira {
+        MultiplicacaoInteira(ExpressaoInteira esquerda, ExpressaoInteira direita, int instrucao) {
+            super(esquerda, direita, instrucao);
+        }
+
+        long avaliarInteiro(Quadro q) {
+            try {
+                return Math.multiplyExact(esquerda.avaliarInteiro(q), direita.avaliarInteiro(q));
+            } catch (ArithmeticException e) {
+                throw estouro();
+            }
+        }
+    }
+
+    // CIxx: operandos inteiros, resultado real (1 ou 0) como nas outras comparações
+    private abstract static class ComparacaoInteira extends Expressao {
+        final ExpressaoInteira esquerda;
+        final ExpressaoInteira direita;
+
+        ComparacaoInteira(ExpressaoInteira esquerda, ExpressaoInteira direita) {
+            this.esquerda = esquerda;
+            this.direita = direita;
+        }
+
+        double avaliar(Quadro q) {
+            return testar(q) ? 1.0 : 0.0;
+        }
+
+        abstract boolean testar(Quadro q);
+
+        boolean le(int endereco) {
+            return esquerda.le(endereco) || direita.le(endereco);
+        }
+    }
+
+    private static final class IgualInteiro extends ComparacaoInteira {
+        IgualInteiro(ExpressaoInteira esquerda, ExpressaoInteira direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliarInteiro(q) == direita.avaliarInteiro(q);
+        }
+    }
+
+    private static final class DiferenteInteiro extends ComparacaoInteira {
+        DiferenteInteiro(ExpressaoInteira esquerda, ExpressaoInteira direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliarInteiro(q) != direita.avaliarInteiro(q);
+        }
+    }
+
+    private static final class MaiorIgualInteiro extends ComparacaoInteira {
+        MaiorIgualInteiro(ExpressaoInteira esquerda, ExpressaoInteira direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliarInteiro(q) >= direita.avaliarInteiro(q);
+        }
+    }
+
+    private static final class MenorIgualInteiro extends ComparacaoInteira {
+        MenorIgualInteiro(ExpressaoInteira esquerda, ExpressaoInteira direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliarInteiro(q) <= direita.avaliarInteiro(q);
+        }
+    }
+
+    private static final class MaiorInteiro extends ComparacaoInteira {
+        MaiorInteiro(ExpressaoInteira esquerda, ExpressaoInteira direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliarInteiro(q) > direita.avaliarInteiro(q);
+        }
+    }
+
+    private static final class MenorInteiro extends ComparacaoInteira {
+        MenorInteiro(ExpressaoInteira esquerda, ExpressaoInteira direita) {
+            super(esquerda, direita);
+        }
+
+        boolean testar(Quadro q) {
+            return esquerda.avaliarInteiro(q) < direita.avaliarInteiro(q);
+        }
+    }
+}
@@ -0,0 +1,882 @@
+package compilador;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Motor de execução com código de três endereços. Antes de executar, o código de
+// pilha é traduzido, bloco básico por bloco básico, para instruções do tipo
+// "d := a op b" sobre registradores virtuais: cada endereço de memória é um
+// registrador, cada constante também, e os valores intermediários que a pilha
+// levaria de uma instrução a outra viram temporários. O CRVL e o CRCT não geram
+// nada (o operando passa a ser o próprio registrador) e o ARMZ vira o destino da
+// operação que calculou o valor, então "a := b + c" é um único despacho.
+//
+// Os registradores ficam em dois vetores do mesmo tamanho, um para cada faixa da
+// máquina (real e inteira): [0, memória) é a memória, depois as constantes reais,
+// as inteiras e os temporários, que só valem dentro do bloco. Cada operação sabe
+// em qual faixa lê e escreve. O que sobra na pilha no fim do bloco vai para a
+// pilha real, como no MotorNos.
+//
+//   CRVL b, CRVL c, SOMA, ARMZ a            ->  SOMA a, b, c
+//   CRVI i, CRCI 10, CIME, DSVF 20          ->  SE_NAO_MEI i, k0, 20
+final class MotorRegistros {
+
+    // operações do código de registradores; cada instrução é (operação, d, a, b)
+    private static final int MOVE = 0; // d := a
+    private static final int SOMA = 1; // d := a + b
+    private static final int SUBT = 2;
+    private static final int MULT = 3;
+    private static final int DIVI = 4;
+    private static final int NEGA = 5; // d := -a
+    private static final int CMIG = 6; // d := a == b ? 1 : 0
+    private static final int CMDG = 7;
+    private static final int CMAI = 8;
+    private static final int CPMI = 9;
+    private static final int CMMA = 10;
+    private static final int CMME = 11;
+    private static final int MOVI = 12; // como MOVE, na faixa dos inteiros
+    private static final int SOMI = 13; // com a verificação de estouro de Math.addExact
+    private static final int SUBI = 14;
+    private static final int MULI = 15;
+    private static final int NEGI = 16;
+    private static final int TRUN = 17; // d (inteiro) := trunc(a)
+    private static final int REAL = 18; // d := a (inteiro)
+    private static final int CIIG = 19; // d := a == b ? 1 : 0, com a e b inteiros
+    private static final int CIDG = 20;
+    private static final int CIAI = 21;
+    private static final int CIMI = 22;
+    private static final int CIMA = 23;
+    private static final int CIME = 24;
+    private static final int SE_NAO_IG = 25; // se !(a == b) desvia para d
+    private static final int SE_NAO_DG = 26;
+    private static final int SE_NAO_AI = 27;
+    private static final int SE_NAO_MI = 28;
+    private static final int SE_NAO_MA = 29;
+    private static final int SE_NAO_ME = 30;
+    private static final int SE_NAO_IGI = 31; // os mesmos, com a e b inteiros
+    private static final int SE_NAO_DGI = 32;
+    private static final int SE_NAO_AII = 33;
+    private static final int SE_NAO_MII = 34;
+    private static final int SE_NAO_MAI = 35;
+    private static final int SE_NAO_MEI = 36;
+    private static final int SE_FALSO = 37; // se a == 0 desvia para d
+    private static final int SALTO = 38; // desvia para d
+    private static final int LEIT = 39; // d := valor lido
+    private static final int IMPR = 40; // imprime a
+    private static final int IMPI = 41;
+    private static final int EMPILHA = 42; // a vai para a pilha real
+    private static final int EMPILHA_INTEIRO = 43;
+    private static final int DESEMPILHA = 44; // d := topo da pilha real
+    private static final int DESEMPILHA_INTEIRO = 45;
+    private static final int EMPILHA_RETORNO = 46; // d vai para a pilha de retorno
+    private static final int CHAMADA = 47; // abre o quadro do procedimento em b (índice da pilha) e desvia para d
+    private static final int RETORNO = 48;
+    private static final int FIM = 49;
+    private static final int NADA = 50; // só carrega o peso de um bloco que não gerou nada
+
+    private static final String[] NOMES = {
+            "MOVE", "SOMA", "SUBT", "MULT", "DIVI", "NEGA", "CMIG", "CMDG", "CMAI", "CPMI", "CMMA", "CMME",
+            "MOVI", "SOMI", "SUBI", "MULI", "NEGI", "TRUN", "REAL", "CIIG", "CIDG", "CIAI", "CIMI", "CIMA", "CIME",
+            "SE_NAO_IG", "SE_NAO_DG", "SE_NAO_AI", "SE_NAO_MI", "SE_NAO_MA", "SE_NAO_ME",
+            "SE_NAO_IGI", "SE_NAO_DGI", "SE_NAO_AII", "SE_NAO_MII", "SE_NAO_MAI", "SE_NAO_MEI",
+            "SE_FALSO", "SALTO", "LEIT", "IMPR", "IMPI", "EMPILHA", "EMPILHA_INTEIRO", "DESEMPILHA",
+            "DESEMPILHA_INTEIRO", "EMPILHA_RETORNO", "CHAMADA", "RETORNO", "FIM", "NADA"
+    };
+
+    private final int[] codigo; // 4 inteiros por instrução
+    private final int[] pesos; // instruções de pilha que a instrução completa, no fim de cada bloco
+    private final int[] origens; // pc da instrução de pilha que gerou cada uma, para o erro de estouro
+    private final int tamanho;
+    private final int entrada;
+    private final int tamanhoMemoria;
+    private final double[] constantes;
+    private final long[] constantesInteiras;
+    private final int tamanhoRegistros;
+
+    private MotorRegistros(int[] codigo, int[] pesos, int[] origens, int tamanho, int entrada, int tamanhoMemoria,
+            double[] constantes, long[] constantesInteiras, int tamanhoRegistros) {
+        this.codigo = codigo;
+        this.pesos = pesos;
+        this.origens = origens;
+        this.tamanho = tamanho;
+        this.entrada = entrada;
+        this.tamanhoMemoria = tamanhoMemoria;
+        this.constantes = constantes;
+        this.constantesInteiras = constantesInteiras;
+        this.tamanhoRegistros = tamanhoRegistros;
+    }
+
+    // as duas faixas da memória da MaquinaVirtual são alocadas com este tamanho e servem de registradores
+    int tamanhoRegistros() {
+        return tamanhoRegistros;
+    }
+
+    int tamanho() {
+        return tamanho;
+    }
+
+    Estado novoEstado(double[] registradores, long[] registradoresInteiros, MaquinaVirtual maquina) {
+        return new Estado(registradores, registradoresInteiros, maquina);
+    }
+
+    // listagem do código traduzido, uma instrução por linha
+    String listar() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== CÓDIGO DE REGISTRADORES ===\n");
+        for (int i = 0; i < tamanho; i++) {
+            int op = codigo[4 * i];
+            sb.append(String.format("%4d: %-15s %s%n", i, NOMES[op], operandos(op, 4 * i)));
+        }
+        return sb.toString();
+    }
+
+    private String operandos(int op, int base) {
+        String d = registrador(codigo[base + 1]);
+        String a = registrador(codigo[base + 2]);
+        String b = registrador(codigo[base + 3]);
+        switch (op) {
+            case MOVE:
+            case NEGA:
+            case MOVI:
+            case NEGI:
+            case TRUN:
+            case REAL:
+                return d + ", " + a;
+            case SE_NAO_IG:
+            case SE_NAO_DG:
+            case SE_NAO_AI:
+            case SE_NAO_MI:
+            case SE_NAO_MA:
+            case SE_NAO_ME:
+            case SE_NAO_IGI:
+            case SE_NAO_DGI:
+            case SE_NAO_AII:
+            case SE_NAO_MII:
+            case SE_NAO_MAI:
+            case SE_NAO_MEI:
+                return a + ", " + b + " -> " + codigo[base + 1];
+            case SE_FALSO:
+                return a + " -> " + codigo[base + 1];
+            case SALTO:
+            case EMPILHA_RETORNO:
+            case CHAMADA:
+                return "-> " + codigo[base + 1];
+            case LEIT:
+            case DESEMPILHA:
+            case DESEMPILHA_INTEIRO:
+                return d;
+            case IMPR:
+            case IMPI:
+            case EMPILHA:
+            case EMPILHA_INTEIRO:
+                return a;
+            case RETORNO:
+            case FIM:
+            case NADA:
+                return "";
+            default:
+                return d + ", " + a + ", " + b;
+        }
+    }
+
+    // m3 é a memória, k0 a primeira constante (com o valor), t0 o primeiro temporário
+    private String registrador(int r) {
+        int k = r - tamanhoMemoria;
+        if (k < 0) {
+            return "m" + r;
+        }
+        if (k < constantes.length) {
+            return "k" + k + "(" + constantes[k] + ")";
+        }
+        if (k < constantes.length + constantesInteiras.length) {
+            return "k" + k + "(" + constantesInteiras[k - constantes.length] + ")";
+        }
+        return "t" + (k - constantes.length - constantesInteiras.length);
+    }
+
+    // estado de uma execução
+    static final class Estado {
+        final double[] registradores;
+        final long[] registradoresInteiros;
+        final MaquinaVirtual maquina;
+        final PilhaAtivacao ativacoes;
+        double[] pilha = new double[64];
+        long[] pilhaInteira = new long[64];
+        int topo;
+        int maxPilha;
+        int[] retorno = new int[16];
+        int topoRetorno;
+        int maxRetorno;
+        long executadas;
+        long despachos;
+        long chamadas;
+        boolean finalizado;
+
+        Estado(double[] registradores, long[] registradoresInteiros, MaquinaVirtual maquina) {
+            this.registradores = registradores;
+            this.registradoresInteiros = registradoresInteiros;
+            this.maquina = maquina;
+            this.ativacoes = maquina.getAtivacoes();
+        }
+
+        // a memória é zerada pela própria MaquinaVirtual
+        void reiniciar() {
+            topo = 0;
+            maxPilha = 0;
+            topoRetorno = 0;
+            maxRetorno = 0;
+            executadas = 0;
+            despachos = 0;
+            chamadas = 0;
+            finalizado = false;
+        }
+
+        // as duas faixas da pilha crescem juntas, porque o topo é o mesmo
+        void crescerPilha() {
+            pilha = Arrays.copyOf(pilha, pilha.length * 2);
+            pilhaInteira = Arrays.copyOf(pilhaInteira, pilha.length);
+        }
+    }
+
+    void executar(Estado e) {
+        final int[] codigo = this.codigo;
+        final int[] pesos = this.pesos;
+        final double[] r = e.registradores;
+        final long[] ri = e.registradoresInteiros;
+        // as constantes voltam a cada execução, porque reiniciar() zera os registradores
+        System.arraycopy(constantes, 0, r, tamanhoMemoria, constantes.length);
+        System.arraycopy(constantesInteiras, 0, ri, tamanhoMemoria + constantes.length, constantesInteiras.length);
+        double[] pilha = e.pilha;
+        long[] pilhaInteira = e.pilhaInteira;
+        int topo = e.topo;
+        long executadas = 0;
+        long despachos = 0;
+        int pc = entrada;
+        try {
+            while (pc < tamanho) {
+                int base = pc << 2;
+                executadas += pesos[pc];
+                despachos++;
+                switch (codigo[base]) {
+                    case MOVE:
+                        r[codigo[base + 1]] = r[codigo[base + 2]];
+                        pc++;
+                        break;
+                    case SOMA:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] + r[codigo[base + 3]];
+                        pc++;
+                        break;
+                    case SUBT:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] - r[codigo[base + 3]];
+                        pc++;
+                        break;
+                    case MULT:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] * r[codigo[base + 3]];
+                        pc++;
+                        break;
+                    case DIVI:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] / r[codigo[base + 3]];
+                        pc++;
+                        break;
+                    case NEGA:
+                        r[codigo[base + 1]] = -r[codigo[base + 2]];
+                        pc++;
+                        break;
+                    case CMIG:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] == r[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CMDG:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] != r[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CMAI:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] >= r[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CPMI:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] <= r[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CMMA:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] > r[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CMME:
+                        r[codigo[base + 1]] = r[codigo[base + 2]] < r[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case MOVI:
+                        ri[codigo[base + 1]] = ri[codigo[base + 2]];
+                        pc++;
+                        break;
+                    case SOMI:
+                        ri[codigo[base + 1]] = Math.addExact(ri[codigo[base + 2]], ri[codigo[base + 3]]);
+                        pc++;
+                        break;
+                    case SUBI:
+                        ri[codigo[base + 1]] = Math.subtractExact(ri[codigo[base + 2]], ri[codigo[base + 3]]);
+                        pc++;
+                        break;
+                    case MULI:
+                        ri[codigo[base + 1]] = Math.multiplyExact(ri[codigo[base + 2]], ri[codigo[base + 3]]);
+                        pc++;
+                        break;
+                    case NEGI:
+                        ri[codigo[base + 1]] = Math.negateExact(ri[codigo[base + 2]]);
+                        pc++;
+                        break;
+                    case TRUN:
+                        ri[codigo[base + 1]] = MaquinaVirtual.truncar(r[codigo[base + 2]]);
+                        pc++;
+                        break;
+                    case REAL:
+                        r[codigo[base + 1]] = ri[codigo[base + 2]];
+                        pc++;
+                        break;
+                    case CIIG:
+                        r[codigo[base + 1]] = ri[codigo[base + 2]] == ri[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CIDG:
+                        r[codigo[base + 1]] = ri[codigo[base + 2]] != ri[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CIAI:
+                        r[codigo[base + 1]] = ri[codigo[base + 2]] >= ri[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CIMI:
+                        r[codigo[base + 1]] = ri[codigo[base + 2]] <= ri[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CIMA:
+                        r[codigo[base + 1]] = ri[codigo[base + 2]] > ri[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case CIME:
+                        r[codigo[base + 1]] = ri[codigo[base + 2]] < ri[codigo[base + 3]] ? 1.0 : 0.0;
+                        pc++;
+                        break;
+                    case SE_NAO_IG:
+                        pc = r[codigo[base + 2]] == r[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_DG:
+                        pc = r[codigo[base + 2]] != r[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_AI:
+                        pc = r[codigo[base + 2]] >= r[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_MI:
+                        pc = r[codigo[base + 2]] <= r[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_MA:
+                        pc = r[codigo[base + 2]] > r[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_ME:
+                        pc = r[codigo[base + 2]] < r[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_IGI:
+                        pc = ri[codigo[base + 2]] == ri[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_DGI:
+                        pc = ri[codigo[base + 2]] != ri[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_AII:
+                        pc = ri[codigo[base + 2]] >= ri[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_MII:
+                        pc = ri[codigo[base + 2]] <= ri[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_MAI:
+                        pc = ri[codigo[base + 2]] > ri[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_NAO_MEI:
+                        pc = ri[codigo[base + 2]] < ri[codigo[base + 3]] ? pc + 1 : codigo[base + 1];
+                        break;
+                    case SE_FALSO:
+                        pc = r[codigo[base + 2]] == 0.0 ? codigo[base + 1] : pc + 1;
+                        break;
+                    case SALTO:
+                        pc = codigo[base + 1];
+                        break;
+                    case LEIT:
+                        r[codigo[base + 1]] = e.maquina.ler();
+                        pc++;
+                        break;
+                    case IMPR:
+                        e.maquina.imprimir(r[codigo[base + 2]]);
+                        pc++;
+                        break;
+                    case IMPI:
+                        e.maquina.imprimir(ri[codigo[base + 2]]);
+                        pc++;
+                        break;
+                    case EMPILHA:
+                        if (topo == pilha.length) {
+                            e.crescerPilha();
+                            pilha = e.pilha;
+                            pilhaInteira = e.pilhaInteira;
+                        }
+                        pilha[topo++] = r[codigo[base + 2]];
+                        if (topo > e.maxPilha) {
+                            e.maxPilha = topo;
+                        }
+                        pc++;
+                        break;
+                    case EMPILHA_INTEIRO:
+                        if (topo == pilha.length) {
+                            e.crescerPilha();
+                            pilha = e.pilha;
+                            pilhaInteira = e.pilhaInteira;
+                        }
+                        pilhaInteira[topo++] = ri[codigo[base + 2]];
+                        if (topo > e.maxPilha) {
+                            e.maxPilha = topo;
+                        }
+                        pc++;
+                        break;
+                    case DESEMPILHA:
+                        r[codigo[base + 1]] = pilha[--topo];
+                        pc++;
+                        break;
+                    case DESEMPILHA_INTEIRO:
+                        ri[codigo[base + 1]] = pilhaInteira[--topo];
+                        pc++;
+                        break;
+                    case EMPILHA_RETORNO:
+                        if (e.topoRetorno == e.retorno.length) {
+                            e.retorno = Arrays.copyOf(e.retorno, e.retorno.length * 2);
+                        }
+                        e.retorno[e.topoRetorno++] = codigo[base + 1];
+                        if (e.topoRetorno > e.maxRetorno) {
+                            e.maxRetorno = e.topoRetorno;
+                        }
+                        pc++;
+                        break;
+                    case CHAMADA:
+                        e.chamadas++;
+                        e.ativacoes.entrar(codigo[base + 3]);
+                        pc = codigo[base + 1];
+                        break;
+                    case RETORNO:
+                        e.ativacoes.sair();
+                        pc = e.retorno[--e.topoRetorno];
+                        break;
+                    case FIM:
+                        e.finalizado = true;
+                        return;
+                    default: // NADA
+                        pc++;
+                        break;
+                }
+            }
+        } catch (ArithmeticException ex) {
+            throw MaquinaVirtual.estouroInteiro(origens[pc]);
+        } finally {
+            e.topo = topo;
+            e.executadas += executadas;
+            e.despachos += despachos;
+        }
+    }
+
+    // ---------------------------------------------------------------- tradução
+
+    static MotorRegistros construir(ProgramaDecodificado programa) {
+        int n = programa.tamanho();
+        boolean[] lider = new boolean[n + 1];
+        lider[0] = true;
+        lider[programa.getPontoEntrada()] = true;
+        for (int i = 0; i < n; i++) {
+            int op = programa.getOperacao(i);
+            if (CodigoOperacao.ehDesvio(op)) {
+                lider[programa.getArgumento(i)] = true;
+            }
+            if (terminaBloco(op)) {
+                lider[i + 1] = true;
+            }
+        }
+
+        Tradutor tradutor = new Tradutor(programa);
+        int[] inicioBloco = new int[n + 1]; // índice no código de registradores de cada líder
+        int inicio = 0;
+        while (inicio < n) {
+            int fim = inicio + 1;
+            while (fim < n && !lider[fim]) {
+                fim++;
+            }
+            inicioBloco[inicio] = tradutor.tamanho;
+            tradutor.bloco(inicio, fim);
+            inicio = fim;
+        }
+        inicioBloco[n] = tradutor.tamanho;
+
+        // os destinos foram gravados como índices do código de pilha
+        int[] codigo = tradutor.codigo;
+        for (int i = 0; i < tradutor.tamanho; i++) {
+            switch (codigo[4 * i]) {
+                case SE_NAO_IG:
+                case SE_NAO_DG:
+                case SE_NAO_AI:
+                case SE_NAO_MI:
+                case SE_NAO_MA:
+                case SE_NAO_ME:
+                case SE_NAO_IGI:
+                case SE_NAO_DGI:
+                case SE_NAO_AII:
+                case SE_NAO_MII:
+                case SE_NAO_MAI:
+                case SE_NAO_MEI:
+                case SE_FALSO:
+                case SALTO:
+                case EMPILHA_RETORNO:
+                case CHAMADA:
+                    codigo[4 * i + 1] = inicioBloco[codigo[4 * i + 1]];
+                    break;
+                default:
+                    break;
+            }
+        }
+        int registros = tradutor.primeiroTemporario + tradutor.maxTemporarios;
+        return new MotorRegistros(Arrays.copyOf(codigo, 4 * tradutor.tamanho),
+                Arrays.copyOf(tradutor.pesos, tradutor.tamanho), Arrays.copyOf(tradutor.origens, tradutor.tamanho),
+                tradutor.tamanho,
+                inicioBloco[programa.getPontoEntrada()], programa.getTamanhoMemoria(), constantes(programa),
+                programa.constantesInteiras().clone(), registros);
+    }
+
+    private static double[] constantes(ProgramaDecodificado programa) {
+        double[] constantes = new double[programa.quantidadeConstantes()];
+        for (int i = 0; i < constantes.length; i++) {
+            constantes[i] = programa.getConstante(i);
+        }
+        return constantes;
+    }
+
+    private static boolean terminaBloco(int op) {
+        return op == CodigoOperacao.DSVF || op == CodigoOperacao.DSVI || op == CodigoOperacao.CHPR
+                || op == CodigoOperacao.RTPR || op == CodigoOperacao.PARA;
+    }
+
+    // Simula a pilha de operandos dentro de um bloco guardando registradores em vez
+    // de valores, cada um com a sua faixa. Antes de gravar num endereço, os
+    // registradores pendentes na pilha que são esse endereço vão para temporários.
+    private static final class Tradutor {
+        private final ProgramaDecodificado programa;
+        private final int primeiroConstante;
+        private final int primeiroConstanteInteira;
+        final int primeiroTemporario;
+        private final List<Integer> pilha = new ArrayList<>();
+        private final List<Boolean> inteiros = new ArrayList<>(); // faixa de cada valor da pilha
+        int[] codigo = new int[256];
+        int[] pesos = new int[64];
+        int[] origens = new int[64];
+        int tamanho;
+        private int temporarios;
+        int maxTemporarios;
+        private int ultimoBloco; // primeira instrução do bloco atual
+        private int instrucao;
+
+        Tradutor(ProgramaDecodificado programa) {
+            this.programa = programa;
+            this.primeiroConstante = programa.getTamanhoMemoria();
+            this.primeiroConstanteInteira = primeiroConstante + programa.quantidadeConstantes();
+            this.primeiroTemporario = primeiroConstanteInteira + programa.quantidadeConstantesInteiras();
+        }
+
+        void bloco(int inicio, int fim) {
+            pilha.clear();
+            inteiros.clear();
+            temporarios = 0;
+            ultimoBloco = tamanho;
+            boolean terminou = false;
+
+            for (int i = inicio; i < fim && !terminou; i++) {
+                int op = programa.getOperacao(i);
+                int arg = programa.getArgumento(i);
+                instrucao = i;
+                switch (op) {
+                    case CodigoOperacao.INPP:
+                    case CodigoOperacao.ALME:
+                    case CodigoOperacao.DESM:
+                        break;
+                    case CodigoOperacao.CRCT:
+                        empilhar(primeiroConstante + arg, false);
+                        break;
+                    case CodigoOperacao.CRCI:
+                        empilhar(primeiroConstanteInteira + arg, true);
+                        break;
+                    case CodigoOperacao.CRVL:
+                    case CodigoOperacao.PARAM:
+                        empilhar(arg, false);
+                        break;
+                    case CodigoOperacao.CRVI:
+                    case CodigoOperacao.PARI:
+                        empilhar(arg, true);
+                        break;
+                    case CodigoOperacao.ARMZ:
+                        armazenar(arg, false);
+                        break;
+                    case CodigoOperacao.ARMI:
+                        armazenar(arg, true);
+                        break;
+                    case CodigoOperacao.ARMC:
+                        armazenar(arg, false);
+                        empilhar(arg, false);
+                        break;
+                    case CodigoOperacao.ARCI:
+                        armazenar(arg, true);
+                        empilhar(arg, true);
+                        break;
+                    case CodigoOperacao.SOMA:
+                    case CodigoOperacao.SUBT:
+                    case CodigoOperacao.MULT:
+                    case CodigoOperacao.DIVI:
+                    case CodigoOperacao.CMIG:
+                    case CodigoOperacao.CMDG:
+                    case CodigoOperacao.CMAI:
+                    case CodigoOperacao.CPMI:
+                    case CodigoOperacao.CMMA:
+                    case CodigoOperacao.CMME:
+                        binaria(binaria(op), false, false);
+                        break;
+                    case CodigoOperacao.SOMI:
+                    case CodigoOperacao.SUBI:
+                    case CodigoOperacao.MULI:
+                        binaria(binaria(op), true, true);
+                        break;
+                    case CodigoOperacao.CIIG:
+                    case CodigoOperacao.CIDG:
+                    case CodigoOperacao.CIAI:
+                    case CodigoOperacao.CIMI:
+                    case CodigoOperacao.CIMA:
+                    case CodigoOperacao.CIME:
+                        binaria(CIIG + (op - CodigoOperacao.CIIG), true, false);
+                        break;
+                    case CodigoOperacao.INVE:
+                        unaria(NEGA, false, false);
+                        break;
+                    case CodigoOperacao.INVI:
+                        unaria(NEGI, true, true);
+                        break;
+                    case CodigoOperacao.TRUN:
+                        unaria(TRUN, false, true);
+                        break;
+                    case CodigoOperacao.REAL:
+                        unaria(REAL, true, false);
+                        break;
+                    case CodigoOperacao.LEIT: {
+                        int t = novoTemporario();
+                        emitir(LEIT, t, 0, 0);
+                        empilhar(t, false);
+                        break;
+                    }
+                    case CodigoOperacao.IMPR:
+                        emitir(IMPR, 0, desempilhar(false), 0);
+                        break;
+                    case CodigoOperacao.IMPI:
+                        emitir(IMPI, 0, desempilhar(true), 0);
+                        break;
+                    case CodigoOperacao.PUSHER:
+                        emitir(EMPILHA_RETORNO, arg, 0, 0);
+                        break;
+                    case CodigoOperacao.DSVI:
+                        descarregar();
+                        emitir(SALTO, arg, 0, 0);
+                        terminou = true;
+                        break;
+                    case CodigoOperacao.DSVF:
+                        desviarSeFalso(arg);
+                        terminou = true;
+                        break;
+                    case CodigoOperacao.CHPR:
+                        descarregar();
+                        emitir(CHAMADA, arg, 0, arg);
+                        terminou = true;
+                        break;
+                    case CodigoOperacao.RTPR:
+                        descarregar();
+                        emitir(RETORNO, 0, 0, 0);
+                        terminou = true;
+                        break;
+                    case CodigoOperacao.PARA:
+                        descarregar();
+                        emitir(FIM, 0, 0, 0);
+                        terminou = true;
+                        break;
+                    default:
+                        throw new RuntimeException("Instrução desconhecida para o motor de registradores: " + op);
+                }
+            }
+            if (!terminou) {
+                descarregar();
+            }
+            if (tamanho == ultimoBloco) {
+                emitir(NADA, 0, 0, 0);
+            }
+            pesos[tamanho - 1] += fim - inicio;
+        }
+
+        private void binaria(int op, boolean operandosInteiros, boolean resultadoInteiro) {
+            int b = desempilhar(operandosInteiros);
+            int a = desempilhar(operandosInteiros);
+            int t = novoTemporario();
+            emitir(op, t, a, b);
+            empilhar(t, resultadoInteiro);
+        }
+
+        private void unaria(int op, boolean operandoInteiro, boolean resultadoInteiro) {
+            int a = desempilhar(operandoInteiro);
+            int t = novoTemporario();
+            emitir(op, t, a, 0);
+            empilhar(t, resultadoInteiro);
+        }
+
+        // o valor do topo já calculado num temporário pela última instrução vira
+        // direto o destino dela, a não ser que outro valor pendente leia o endereço
+        private void armazenar(int endereco, boolean inteiro) {
+            int valor = desempilhar(inteiro);
+            if (valor == endereco) { // CRVL x, ARMZ x
+                return;
+            }
+            boolean pendente = pendente(endereco, inteiro);
+            if (!pendente && ehTemporario(valor) && tamanho > ultimoBloco && codigo[4 * (tamanho - 1) + 1] == valor
+                    && escreveDestino(codigo[4 * (tamanho - 1)])) {
+                codigo[4 * (tamanho - 1) + 1] = endereco;
+                return;
+            }
+            preservar(endereco, inteiro);
+            emitir(inteiro ? MOVI : MOVE, endereco, valor, 0);
+        }
+
+        // comparação seguida de DSVF vira um único desvio condicional
+        private void desviarSeFalso(int destino) {
+            int condicao = desempilhar(false);
+            descarregar();
+            int ultima = 4 * (tamanho - 1);
+            if (ehTemporario(condicao) && tamanho > ultimoBloco && codigo[ultima + 1] == condicao) {
+                int op = codigo[ultima];
+                if (op >= CMIG && op <= CMME) {
+                    codigo[ultima] = SE_NAO_IG + (op - CMIG);
+                    codigo[ultima + 1] = destino;
+                    return;
+                }
+                if (op >= CIIG && op <= CIME) {
+                    codigo[ultima] = SE_NAO_IGI + (op - CIIG);
+                    codigo[ultima + 1] = destino;
+                    return;
+                }
+            }
+            emitir(SE_FALSO, destino, condicao, 0);
+        }
+
+        // o que sobrou na pilha simulada vai para a pilha real, na ordem
+        private void descarregar() {
+            for (int i = 0; i < pilha.size(); i++) {
+                emitir(inteiros.get(i) ? EMPILHA_INTEIRO : EMPILHA, 0, pilha.get(i), 0);
+            }
+            pilha.clear();
+            inteiros.clear();
+        }
+
+        private void empilhar(int registrador, boolean inteiro) {
+            pilha.add(registrador);
+            inteiros.add(inteiro);
+        }
+
+        // o topo; com a pilha simulada vazia, o valor veio de outro bloco pela pilha real
+        private int desempilhar(boolean inteiro) {
+            if (!pilha.isEmpty()) {
+                if (inteiros.remove(inteiros.size() - 1) != inteiro) {
+                    throw new RuntimeException("Valor real e inteiro misturados na pilha, na instrução " + instrucao
+                            + ", para o motor de registradores");
+                }
+                return pilha.remove(pilha.size() - 1);
+            }
+            int t = novoTemporario();
+            emitir(inteiro ? DESEMPILHA_INTEIRO : DESEMPILHA, t, 0, 0);
+            return t;
+        }
+
+        private boolean pendente(int endereco, boolean inteiro) {
+            for (int i = 0; i < pilha.size(); i++) {
+                if (pilha.get(i) == endereco && inteiros.get(i) == inteiro) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void preservar(int endereco, boolean inteiro) {
+            for (int i = 0; i < pilha.size(); i++) {
+                if (pilha.get(i) == endereco && inteiros.get(i) == inteiro) {
+                    int t = novoTemporario();
+                    emitir(inteiro ? MOVI : MOVE, t, endereco, 0);
+                    pilha.set(i, t);
+                }
+            }
+        }
+
+        private boolean ehTemporario(int registrador) {
+            return registrador >= primeiroTemporario;
+        }
+
+        private static boolean escreveDestino(int op) {
+            return op <= CIME || op == LEIT || op == DESEMPILHA || op == DESEMPILHA_INTEIRO;
+        }
+
+        private int novoTemporario() {
+            int t = primeiroTemporario + temporarios++;
+            maxTemporarios = Math.max(maxTemporarios, temporarios);
+            return t;
+        }
+
+        private void emitir(int op, int d, int a, int b) {
+            if (4 * tamanho == codigo.length) {
+                codigo = Arrays.copyOf(codigo, codigo.length * 2);
+            }
+            if (tamanho == pesos.length) {
+                pesos = Arrays.copyOf(pesos, pesos.length * 2);
+                origens = Arrays.copyOf(origens, pesos.length);
+            }
+            codigo[4 * tamanho] = op;
+            codigo[4 * tamanho + 1] = d;
+            codigo[4 * tamanho + 2] = a;
+            codigo[4 * tamanho + 3] = b;
+            origens[tamanho] = instrucao;
+            tamanho++;
+        }
+
+        private static int binaria(int op) {
+            switch (op) {
+                case CodigoOperacao.SOMA:
+                    return SOMA;
+                case CodigoOperacao.SUBT:
+                    return SUBT;
+                case CodigoOperacao.MULT:
+                    return MULT;
+                case CodigoOperacao.DIVI:
+                    return DIVI;
+                case CodigoOperacao.SOMI:
+                    return SOMI;
+                case CodigoOperacao.SUBI:
+                    return SUBI;
+                case CodigoOperacao.MULI:
+                    return MULI;
+                case CodigoOperacao.CMIG:
+                    return CMIG;
+                case CodigoOperacao.CMDG:
+                    return CMDG;
+                case CodigoOperacao.CMAI:
+                    return CMAI;
+                case CodigoOperacao.CPMI:
+                    return CPMI;
+                case CodigoOperacao.CMMA:
+                    return CMMA;
+                default:
+                    return CMME;
+            }
+        }
+    }
+}
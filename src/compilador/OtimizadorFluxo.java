@@ -0,0 +1,211 @@
+package compilador;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Passo de fluxo de controle sobre o código gerado, ligado por padrão:
+//
+//   - desvio para DSVI vai direto ao destino final da cadeia (o DSVI de cada
+//     procedimento depois do primeiro, o DSVF para o DSVI do fim do if);
+//   - instruções que nenhum caminho a partir da 0 alcança são removidas, o que
+//     inclui os procedimentos que nunca são chamados;
+//   - DSVI para a próxima instrução que sobrou é removido (o do else vazio).
+//
+// Depois todos os desvios são renumerados, como no peephole. O endereço de
+// retorno do PUSHER conta como destino de desvio.
+public class OtimizadorFluxo {
+
+    private int eliminadas;
+    private int encurtados;
+    private int procedimentosRemovidos;
+    // da última otimização, para getDiferencas()
+    private List<Instrucao> antes = List.of();
+    private Instrucao[] depois = new Instrucao[0];
+    private int[] novoIndice = new int[1];
+    private String[] motivos = new String[0];
+
+    public int getEliminadas() {
+        return eliminadas;
+    }
+
+    // desvios que passaram a apontar direto para o fim de uma cadeia de DSVI
+    public int getEncurtados() {
+        return encurtados;
+    }
+
+    public int getProcedimentosRemovidos() {
+        return procedimentosRemovidos;
+    }
+
+    // antes e depois da última otimização, uma linha por instrução original:
+    // "-" removida (com o motivo), "~" desvio com outro destino, " " igual
+    public String getDiferencas() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== FLUXO DE CONTROLE: ANTES -> DEPOIS ===\n");
+        for (int i = 0; i < antes.size(); i++) {
+            Instrucao original = antes.get(i);
+            if (depois[i] == null) {
+                sb.append(String.format("- %4d: %-16s (%s)%n", i, original, motivos[i]));
+            } else if (depois[i] != original) {
+                sb.append(String.format("~ %4d: %-16s -> %4d: %s%n", i, original, novoIndice[i], depois[i]));
+            } else {
+                sb.append(String.format("  %4d: %-16s -> %4d%n", i, original, novoIndice[i]));
+            }
+        }
+        return sb.toString();
+    }
+
+    public List<Instrucao> otimizar(List<Instrucao> codigo) {
+        int n = codigo.size();
+        String[] operacoes = new String[n];
+        int[] destinos = new int[n];
+        for (int i = 0; i < n; i++) {
+            operacoes[i] = codigo.get(i).getOperacao();
+            destinos[i] = ehDesvio(operacoes[i]) ? argumento(codigo.get(i)) : -1;
+        }
+
+        // cadeias de DSVI; um laço de DSVI sem saída fica como está
+        for (int i = 0; i < n; i++) {
+            if (destinos[i] < 0) {
+                continue;
+            }
+            int destino = destinos[i];
+            int passos = 0;
+            while (destino < n && operacoes[destino].equals("DSVI") && passos <= n) {
+                destino = destinos[destino];
+                passos++;
+            }
+            if (passos <= n) {
+                destinos[i] = destino;
+            }
+        }
+
+        // alcance a partir do ponto de entrada
+        boolean[] vivas = new boolean[n];
+        int[] pendentes = new int[n + 1];
+        int quantidade = 0;
+        if (n > 0) {
+            vivas[0] = true;
+            pendentes[quantidade++] = 0;
+        }
+        while (quantidade > 0) {
+            int i = pendentes[--quantidade];
+            String op = operacoes[i];
+            int proxima = -1;
+            int salto = -1;
+            if (op.equals("DSVI") || op.equals("CHPR")) {
+                salto = destinos[i];
+            } else if (op.equals("DSVF") || op.equals("PUSHER")) {
+                salto = destinos[i];
+                proxima = i + 1;
+            } else if (!op.equals("PARA") && !op.equals("RTPR")) {
+                proxima = i + 1;
+            }
+            for (int sucessor : new int[] { proxima, salto }) {
+                if (sucessor >= 0 && sucessor < n && !vivas[sucessor]) {
+                    vivas[sucessor] = true;
+                    pendentes[quantidade++] = sucessor;
+                }
+            }
+        }
+        String[] motivos = new String[n];
+        for (int i = 0; i < n; i++) {
+            if (!vivas[i]) {
+                motivos[i] = "inalcançável";
+            }
+        }
+        marcarProcedimentosRemovidos(codigo, vivas, motivos);
+
+        // DSVI para a próxima instrução viva; de trás para frente, porque remover um
+        // pode deixar o anterior apontando para a próxima
+        int proximaViva = n;
+        for (int i = n - 1; i >= 0; i--) {
+            if (!vivas[i]) {
+                continue;
+            }
+            if (operacoes[i].equals("DSVI") && destinos[i] == proximaViva) {
+                vivas[i] = false;
+                motivos[i] = "desvio para a próxima";
+                continue;
+            }
+            proximaViva = i;
+        }
+
+        // instrução removida leva ao índice da próxima que ficou
+        int[] novoIndice = new int[n + 1];
+        novoIndice[n] = 0;
+        for (int i = 0; i < n; i++) {
+            if (vivas[i]) {
+                novoIndice[n]++;
+            }
+        }
+        int seguinte = novoIndice[n];
+        for (int i = n - 1; i >= 0; i--) {
+            if (vivas[i]) {
+                seguinte--;
+            }
+            novoIndice[i] = seguinte;
+        }
+
+        List<Instrucao> nova = new ArrayList<>(novoIndice[n]);
+        Instrucao[] resultado = new Instrucao[n];
+        encurtados = 0;
+        for (int i = 0; i < n; i++) {
+            if (!vivas[i]) {
+                continue;
+            }
+            Instrucao inst = codigo.get(i);
+            if (destinos[i] >= 0 && destinos[i] != argumento(inst)) {
+                encurtados++;
+            }
+            if (destinos[i] >= 0 && novoIndice[destinos[i]] != argumento(inst)) {
+                inst = new Instrucao(inst.getOperacao(), novoIndice[destinos[i]]).comOrigemDe(inst);
+            }
+            resultado[i] = inst;
+            nova.add(inst);
+        }
+        eliminadas = n - nova.size();
+        this.antes = codigo;
+        this.depois = resultado;
+        this.novoIndice = novoIndice;
+        this.motivos = motivos;
+        return nova;
+    }
+
+    // um procedimento sem nenhuma instrução alcançável nunca é chamado
+    private void marcarProcedimentosRemovidos(List<Instrucao> codigo, boolean[] vivas, String[] motivos) {
+        int maior = 0;
+        for (Instrucao inst : codigo) {
+            maior = Math.max(maior, inst.getProcedimento());
+        }
+        boolean[] usado = new boolean[maior + 1];
+        boolean[] existe = new boolean[maior + 1];
+        for (int i = 0; i < codigo.size(); i++) {
+            int procedimento = codigo.get(i).getProcedimento();
+            existe[procedimento] = true;
+            usado[procedimento] |= vivas[i];
+        }
+        procedimentosRemovidos = 0;
+        for (int p = 1; p <= maior; p++) {
+            if (existe[p] && !usado[p]) {
+                procedimentosRemovidos++;
+            }
+        }
+        for (int i = 0; i < codigo.size(); i++) {
+            int procedimento = codigo.get(i).getProcedimento();
+            if (procedimento != 0 && !usado[procedimento]) {
+                motivos[i] = "procedimento nunca chamado";
+            }
+        }
+    }
+
+    // PUSHER guarda o endereço de retorno, que também é destino de desvio
+    private static boolean ehDesvio(String operacao) {
+        return operacao.equals("DSVI") || operacao.equals("DSVF") || operacao.equals("CHPR")
+                || operacao.equals("PUSHER");
+    }
+
+    private static int argumento(Instrucao inst) {
+        return Integer.parseInt(inst.getArgumento().trim());
+    }
+}
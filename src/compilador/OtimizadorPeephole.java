@@ -0,0 +1,171 @@
+package compilador;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// Otimização peephole sobre o código gerado: troca sequências curtas de
+// instruções por sequências equivalentes menores e renumera os desvios.
+public class OtimizadorPeephole {
+
+    public enum Regra {
+        ARMAZENA_CARREGA, // ARMZ x, CRVL x -> ARMC x (e ARMI x, CRVI x -> ARCI x)
+        CARREGA_ARMAZENA, // CRVL x, ARMZ x -> (nada) (e CRVI x, ARMI x)
+        ELEMENTO_NEUTRO, // CRCT 0 SOMA, CRCT 0 SUBT, CRCT 1 MULT, CRCT 1 DIVI (e CRCI com SOMI, SUBI, MULI) -> (nada)
+        DESVIO_PROXIMA // DSVI para a instrução seguinte -> (nada)
+    }
+
+    private final Set<Regra> regras;
+    private int eliminadas;
+
+    public OtimizadorPeephole() {
+        this(EnumSet.allOf(Regra.class));
+    }
+
+    public OtimizadorPeephole(Set<Regra> regras) {
+        this.regras = EnumSet.noneOf(Regra.class);
+        this.regras.addAll(regras);
+    }
+
+    // lê uma lista como "ARMAZENA_CARREGA,DESVIO_PROXIMA"; vazia liga todas as regras
+    public static Set<Regra> lerRegras(String lista) {
+        if (lista == null || lista.isBlank()) {
+            return EnumSet.allOf(Regra.class);
+        }
+        Set<Regra> regras = EnumSet.noneOf(Regra.class);
+        for (String nome : lista.split(",")) {
+            try {
+                regras.add(Regra.valueOf(nome.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Regra de peephole desconhecida: " + nome.trim());
+            }
+        }
+        return regras;
+    }
+
+    public int getEliminadas() {
+        return eliminadas;
+    }
+
+    public List<Instrucao> otimizar(List<Instrucao> codigo) {
+        List<Instrucao> atual = codigo;
+        while (true) {
+            List<Instrucao> nova = passo(atual);
+            if (nova == null) {
+                break;
+            }
+            atual = nova;
+        }
+        eliminadas = codigo.size() - atual.size();
+        return atual;
+    }
+
+    // aplica as regras uma vez; retorna null se nada mudou
+    private List<Instrucao> passo(List<Instrucao> codigo) {
+        int n = codigo.size();
+        boolean[] alvo = marcarAlvos(codigo);
+        int[] novoIndice = new int[n + 1];
+        List<Instrucao> nova = new ArrayList<>(n);
+        boolean mudou = false;
+
+        int i = 0;
+        while (i < n) {
+            novoIndice[i] = nova.size();
+            Instrucao a = codigo.get(i);
+            String opA = a.getOperacao();
+
+            // o segundo elemento do par não pode ser destino de desvio
+            if (i + 1 < n && !alvo[i + 1]) {
+                Instrucao b = codigo.get(i + 1);
+                String opB = b.getOperacao();
+
+                if (regras.contains(Regra.ARMAZENA_CARREGA) && armazenaCarrega(opA, opB) && mesmoArgumento(a, b)) {
+                    nova.add(new Instrucao(opA.equals("ARMZ") ? "ARMC" : "ARCI", a.getArgumento()).comOrigemDe(a));
+                    novoIndice[i + 1] = novoIndice[i];
+                    i += 2;
+                    mudou = true;
+                    continue;
+                }
+                if ((regras.contains(Regra.CARREGA_ARMAZENA) && armazenaCarrega(opB, opA) && mesmoArgumento(a, b))
+                        || (regras.contains(Regra.ELEMENTO_NEUTRO) && elementoNeutro(a, opB))) {
+                    novoIndice[i + 1] = nova.size();
+                    i += 2;
+                    mudou = true;
+                    continue;
+                }
+            }
+
+            if (regras.contains(Regra.DESVIO_PROXIMA) && opA.equals("DSVI") && argumento(a) == i + 1) {
+                i++;
+                mudou = true;
+                continue;
+            }
+
+            nova.add(a);
+            i++;
+        }
+        novoIndice[n] = nova.size();
+
+        if (!mudou) {
+            return null;
+        }
+        for (int j = 0; j < nova.size(); j++) {
+            Instrucao inst = nova.get(j);
+            if (ehDesvio(inst.getOperacao())) {
+                nova.set(j, new Instrucao(inst.getOperacao(), novoIndice[argumento(inst)]).comOrigemDe(inst));
+            }
+        }
+        return nova;
+    }
+
+    private static boolean[] marcarAlvos(List<Instrucao> codigo) {
+        boolean[] alvo = new boolean[codigo.size() + 1];
+        for (Instrucao inst : codigo) {
+            if (ehDesvio(inst.getOperacao())) {
+                alvo[argumento(inst)] = true;
+            }
+        }
+        return alvo;
+    }
+
+    // PUSHER guarda o endereço de retorno, que também é destino de desvio
+    private static boolean ehDesvio(String operacao) {
+        return operacao.equals("DSVI") || operacao.equals("DSVF") || operacao.equals("CHPR")
+                || operacao.equals("PUSHER");
+    }
+
+    private static int argumento(Instrucao inst) {
+        return Integer.parseInt(inst.getArgumento().trim());
+    }
+
+    private static boolean mesmoArgumento(Instrucao a, Instrucao b) {
+        return argumento(a) == argumento(b);
+    }
+
+    // armazenamento seguido da carga do mesmo endereço, na mesma faixa
+    private static boolean armazenaCarrega(String armazena, String carrega) {
+        return (armazena.equals("ARMZ") && carrega.equals("CRVL"))
+                || (armazena.equals("ARMI") && carrega.equals("CRVI"));
+    }
+
+    // x + 0 só difere de x quando x é -0.0, que imprime como 0.0
+    private static boolean elementoNeutro(Instrucao constante, String operacao) {
+        if (constante.getOperacao().equals("CRCI")) {
+            long valor = Long.parseLong(constante.getArgumento().trim());
+            return (valor == 0 && (operacao.equals("SOMI") || operacao.equals("SUBI")))
+                    || (valor == 1 && operacao.equals("MULI"));
+        }
+        if (!constante.getOperacao().equals("CRCT")) {
+            return false;
+        }
+        double valor = Double.parseDouble(constante.getArgumento());
+        if (valor == 0.0) {
+            return operacao.equals("SOMA") || operacao.equals("SUBT");
+        }
+        if (valor == 1.0) {
+            return operacao.equals("MULT") || operacao.equals("DIVI");
+        }
+        return false;
+    }
+}
@@ -1,25 +1,44 @@
 package compilador;
 
 public class Parser {
-    private ScannerLexico lexer;
+    private AnalisadorLexico lexer;
     private TokenInformacoes tokenAtual;
+    // com um BufferTokens o Parser anda por índice e usa os ids que o scanner já
+    // internou; com um AnalisadorLexico os nomes são internados aqui
+    private BufferTokens tokens;
+    private int indiceToken;
+    private java.util.Map<String, Integer> idsNomes = new java.util.HashMap<>();
+    private java.util.List<String> nomes = new java.util.ArrayList<>();
+    private Token tipoToken;
+    private int linhaToken;
     private TabelaSimbolos tabela;
     private Token tipoAtual;
-    private java.util.List<String> variaveisTemp = new java.util.ArrayList<>();
+    private java.util.List<Integer> variaveisTemp = new java.util.ArrayList<>();
     private java.util.List<Integer> indicesDsviProcs = new java.util.ArrayList<>();
     private GeradorCodigo gerador;
-    private String identAtual;
+    private int identAtual;
     private String operadorRelacional;
     private int enderecoProc;
     private int numParametros;
     private int numLocais;
     private java.util.List<Integer> enderecosParametros = new java.util.ArrayList<>();
+    // tipos dos parâmetros de cada procedimento, para converter os argumentos
+    private java.util.Map<Simbolo, java.util.List<Token>> tiposParametros = new java.util.HashMap<>();
+    private java.util.List<Token> tiposParametrosAtual;
 
-    public Parser(ScannerLexico lexer) {
+    public Parser(AnalisadorLexico lexer) {
         this.lexer = lexer;
-        this.tokenAtual = lexer.proximoToken();
         this.tabela = new TabelaSimbolos();
         this.gerador = new GeradorCodigo();
+        avancar();
+    }
+
+    public Parser(BufferTokens tokens) {
+        this.tokens = tokens;
+        this.indiceToken = -1;
+        this.tabela = new TabelaSimbolos();
+        this.gerador = new GeradorCodigo();
+        avancar();
     }
 
     public TabelaSimbolos getTabela() {
@@ -31,11 +50,46 @@ public class Parser {
     }
 
     private void avancar() {
-        tokenAtual = lexer.proximoToken();
+        gerador.setLinha(linhaToken); // o código que vem a seguir é do token consumido
+        if (tokens != null) {
+            if (indiceToken + 1 < tokens.quantidade()) {
+                indiceToken++;
+            } else if (tokens.getErroLexico() != null) {
+                throw new RuntimeException(tokens.getErroLexico());
+            }
+            tipoToken = tokens.tipo(indiceToken);
+            linhaToken = tokens.linha(indiceToken);
+        } else {
+            tokenAtual = lexer.proximoToken();
+            tipoToken = tokenAtual.getTipo();
+            linhaToken = tokenAtual.getLinha();
+        }
     }
 
     private boolean verificar(Token tipo) {
-        return tokenAtual.getTipo() == tipo;
+        return tipoToken == tipo;
+    }
+
+    // texto do token atual; no modo com buffer só é criado quando pedido
+    private String lexemaAtual() {
+        return tokens != null ? tokens.lexema(indiceToken) : tokenAtual.getLexema();
+    }
+
+    private int idAtual() {
+        if (tokens != null) {
+            return tokens.id(indiceToken);
+        }
+        Integer id = idsNomes.get(tokenAtual.getLexema());
+        if (id == null) {
+            id = nomes.size();
+            nomes.add(tokenAtual.getLexema());
+            idsNomes.put(tokenAtual.getLexema(), id);
+        }
+        return id;
+    }
+
+    private String nome(int id) {
+        return tokens != null ? tokens.texto(id) : nomes.get(id);
     }
 
     private void consumir(Token tipoEsperado) {
@@ -43,26 +97,35 @@ public class Parser {
             avancar();
         } else {
             erro("Esperado '" + tipoEsperado + "', encontrado '" +
-                    tokenAtual.getTipo() + "' ('" + tokenAtual.getLexema() + "')");
+                    tipoToken + "' ('" + lexemaAtual() + "')");
         }
     }
 
     private void erro(String mensagem) {
-        throw new RuntimeException("Erro de sintaxe na linha " + tokenAtual.getLinha() + ": " + mensagem);
+        throw new RuntimeException("Erro de sintaxe na linha " + linhaToken + ": " + mensagem);
     }
 
     private void erroSemantico(String mensagem) {
-        throw new RuntimeException("Erro semântico na linha " + tokenAtual.getLinha() + ": " + mensagem);
+        throw new RuntimeException("Erro semântico na linha " + linhaToken + ": " + mensagem);
     }
 
     public void parse() {
-        programa();
+        analisar();
         System.out.println("Análise sintática concluida com sucesso!");
     }
 
+    // igual ao parse(), sem a mensagem no System.out (compilação em lote)
+    public void analisar() {
+        programa();
+    }
+
     private void programa() {
+        gerador.setLinha(linhaToken);
         gerador.emitir("INPP");
         consumir(Token.PROGRAM);
+        if (verificar(Token.IDENT)) {
+            gerador.setNomePrograma(lexemaAtual());
+        }
         consumir(Token.IDENT);
         corpo();
         consumir(Token.PONTO);
@@ -102,20 +165,25 @@ public class Parser {
 
     private void dc_p() {
         consumir(Token.PROCEDURE);
-        String nomeProcedimento = tokenAtual.getLexema();
+        int idProcedimento = idAtual();
         consumir(Token.IDENT);
-        if (tabela.buscar(nomeProcedimento) != null) {
+        String nomeProcedimento = nome(idProcedimento);
+        if (tabela.buscar(idProcedimento) != null) {
             erroSemantico("Procedimento '" + nomeProcedimento + "' já declarado");
         }
         enderecoProc = gerador.getProximoIndice();
         numParametros = 0;
         numLocais = 0;
-        Simbolo proc = new Simbolo(nomeProcedimento, null, Simbolo.Categoria.PROCEDIMENTO, "global", enderecoProc);
+        Simbolo proc = new Simbolo(nomeProcedimento, idProcedimento, null, Simbolo.Categoria.PROCEDIMENTO, "global", enderecoProc);
         tabela.adicionar(proc);
+        tiposParametrosAtual = new java.util.ArrayList<>();
+        tiposParametros.put(proc, tiposParametrosAtual);
         tabela.entrarEscopo(nomeProcedimento);
+        gerador.entrarProcedimento(nomeProcedimento);
         enderecosParametros.clear();
         parametros();
         corpo_p();
+        gerador.sairProcedimento();
         tabela.sairEscopo();
     }
 
@@ -142,13 +210,14 @@ public class Parser {
         variaveis();
         consumir(Token.DOIS_PONTOS);
         tipo_var();
-        for (String nomeParam : variaveisTemp) {
+        for (int idParam : variaveisTemp) {
             int endereco = gerador.alocarMemoria();
-            Simbolo s = new Simbolo(nomeParam, tipoAtual, Simbolo.Categoria.PARAMETRO, tabela.getEscopoAtual(),
+            Simbolo s = new Simbolo(nome(idParam), idParam, tipoAtual, Simbolo.Categoria.PARAMETRO, tabela.getEscopoAtual(),
                     endereco);
             tabela.adicionar(s);
             numParametros++;
             enderecosParametros.add(endereco);
+            tiposParametrosAtual.add(tipoAtual);
         }
         mais_par();
     }
@@ -163,7 +232,8 @@ public class Parser {
     private void corpo_p() {
         dc_loc();
         for (int i = enderecosParametros.size() - 1; i >= 0; i--) {
-            gerador.emitir("ARMZ", enderecosParametros.get(i));
+            gerador.emitir(tiposParametrosAtual.get(i) == Token.INTEGER ? "ARMI" : "ARMZ",
+                    enderecosParametros.get(i));
         }
         consumir(Token.BEGIN);
         comandos();
@@ -192,16 +262,16 @@ public class Parser {
         variaveis();
         consumir(Token.DOIS_PONTOS);
         tipo_var();
-        for (String nomeVar : variaveisTemp) {
-            if (tabela.existeNoEscopoAtual(nomeVar)) {
-                erroSemantico("Variável '" + nomeVar + "' já declarada no escopo atual");
+        for (int idVar : variaveisTemp) {
+            if (tabela.existeNoEscopoAtual(idVar)) {
+                erroSemantico("Variável '" + nome(idVar) + "' já declarada no escopo atual");
             }
             int endereco = gerador.alocarMemoria();
             gerador.emitir("ALME", 1);
-            if (!tabela.getEscopoAtual().equals("global")) {
+            if (tabela.getIdEscopoAtual() != TabelaSimbolos.ESCOPO_GLOBAL) {
                 numLocais++;
             }
-            Simbolo s = new Simbolo(nomeVar, tipoAtual, Simbolo.Categoria.VARIAVEL, tabela.getEscopoAtual(), endereco);
+            Simbolo s = new Simbolo(nome(idVar), idVar, tipoAtual, Simbolo.Categoria.VARIAVEL, tabela.getEscopoAtual(), endereco);
             tabela.adicionar(s);
         }
     }
@@ -219,9 +289,9 @@ public class Parser {
     }
 
     private void variaveis() {
-        String nomeVar = tokenAtual.getLexema();
+        int idVar = idAtual();
         consumir(Token.IDENT);
-        variaveisTemp.add(nomeVar);
+        variaveisTemp.add(idVar);
         mais_var();
     }
 
@@ -248,29 +318,33 @@ public class Parser {
         if (verificar(Token.READ)) {
             consumir(Token.READ);
             consumir(Token.ABRE_PAREN);
-            String nomeVar = tokenAtual.getLexema();
-            Simbolo s = tabela.buscar(nomeVar);
+            Simbolo s = tabela.buscar(idAtual());
             if (s == null) {
-                erroSemantico("Variável '" + nomeVar + "' não declarada");
+                erroSemantico("Variável '" + lexemaAtual() + "' não declarada");
             }
             consumir(Token.IDENT);
             consumir(Token.FECHA_PAREN);
             consumir(Token.PONTO_VIRGULA);
+            int inicio = gerador.getProximoIndice();
             gerador.emitir("LEIT");
-            gerador.emitir("ARMZ", s.getEndereco());
+            armazenar(inicio, Token.REAL, s);
         } else if (verificar(Token.WRITE)) {
             consumir(Token.WRITE);
             consumir(Token.ABRE_PAREN);
-            String nomeVar = tokenAtual.getLexema();
-            Simbolo s = tabela.buscar(nomeVar);
+            Simbolo s = tabela.buscar(idAtual());
             if (s == null) {
-                erroSemantico("Variável '" + nomeVar + "' não declarada");
+                erroSemantico("Variável '" + lexemaAtual() + "' não declarada");
             }
             consumir(Token.IDENT);
             consumir(Token.FECHA_PAREN);
             consumir(Token.PONTO_VIRGULA);
-            gerador.emitir("CRVL", s.getEndereco());
-            gerador.emitir("IMPR");
+            if (tipo(s) == Token.INTEGER) {
+                gerador.emitir("CRVI", s.getEndereco());
+                gerador.emitir("IMPI");
+            } else {
+                gerador.emitir("CRVL", s.getEndereco());
+                gerador.emitir("IMPR");
+            }
         } else if (verificar(Token.IF)) {
             consumir(Token.IF);
             condicao();
@@ -296,10 +370,10 @@ public class Parser {
             gerador.alterarArgumento(indiceDsvf, gerador.getProximoIndice());
             consumir(Token.DOLAR);
         } else if (verificar(Token.IDENT)) {
-            identAtual = tokenAtual.getLexema();
+            identAtual = idAtual();
             Simbolo s = tabela.buscar(identAtual);
             if (s == null) {
-                erroSemantico("'" + identAtual + "' não declarado");
+                erroSemantico("'" + lexemaAtual() + "' não declarado");
             }
             consumir(Token.IDENT);
             restoIdent();
@@ -319,47 +393,100 @@ public class Parser {
     private void restoIdent() {
         if (verificar(Token.ATRIB)) {
             consumir(Token.ATRIB);
-            expressao();
+            int inicio = gerador.getProximoIndice();
+            Token tipo = expressao();
             Simbolo s = tabela.buscar(identAtual);
-            gerador.emitir("ARMZ", s.getEndereco());
+            armazenar(inicio, tipo, s);
         } else {
             Simbolo proc = tabela.buscar(identAtual);
             int indicePusher = gerador.getProximoIndice();
             gerador.emitir("PUSHER", 0);
-            lista_arg();
+            lista_arg(tiposParametros.getOrDefault(proc, java.util.List.of()));
             gerador.alterarArgumento(indicePusher, gerador.getProximoIndice() + 1);
             gerador.emitir("CHPR", proc.getEndereco());
         }
     }
 
-    private void lista_arg() {
+    private void lista_arg(java.util.List<Token> tipos) {
         if (verificar(Token.ABRE_PAREN)) {
             consumir(Token.ABRE_PAREN);
-            argumentos();
+            argumentos(tipos, 0);
             consumir(Token.FECHA_PAREN);
         }
     }
 
-    private void argumentos() {
-        String nomeArg = tokenAtual.getLexema();
-        Simbolo s = tabela.buscar(nomeArg);
+    private void argumentos(java.util.List<Token> tipos, int indice) {
+        Simbolo s = tabela.buscar(idAtual());
         consumir(Token.IDENT);
-        gerador.emitir("PARAM", s.getEndereco());
-        mais_ident();
+        boolean inteiro = tipo(s) == Token.INTEGER;
+        gerador.emitir(inteiro ? "PARI" : "PARAM", s.getEndereco());
+        if (indice < tipos.size() && tipos.get(indice) == Token.INTEGER && !inteiro) {
+            gerador.emitir("TRUN");
+        } else if (indice < tipos.size() && tipos.get(indice) == Token.REAL && inteiro) {
+            gerador.emitir("REAL");
+        }
+        mais_ident(tipos, indice + 1);
     }
 
-    private void mais_ident() {
+    private void mais_ident(java.util.List<Token> tipos, int indice) {
         if (verificar(Token.VIRGULA)) {
             consumir(Token.VIRGULA);
-            argumentos();
+            argumentos(tipos, indice);
         }
     }
 
+    // guarda o valor calculado a partir de "inicio" na variável; real numa variável
+    // inteira passa pelo TRUN (trunca em direção ao zero) e inteiro numa real pelo
+    // REAL
+    private void armazenar(int inicio, Token tipoValor, Simbolo destino) {
+        if (tipo(destino) == Token.INTEGER) {
+            if (tipoValor == Token.REAL) {
+                gerador.emitir("TRUN");
+            }
+            gerador.emitir("ARMI", destino.getEndereco());
+        } else {
+            if (tipoValor == Token.INTEGER) {
+                paraReal(inicio, gerador.getProximoIndice());
+            }
+            gerador.emitir("ARMZ", destino.getEndereco());
+        }
+    }
+
+    private static Token tipo(Simbolo s) {
+        return s.getTipo() == Token.INTEGER ? Token.INTEGER : Token.REAL;
+    }
+
+    // entre dois inteiros a comparação é a inteira (CIxx); com um real no meio, o
+    // lado inteiro é convertido
     private void condicao() {
-        expressao();
+        int inicio = gerador.getProximoIndice();
+        Token esquerdo = expressao();
         relacao();
-        expressao();
-        gerador.emitir(operadorRelacional);
+        int meio = gerador.getProximoIndice();
+        Token direito = expressao();
+        if (esquerdo == Token.INTEGER && direito == Token.INTEGER) {
+            gerador.emitir(comparacaoInteira(operadorRelacional));
+        } else {
+            converterOperandos(inicio, meio, esquerdo, direito);
+            gerador.emitir(operadorRelacional);
+        }
+    }
+
+    private static String comparacaoInteira(String operador) {
+        switch (operador) {
+            case "CMIG":
+                return "CIIG";
+            case "CMDG":
+                return "CIDG";
+            case "CMAI":
+                return "CIAI";
+            case "CPMI":
+                return "CIMI";
+            case "CMMA":
+                return "CIMA";
+            default:
+                return "CIME";
+        }
     }
 
     private void relacao() {
@@ -386,61 +513,77 @@ public class Parser {
         }
     }
 
-    private void expressao() {
-        termo();
-        outros_termos();
+    // as expressões devolvem o tipo: INTEGER se só houver inteiros e nenhuma
+    // divisão, senão REAL
+    private Token expressao() {
+        int inicio = gerador.getProximoIndice();
+        Token tipo = termo();
+        return outros_termos(inicio, tipo);
     }
 
-    private void termo() {
-        op_un();
-        fator();
-        mais_fatores();
+    private Token termo() {
+        int inicio = gerador.getProximoIndice();
+        boolean negativo = op_un();
+        Token tipo = fator();
+        tipo = mais_fatores(inicio, tipo);
+        if (negativo) {
+            negar(inicio, tipo);
+        }
+        return tipo;
     }
 
-    private void op_un() {
+    private boolean op_un() {
         if (verificar(Token.MENOS)) {
             consumir(Token.MENOS);
+            return true;
         }
+        return false;
     }
 
-    private void fator() {
+    private Token fator() {
         if (verificar(Token.IDENT)) {
-            String nomeVar = tokenAtual.getLexema();
-            Simbolo s = tabela.buscar(nomeVar);
+            Simbolo s = tabela.buscar(idAtual());
             if (s == null) {
-                erroSemantico("Variável '" + nomeVar + "' não declarada");
+                erroSemantico("Variável '" + lexemaAtual() + "' não declarada");
             }
             consumir(Token.IDENT);
-            gerador.emitir("CRVL", s.getEndereco());
+            gerador.emitir(tipo(s) == Token.INTEGER ? "CRVI" : "CRVL", s.getEndereco());
+            return tipo(s);
         } else if (verificar(Token.NUMERO_REAL)) {
-            String valor = tokenAtual.getLexema();
+            String valor = lexemaAtual();
             consumir(Token.NUMERO_REAL);
             gerador.emitir("CRCT", valor);
+            return Token.REAL;
         } else if (verificar(Token.NUMERO_INT)) {
-            String valor = tokenAtual.getLexema();
+            long valor = 0;
+            try {
+                valor = Long.parseLong(lexemaAtual());
+            } catch (NumberFormatException e) {
+                erroSemantico("Constante inteira fora da faixa: " + lexemaAtual());
+            }
             consumir(Token.NUMERO_INT);
-            gerador.emitir("CRCT", valor);
+            gerador.emitir("CRCI", valor);
+            return Token.INTEGER;
         } else if (verificar(Token.ABRE_PAREN)) {
             consumir(Token.ABRE_PAREN);
-            expressao();
+            Token tipo = expressao();
             consumir(Token.FECHA_PAREN);
-        } else {
-            erro("Fator esperado");
+            return tipo;
         }
+        erro("Fator esperado");
+        return Token.REAL;
     }
 
-    private void outros_termos() {
+    private Token outros_termos(int inicio, Token tipoEsquerdo) {
         if (verificar(Token.MAIS) || verificar(Token.MENOS)) {
             boolean soma = verificar(Token.MAIS);
             op_ad();
-            termo();
-            if (soma) {
-                gerador.emitir("SOMA");
-            } else {
-                gerador.emitir("SUBT");
-            }
-            outros_termos();
+            int meio = gerador.getProximoIndice();
+            Token tipoDireito = termo();
+            return outros_termos(inicio, emitirOperacao(soma ? "SOMA" : "SUBT", inicio, meio, tipoEsquerdo,
+                    tipoDireito));
         }
+        return tipoEsquerdo;
     }
 
     private void op_ad() {
@@ -451,18 +594,17 @@ public class Parser {
         }
     }
 
-    private void mais_fatores() {
+    // a divisão é sempre real
+    private Token mais_fatores(int inicio, Token tipoEsquerdo) {
         if (verificar(Token.MULT) || verificar(Token.DIV)) {
             boolean mult = verificar(Token.MULT);
             op_mul();
-            fator();
-            if (mult) {
-                gerador.emitir("MULT");
-            } else {
-                gerador.emitir("DIVI");
-            }
-            mais_fatores();
+            int meio = gerador.getProximoIndice();
+            Token tipoDireito = fator();
+            return mais_fatores(inicio, emitirOperacao(mult ? "MULT" : "DIVI", inicio, meio, tipoEsquerdo,
+                    tipoDireito));
         }
+        return tipoEsquerdo;
     }
 
     private void op_mul() {
@@ -472,4 +614,193 @@ public class Parser {
             consumir(Token.DIV);
         }
     }
+
+    // Emite a operação aritmética entre o operando esquerdo, em [inicio, meio), e o
+    // direito, em [meio, fim do código), e retorna o tipo do resultado: com os dois
+    // inteiros e sem divisão, a operação inteira (SOMI, SUBI, MULI); senão a real,
+    // com o lado inteiro convertido. Operandos constantes são dobrados em uma só
+    // constante e identidades (x*1, x/1, x+0, x-0) não geram código; x+0 só difere
+    // de x quando x é -0.0, que imprime como 0.0. x*0 não é simplificado: para x
+    // infinito ou NaN o resultado não é 0.
+    private Token emitirOperacao(String operacao, int inicio, int meio, Token tipoEsquerdo, Token tipoDireito) {
+        if (tipoEsquerdo == Token.INTEGER && tipoDireito == Token.INTEGER && !operacao.equals("DIVI")) {
+            emitirInteira(operacao, inicio, meio);
+            return Token.INTEGER;
+        }
+        meio = converterOperandos(inicio, meio, tipoEsquerdo, tipoDireito);
+        int fim = gerador.getProximoIndice();
+        Double esquerdo = constante(inicio, meio);
+        Double direito = constante(meio, fim);
+
+        if (esquerdo != null && direito != null) {
+            gerador.removerDesde(inicio);
+            gerador.emitir("CRCT", calcular(operacao, esquerdo, direito));
+        } else if (direito != null && neutroADireita(operacao, direito)) {
+            gerador.removerDesde(meio);
+        } else if (esquerdo != null && neutroAEsquerda(operacao, esquerdo)) {
+            gerador.remover(inicio);
+        } else if (operacao.equals("MULT") && direito != null && direito == 2.0 && ehVariavel(inicio, meio)) {
+            // x * 2 -> x + x
+            gerador.substituir(meio, gerador.getInstrucao(inicio));
+            gerador.emitir("SOMA");
+        } else if (operacao.equals("MULT") && esquerdo != null && esquerdo == 2.0 && ehVariavel(meio, fim)) {
+            gerador.substituir(inicio, gerador.getInstrucao(meio));
+            gerador.emitir("SOMA");
+        } else {
+            gerador.emitir(operacao);
+        }
+        return Token.REAL;
+    }
+
+    // As mesmas simplificações em long. A dobra que estouraria fica para a
+    // execução, que acusa o estouro.
+    private void emitirInteira(String operacao, int inicio, int meio) {
+        int fim = gerador.getProximoIndice();
+        Long esquerdo = constanteInteira(inicio, meio);
+        Long direito = constanteInteira(meio, fim);
+        Long resultado = esquerdo != null && direito != null ? calcularInteiro(operacao, esquerdo, direito) : null;
+
+        if (resultado != null) {
+            gerador.removerDesde(inicio);
+            gerador.emitir("CRCI", resultado.longValue());
+        } else if (direito != null && neutroADireita(operacao, direito)) {
+            gerador.removerDesde(meio);
+        } else if (esquerdo != null && neutroAEsquerda(operacao, esquerdo)) {
+            gerador.remover(inicio);
+        } else if (operacao.equals("MULT") && direito != null && direito == 2 && ehVariavel(inicio, meio)) {
+            gerador.substituir(meio, gerador.getInstrucao(inicio));
+            gerador.emitir("SOMI");
+        } else if (operacao.equals("MULT") && esquerdo != null && esquerdo == 2 && ehVariavel(meio, fim)) {
+            gerador.substituir(inicio, gerador.getInstrucao(meio));
+            gerador.emitir("SOMI");
+        } else {
+            gerador.emitir(operacaoInteira(operacao));
+        }
+    }
+
+    private static String operacaoInteira(String operacao) {
+        switch (operacao) {
+            case "SOMA":
+                return "SOMI";
+            case "SUBT":
+                return "SUBI";
+            default:
+                return "MULI";
+        }
+    }
+
+    // converte para real o lado inteiro de uma operação real; retorna o novo meio
+    private int converterOperandos(int inicio, int meio, Token tipoEsquerdo, Token tipoDireito) {
+        if (tipoDireito == Token.INTEGER) {
+            paraReal(meio, gerador.getProximoIndice());
+        }
+        if (tipoEsquerdo == Token.INTEGER) {
+            meio += paraReal(inicio, meio);
+        }
+        return meio;
+    }
+
+    // o valor inteiro calculado em [inicio, fim) passa a real: uma constante vira o
+    // CRCT do mesmo valor, o resto ganha um REAL no fim; retorna quantas instruções
+    // foram acrescentadas
+    private int paraReal(int inicio, int fim) {
+        Long valor = constanteInteira(inicio, fim);
+        if (valor != null) {
+            gerador.substituir(inicio, new Instrucao("CRCT", (double) valor).comOrigemDe(gerador.getInstrucao(inicio)));
+            return 0;
+        }
+        gerador.inserir(fim, "REAL");
+        return 1;
+    }
+
+    // menos unário: dobrado em constantes, cancelado com outra inversão ou emitido
+    // como INVE (INVI nos inteiros)
+    private void negar(int inicio, Token tipo) {
+        int fim = gerador.getProximoIndice();
+        String inversao = tipo == Token.INTEGER ? "INVI" : "INVE";
+        Double valor = constante(inicio, fim);
+        Long valorInteiro = constanteInteira(inicio, fim);
+        if (valor != null) {
+            gerador.removerDesde(inicio);
+            gerador.emitir("CRCT", -valor);
+        } else if (valorInteiro != null && valorInteiro != Long.MIN_VALUE) {
+            gerador.removerDesde(inicio);
+            gerador.emitir("CRCI", -valorInteiro);
+        } else if (gerador.getInstrucao(fim - 1).getOperacao().equals(inversao)) {
+            gerador.remover(fim - 1);
+        } else {
+            gerador.emitir(inversao);
+        }
+    }
+
+    // valor do trecho [inicio, fim) se ele for um único CRCT, senão null
+    private Double constante(int inicio, int fim) {
+        if (fim - inicio != 1) {
+            return null;
+        }
+        Instrucao inst = gerador.getInstrucao(inicio);
+        if (!inst.getOperacao().equals("CRCT")) {
+            return null;
+        }
+        return Double.parseDouble(inst.getArgumento());
+    }
+
+    private Long constanteInteira(int inicio, int fim) {
+        if (fim - inicio != 1) {
+            return null;
+        }
+        Instrucao inst = gerador.getInstrucao(inicio);
+        if (!inst.getOperacao().equals("CRCI")) {
+            return null;
+        }
+        return Long.parseLong(inst.getArgumento());
+    }
+
+    private boolean ehVariavel(int inicio, int fim) {
+        if (fim - inicio != 1) {
+            return false;
+        }
+        String operacao = gerador.getInstrucao(inicio).getOperacao();
+        return operacao.equals("CRVL") || operacao.equals("CRVI");
+    }
+
+    private double calcular(String operacao, double a, double b) {
+        switch (operacao) {
+            case "SOMA":
+                return a + b;
+            case "SUBT":
+                return a - b;
+            case "MULT":
+                return a * b;
+            default:
+                return a / b;
+        }
+    }
+
+    // null se o resultado não cabe num long
+    private static Long calcularInteiro(String operacao, long a, long b) {
+        try {
+            switch (operacao) {
+                case "SOMA":
+                    return Math.addExact(a, b);
+                case "SUBT":
+                    return Math.subtractExact(a, b);
+                default:
+                    return Math.multiplyExact(a, b);
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+    }
+
+    private boolean neutroADireita(String operacao, double valor) {
+        if (valor == 0.0) {
+            return operacao.equals("SOMA") || operacao.equals("SUBT");
+        }
+        return valor == 1.0 && (operacao.equals("MULT") || operacao.equals("DIVI"));
+    }
+
+    private boolean neutroAEsquerda(String operacao, double valor) {
+        return (valor == 0.0 && operacao.equals("SOMA")) || (valor == 1.0 && operacao.equals("MULT"));
+    }
 }
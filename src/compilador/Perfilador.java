@@ -0,0 +1,330 @@
+package compilador;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Perfil da execução por linha do fonte e por procedimento, a partir das tabelas
+// de depuração do ProgramaDecodificado (MaquinaVirtual.setPerfil). Com perfil a
+// máquina usa só o interpretador, sem superinstruções nem JIT, para que cada
+// instrução seja contada na linha de onde veio.
+//
+// O tempo é de relógio: a cada troca de linha ou de procedimento lê-se o
+// System.nanoTime e o trecho vai para a linha que terminou. Inclui a espera do
+// LEIT e o custo da própria medição, que deixa a execução algumas vezes mais
+// lenta; as proporções entre as linhas é que importam.
+//
+// Os contextos de chamada formam uma árvore: o nó 0 é o programa principal e cada
+// CHPR desce para o filho do procedimento chamado, o que dá as pilhas completas
+// para o arquivo de flame graph. Recursão mais funda que PROFUNDIDADE_MAXIMA fica
+// no último nó. Os valores se somam entre execuções; uma máquina por vez.
+public final class Perfilador {
+
+    private static final int PROFUNDIDADE_MAXIMA = 64;
+
+    private final ProgramaDecodificado programa;
+    private final int[] linhas;
+    private final int[] procedimentos;
+    private final int quantidadeLinhas;
+    private List<String> fonte;
+
+    // árvore de contextos, um nó por caminho de chamadas
+    private int nos;
+    private int[] pai = new int[16];
+    private int[] procedimentoNo = new int[16];
+    private int[] profundidade = new int[16];
+    private long[] entradas = new long[16];
+    private int[][] filhos = new int[16][];
+    private long[][] instrucoes = new long[16][];
+    private long[][] nanos = new long[16][];
+
+    // estado da execução em andamento
+    private int noAtual;
+    private int excesso; // chamadas além da profundidade máxima ainda abertas
+    private long[] instrucoesNo;
+    private long[] nanosNo;
+    private int linhaAtual = -1;
+    private long marca;
+
+    public Perfilador(ProgramaDecodificado programa) {
+        this.programa = programa;
+        this.linhas = programa.linhas();
+        this.procedimentos = programa.procedimentos();
+        int maior = 0;
+        for (int linha : linhas) {
+            maior = Math.max(maior, linha);
+        }
+        this.quantidadeLinhas = maior + 1;
+        novoNo(-1, 0);
+    }
+
+    // texto do fonte, uma posição por linha, para mostrar no relatório
+    public void setFonte(List<String> fonte) {
+        this.fonte = fonte;
+    }
+
+    private int novoNo(int paiNo, int procedimento) {
+        if (nos == pai.length) {
+            int tamanho = nos * 2;
+            pai = Arrays.copyOf(pai, tamanho);
+            procedimentoNo = Arrays.copyOf(procedimentoNo, tamanho);
+            profundidade = Arrays.copyOf(profundidade, tamanho);
+            entradas = Arrays.copyOf(entradas, tamanho);
+            filhos = Arrays.copyOf(filhos, tamanho);
+            instrucoes = Arrays.copyOf(instrucoes, tamanho);
+            nanos = Arrays.copyOf(nanos, tamanho);
+        }
+        int no = nos++;
+        pai[no] = paiNo;
+        procedimentoNo[no] = procedimento;
+        profundidade[no] = paiNo < 0 ? 0 : profundidade[paiNo] + 1;
+        filhos[no] = new int[programa.quantidadeProcedimentos()];
+        instrucoes[no] = new long[quantidadeLinhas];
+        nanos[no] = new long[quantidadeLinhas];
+        return no;
+    }
+
+    void iniciar() {
+        irPara(0);
+        entradas[0]++;
+        excesso = 0;
+        linhaAtual = -1;
+        marca = System.nanoTime();
+    }
+
+    void terminar() {
+        fecharTrecho();
+        linhaAtual = -1;
+    }
+
+    // chamado pelo interpretador antes de cada instrução
+    void instrucao(int pc) {
+        int linha = linhas[pc];
+        if (linha != linhaAtual) {
+            fecharTrecho();
+            linhaAtual = linha;
+        }
+        instrucoesNo[linha]++;
+    }
+
+    void chamada(int destino) {
+        fecharTrecho();
+        linhaAtual = -1;
+        if (profundidade[noAtual] == PROFUNDIDADE_MAXIMA) {
+            excesso++;
+            return;
+        }
+        int procedimento = procedimentos[destino];
+        int filho = filhos[noAtual][procedimento];
+        if (filho == 0) {
+            filho = novoNo(noAtual, procedimento);
+            filhos[noAtual][procedimento] = filho;
+        }
+        irPara(filho);
+        entradas[filho]++;
+    }
+
+    void retorno() {
+        fecharTrecho();
+        linhaAtual = -1;
+        if (excesso > 0) {
+            excesso--;
+        } else if (pai[noAtual] >= 0) {
+            irPara(pai[noAtual]);
+        }
+    }
+
+    private void irPara(int no) {
+        noAtual = no;
+        instrucoesNo = instrucoes[no];
+        nanosNo = nanos[no];
+    }
+
+    private void fecharTrecho() {
+        long agora = System.nanoTime();
+        if (linhaAtual >= 0) {
+            nanosNo[linhaAtual] += agora - marca;
+        }
+        marca = agora;
+    }
+
+    public void zerar() {
+        for (int no = 0; no < nos; no++) {
+            entradas[no] = 0;
+            Arrays.fill(instrucoes[no], 0);
+            Arrays.fill(nanos[no], 0);
+        }
+    }
+
+    public long getInstrucoes() {
+        return soma(instrucoes);
+    }
+
+    public long getNanos() {
+        return soma(nanos);
+    }
+
+    private long soma(long[][] valores) {
+        long total = 0;
+        for (int no = 0; no < nos; no++) {
+            for (long valor : valores[no]) {
+                total += valor;
+            }
+        }
+        return total;
+    }
+
+    // instruções e tempo de cada linha, somando todos os contextos
+    public long getInstrucoesLinha(int linha) {
+        long total = 0;
+        for (int no = 0; no < nos; no++) {
+            total += instrucoes[no][linha];
+        }
+        return total;
+    }
+
+    public long getNanosLinha(int linha) {
+        long total = 0;
+        for (int no = 0; no < nos; no++) {
+            total += nanos[no][linha];
+        }
+        return total;
+    }
+
+    // linhas e procedimentos ordenados por tempo, as "limite" linhas mais quentes
+    public String relatorio(int limite) {
+        long totalInstrucoes = getInstrucoes();
+        long totalNanos = Math.max(1, getNanos());
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== PERFIL ===\n");
+        sb.append(String.format("Instruções: %d | tempo: %.3f ms%n", totalInstrucoes, totalNanos / 1e6));
+        if (!programa.temLinhas()) {
+            sb.append("(código objeto sem tabela de linhas: tudo aparece na linha 0)\n");
+        }
+
+        sb.append("\nLinhas mais quentes:\n");
+        sb.append(String.format("  %5s %7s %12s %7s  %-14s %s%n", "linha", "%tempo", "instruções", "%instr",
+                "procedimento", "fonte"));
+        List<Integer> ordem = new ArrayList<>();
+        long[] instrucoesLinha = new long[quantidadeLinhas];
+        long[] nanosLinha = new long[quantidadeLinhas];
+        int[] donoLinha = new int[quantidadeLinhas];
+        for (int no = 0; no < nos; no++) {
+            for (int linha = 0; linha < quantidadeLinhas; linha++) {
+                if (instrucoes[no][linha] != 0 || nanos[no][linha] != 0) {
+                    instrucoesLinha[linha] += instrucoes[no][linha];
+                    nanosLinha[linha] += nanos[no][linha];
+                    donoLinha[linha] = procedimentoNo[no];
+                }
+            }
+        }
+        for (int linha = 0; linha < quantidadeLinhas; linha++) {
+            if (instrucoesLinha[linha] != 0) {
+                ordem.add(linha);
+            }
+        }
+        ordem.sort((a, b) -> nanosLinha[a] != nanosLinha[b] ? Long.compare(nanosLinha[b], nanosLinha[a])
+                : Long.compare(instrucoesLinha[b], instrucoesLinha[a]));
+        for (int i = 0; i < Math.min(limite, ordem.size()); i++) {
+            int linha = ordem.get(i);
+            sb.append(String.format("  %5d %6.1f%% %12d %6.1f%%  %-14s %s%n", linha,
+                    100.0 * nanosLinha[linha] / totalNanos, instrucoesLinha[linha],
+                    100.0 * instrucoesLinha[linha] / Math.max(1, totalInstrucoes),
+                    programa.getNomeProcedimento(donoLinha[linha]), textoLinha(linha)));
+        }
+
+        // próprio: só o corpo do procedimento; total: incluindo o que ele chamou
+        int p = programa.quantidadeProcedimentos();
+        long[] chamadas = new long[p];
+        long[] nanosProprio = new long[p];
+        long[] nanosTotal = new long[p];
+        long[] instrucoesProprio = new long[p];
+        for (int no = 0; no < nos; no++) {
+            long nanosNo = 0;
+            long instrucoesDoNo = 0;
+            for (int linha = 0; linha < quantidadeLinhas; linha++) {
+                nanosNo += nanos[no][linha];
+                instrucoesDoNo += instrucoes[no][linha];
+            }
+            chamadas[procedimentoNo[no]] += entradas[no];
+            nanosProprio[procedimentoNo[no]] += nanosNo;
+            instrucoesProprio[procedimentoNo[no]] += instrucoesDoNo;
+            boolean[] contado = new boolean[p]; // recursão: cada procedimento uma vez por caminho
+            for (int ancestral = no; ancestral >= 0; ancestral = pai[ancestral]) {
+                if (!contado[procedimentoNo[ancestral]]) {
+                    contado[procedimentoNo[ancestral]] = true;
+                    nanosTotal[procedimentoNo[ancestral]] += nanosNo;
+                }
+            }
+        }
+        List<Integer> procedimentosOrdem = new ArrayList<>();
+        for (int i = 0; i < p; i++) {
+            if (chamadas[i] != 0) {
+                procedimentosOrdem.add(i);
+            }
+        }
+        procedimentosOrdem.sort((a, b) -> Long.compare(nanosProprio[b], nanosProprio[a]));
+        sb.append("\nProcedimentos:\n");
+        sb.append(String.format("  %-14s %10s %8s %8s %12s%n", "nome", "chamadas", "%próprio", "%total",
+                "instruções"));
+        for (int i : procedimentosOrdem) {
+            sb.append(String.format("  %-14s %10d %7.1f%% %7.1f%% %12d%n", programa.getNomeProcedimento(i),
+                    chamadas[i], 100.0 * nanosProprio[i] / totalNanos, 100.0 * nanosTotal[i] / totalNanos,
+                    instrucoesProprio[i]));
+        }
+        return sb.toString();
+    }
+
+    private String textoLinha(int linha) {
+        if (fonte == null || linha < 1 || linha > fonte.size()) {
+            return "";
+        }
+        return fonte.get(linha - 1).trim();
+    }
+
+    // uma linha por pilha, "principal;dois;dois:27 1234", no formato "collapsed" que o
+    // flamegraph.pl, o speedscope e o inferno leem; o peso é o tempo em nanossegundos
+    // ou, com "porInstrucoes", o número de instruções
+    public void escreverPilhas(Writer destino, boolean porInstrucoes) {
+        PrintWriter saida = new PrintWriter(destino);
+        for (int no = 0; no < nos; no++) {
+            String pilha = pilha(no);
+            String folha = programa.getNomeProcedimento(procedimentoNo[no]);
+            for (int linha = 0; linha < quantidadeLinhas; linha++) {
+                long peso = porInstrucoes ? instrucoes[no][linha] : nanos[no][linha];
+                if (peso > 0) {
+                    saida.print(pilha);
+                    saida.print(';');
+                    saida.print(folha);
+                    saida.print(':');
+                    saida.print(linha);
+                    saida.print(' ');
+                    saida.println(peso);
+                }
+            }
+        }
+        saida.flush();
+    }
+
+    public void salvarPilhas(Path caminho, boolean porInstrucoes) throws IOException {
+        try (Writer destino = Files.newBufferedWriter(caminho)) {
+            escreverPilhas(destino, porInstrucoes);
+        }
+    }
+
+    private String pilha(int no) {
+        StringBuilder sb = new StringBuilder();
+        for (int atual = no; atual >= 0; atual = pai[atual]) {
+            if (sb.length() > 0) {
+                sb.insert(0, ';');
+            }
+            sb.insert(0, programa.getNomeProcedimento(procedimentoNo[atual]));
+        }
+        return sb.toString();
+    }
+}
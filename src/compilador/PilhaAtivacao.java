@@ -0,0 +1,110 @@
+package compilador;
+
+import java.util.Arrays;
+
+// Registros de ativação dos procedimentos, a partir da tabela de quadros do
+// ProgramaDecodificado. Os endereços não são relativos a um ponteiro de quadro:
+// cada procedimento tem um quadro fixo na memória (os endereços dos seus
+// parâmetros e locais, decididos na compilação), e é nesses endereços que o
+// código, as superinstruções, o JIT e os motores leem e escrevem. A memória tem
+// então as globais mais a soma dos quadros de todos os procedimentos, chamados
+// ou não.
+//
+// O CHPR zera o quadro do procedimento chamado. Se ele já estiver ativo
+// (recursão), antes disso o quadro inteiro, nas duas faixas, é copiado para o
+// topo de "salvos"; o RTPR copia de volta. Toda chamada recursiva custa então
+// uma cópia do quadro inteiro na ida e outra na volta, por menor que seja o
+// trecho usado. Chamada sem recursão só zera o quadro.
+// Objetos sem tabela de quadros (versões 1 e 2) não têm quadros: nada é salvo, e
+// uma chamada recursiva escreve por cima dos locais da anterior.
+final class PilhaAtivacao {
+
+    private final double[] memoria;
+    private final long[] memoriaInteira;
+    private final int[] quadroNaEntrada;
+    private final int[] bases;
+    private final int[] tamanhos;
+    private final int[] ativas; // ativações abertas de cada procedimento
+
+    private double[] salvos = new double[64];
+    private long[] salvosInteiros = new long[64];
+    private int topoSalvos; // primeira posição livre de "salvos"
+    private int maxSalvos;
+    // uma entrada por chamada em andamento: o procedimento (-1 sem quadro) e onde
+    // a ativação anterior foi salva (-1 se não foi)
+    private int[] procedimento = new int[16];
+    private int[] salvoEm = new int[16];
+    private int topo;
+
+    PilhaAtivacao(double[] memoria, long[] memoriaInteira, ProgramaDecodificado programa) {
+        this.memoria = memoria;
+        this.memoriaInteira = memoriaInteira;
+        this.quadroNaEntrada = programa.quadroNaEntrada();
+        this.bases = programa.basesQuadros();
+        this.tamanhos = programa.tamanhosQuadros();
+        this.ativas = new int[bases.length];
+    }
+
+    void reiniciar() {
+        topoSalvos = 0;
+        topo = 0;
+        maxSalvos = 0;
+        Arrays.fill(ativas, 0);
+    }
+
+    // CHPR para "alvo"
+    void entrar(int alvo) {
+        if (topo == procedimento.length) {
+            procedimento = Arrays.copyOf(procedimento, topo * 2);
+            salvoEm = Arrays.copyOf(salvoEm, topo * 2);
+        }
+        int p = quadroNaEntrada[alvo];
+        procedimento[topo] = p;
+        salvoEm[topo] = -1;
+        topo++;
+        if (p < 0) {
+            return;
+        }
+        int base = bases[p];
+        int tamanho = tamanhos[p];
+        if (ativas[p]++ > 0) {
+            if (topoSalvos + tamanho > salvos.length) {
+                salvos = Arrays.copyOf(salvos, Math.max(salvos.length * 2, topoSalvos + tamanho));
+                salvosInteiros = Arrays.copyOf(salvosInteiros, salvos.length);
+            }
+            System.arraycopy(memoria, base, salvos, topoSalvos, tamanho);
+            System.arraycopy(memoriaInteira, base, salvosInteiros, topoSalvos, tamanho);
+            salvoEm[topo - 1] = topoSalvos;
+            topoSalvos += tamanho;
+            if (topoSalvos > maxSalvos) {
+                maxSalvos = topoSalvos;
+            }
+        }
+        Arrays.fill(memoria, base, base + tamanho, 0.0);
+        Arrays.fill(memoriaInteira, base, base + tamanho, 0L);
+    }
+
+    // RTPR; um RTPR sem CHPR (desvio direto para o procedimento) não mexe em nada
+    void sair() {
+        if (topo == 0) {
+            return;
+        }
+        topo--;
+        int p = procedimento[topo];
+        if (p < 0) {
+            return;
+        }
+        ativas[p]--;
+        int salvo = salvoEm[topo];
+        if (salvo >= 0) {
+            System.arraycopy(salvos, salvo, memoria, bases[p], tamanhos[p]);
+            System.arraycopy(salvosInteiros, salvo, memoriaInteira, bases[p], tamanhos[p]);
+            topoSalvos = salvo;
+        }
+    }
+
+    // maior número de valores salvos ao mesmo tempo na última execução
+    int getMaxSalvos() {
+        return maxSalvos;
+    }
+}
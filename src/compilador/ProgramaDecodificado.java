@@ -0,0 +1,422 @@
+package compilador;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Forma numérica do código objeto: operações como int, argumentos já convertidos
+// e desvios resolvidos. A VM executa sobre esta forma, sem tratar strings.
+public final class ProgramaDecodificado {
+
+    private final int[] operacoes;
+    private final int[] argumentos; // em CRCT e CRCI guarda o índice na tabela de constantes
+    private final double[] constantes;
+    private final long[] constantesInteiras; // do CRCI
+    private final int tamanhoMemoria;
+    private final int pontoEntrada;
+    private final int[] execucao; // operações despachadas pela VM, com superinstruções
+    // depuração: linha do fonte e procedimento de cada instrução (0 = desconhecida / programa principal)
+    private final int[] linhas;
+    private final int[] procedimentos;
+    private final String[] nomesProcedimentos;
+    // quadros de ativação: endereços dos parâmetros e locais de cada procedimento,
+    // pelo índice do procedimento; tamanho 0 é procedimento sem quadro
+    private final int tamanhoGlobais;
+    private final int[] basesQuadros;
+    private final int[] tamanhosQuadros;
+    private final int[] quadroNaEntrada; // procedimento cujo quadro o CHPR para cada índice abre, ou -1
+
+    public ProgramaDecodificado(int[] operacoes, int[] argumentos, double[] constantes, int tamanhoMemoria,
+            int pontoEntrada) {
+        this(operacoes, argumentos, constantes, tamanhoMemoria, pontoEntrada, new int[operacoes.length],
+                new int[operacoes.length], new String[] { "principal" });
+    }
+
+    public ProgramaDecodificado(int[] operacoes, int[] argumentos, double[] constantes, int tamanhoMemoria,
+            int pontoEntrada, int[] linhas, int[] procedimentos, String[] nomesProcedimentos) {
+        this(operacoes, argumentos, constantes, tamanhoMemoria, pontoEntrada, linhas, procedimentos,
+                nomesProcedimentos, tamanhoMemoria, new int[nomesProcedimentos.length],
+                new int[nomesProcedimentos.length]);
+    }
+
+    public ProgramaDecodificado(int[] operacoes, int[] argumentos, double[] constantes, int tamanhoMemoria,
+            int pontoEntrada, int[] linhas, int[] procedimentos, String[] nomesProcedimentos, int tamanhoGlobais,
+            int[] basesQuadros, int[] tamanhosQuadros) {
+        this(operacoes, argumentos, constantes, tamanhoMemoria, pontoEntrada, linhas, procedimentos,
+                nomesProcedimentos, tamanhoGlobais, basesQuadros, tamanhosQuadros, new long[0]);
+    }
+
+    public ProgramaDecodificado(int[] operacoes, int[] argumentos, double[] constantes, int tamanhoMemoria,
+            int pontoEntrada, int[] linhas, int[] procedimentos, String[] nomesProcedimentos, int tamanhoGlobais,
+            int[] basesQuadros, int[] tamanhosQuadros, long[] constantesInteiras) {
+        if (operacoes.length != argumentos.length || operacoes.length != linhas.length
+                || operacoes.length != procedimentos.length) {
+            throw new IllegalArgumentException("Operações, argumentos e tabelas com tamanhos diferentes");
+        }
+        if (basesQuadros.length != nomesProcedimentos.length || tamanhosQuadros.length != nomesProcedimentos.length) {
+            throw new IllegalArgumentException("Tabela de quadros com tamanho diferente da de procedimentos");
+        }
+        this.operacoes = operacoes;
+        this.argumentos = argumentos;
+        this.constantes = constantes;
+        this.constantesInteiras = constantesInteiras;
+        this.tamanhoMemoria = tamanhoMemoria;
+        this.pontoEntrada = pontoEntrada;
+        this.execucao = operacoes;
+        this.linhas = linhas;
+        this.procedimentos = procedimentos;
+        this.nomesProcedimentos = nomesProcedimentos;
+        this.tamanhoGlobais = tamanhoGlobais;
+        this.basesQuadros = basesQuadros;
+        this.tamanhosQuadros = tamanhosQuadros;
+        validar();
+        this.quadroNaEntrada = mapearQuadros();
+    }
+
+    // o quadro é aberto pelo CHPR, então vale para os destinos de CHPR
+    private int[] mapearQuadros() {
+        int[] mapa = new int[operacoes.length + 1];
+        Arrays.fill(mapa, -1);
+        for (int i = 0; i < operacoes.length; i++) {
+            int alvo = argumentos[i];
+            if (operacoes[i] == CodigoOperacao.CHPR && alvo < operacoes.length
+                    && tamanhosQuadros[procedimentos[alvo]] > 0) {
+                mapa[alvo] = procedimentos[alvo];
+            }
+        }
+        return mapa;
+    }
+
+    private ProgramaDecodificado(ProgramaDecodificado original, int[] execucao) {
+        this.operacoes = original.operacoes;
+        this.argumentos = original.argumentos;
+        this.constantes = original.constantes;
+        this.constantesInteiras = original.constantesInteiras;
+        this.tamanhoMemoria = original.tamanhoMemoria;
+        this.pontoEntrada = original.pontoEntrada;
+        this.execucao = execucao;
+        this.linhas = original.linhas;
+        this.procedimentos = original.procedimentos;
+        this.nomesProcedimentos = original.nomesProcedimentos;
+        this.tamanhoGlobais = original.tamanhoGlobais;
+        this.basesQuadros = original.basesQuadros;
+        this.tamanhosQuadros = original.tamanhosQuadros;
+        this.quadroNaEntrada = original.quadroNaEntrada;
+    }
+
+    // mesmo programa, executado com as superinstruções escolhidas; o código objeto
+    // (getOperacao, paraInstrucoes, ArquivoObjeto) continua com as operações originais
+    public ProgramaDecodificado comSuperinstrucoes(Set<Superinstrucoes.Fusao> fusoes) {
+        return new ProgramaDecodificado(this, Superinstrucoes.fundir(operacoes, fusoes));
+    }
+
+    // no texto não há cabeçalho: o tamanho da memória vem do maior endereço usado
+    public static ProgramaDecodificado decodificar(List<Instrucao> codigo) {
+        return decodificar(codigo, 0);
+    }
+
+    public static ProgramaDecodificado decodificar(List<Instrucao> codigo, int tamanhoMinimoMemoria) {
+        return decodificar(codigo, tamanhoMinimoMemoria, null);
+    }
+
+    // com os nomes e os quadros dos procedimentos que o gerador registrou
+    public static ProgramaDecodificado decodificar(List<Instrucao> codigo, GeradorCodigo gerador) {
+        ProgramaDecodificado programa = decodificar(codigo, gerador.getTamanhoMemoria(), gerador.getProcedimentos());
+        int p = programa.nomesProcedimentos.length;
+        int[] bases = new int[p];
+        int[] tamanhos = new int[p];
+        for (int i = 0; i < gerador.getBasesQuadros().size() && i < p; i++) {
+            bases[i] = gerador.getBasesQuadros().get(i);
+            tamanhos[i] = gerador.getTamanhosQuadros().get(i);
+        }
+        return new ProgramaDecodificado(programa.operacoes, programa.argumentos, programa.constantes,
+                programa.tamanhoMemoria, programa.pontoEntrada, programa.linhas, programa.procedimentos,
+                programa.nomesProcedimentos, gerador.getTamanhoGlobais(), bases, tamanhos,
+                programa.constantesInteiras);
+    }
+
+    // "nomesProcedimentos" são os de GeradorCodigo.getProcedimentos(), pelos índices
+    // guardados nas instruções; sem eles os procedimentos ficam numerados
+    public static ProgramaDecodificado decodificar(List<Instrucao> codigo, int tamanhoMinimoMemoria,
+            List<String> nomesProcedimentos) {
+        int n = codigo.size();
+        int[] operacoes = new int[n];
+        int[] argumentos = new int[n];
+        int[] linhas = new int[n];
+        int[] procedimentos = new int[n];
+        int maiorProcedimento = 0;
+        int tamanhoMemoria = tamanhoMinimoMemoria;
+        List<Double> constantes = new ArrayList<>();
+        Map<Long, Integer> indiceConstantes = new HashMap<>();
+        List<Long> constantesInteiras = new ArrayList<>();
+        Map<Long, Integer> indiceConstantesInteiras = new HashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            Instrucao inst = codigo.get(i);
+            int op = CodigoOperacao.decodificar(inst.getOperacao());
+            if (op < 0) {
+                throw new RuntimeException("ERRO: Instrução desconhecida na posição " + i + ": " + inst.getOperacao());
+            }
+            operacoes[i] = op;
+            linhas[i] = inst.getLinha();
+            procedimentos[i] = inst.getProcedimento();
+            maiorProcedimento = Math.max(maiorProcedimento, procedimentos[i]);
+            if (!CodigoOperacao.temArgumento(op)) {
+                continue;
+            }
+            String arg = limparArgumento(inst.getArgumento());
+            if (arg.isEmpty()) {
+                throw new RuntimeException("ERRO: Instrução sem argumento na posição " + i + ": " + inst.getOperacao());
+            }
+            try {
+                if (op == CodigoOperacao.CRCT) {
+                    double valor = Double.parseDouble(arg);
+                    Integer indice = indiceConstantes.get(Double.doubleToLongBits(valor));
+                    if (indice == null) {
+                        indice = constantes.size();
+                        constantes.add(valor);
+                        indiceConstantes.put(Double.doubleToLongBits(valor), indice);
+                    }
+                    argumentos[i] = indice;
+                } else if (op == CodigoOperacao.CRCI) {
+                    long valor = Long.parseLong(arg);
+                    Integer indice = indiceConstantesInteiras.get(valor);
+                    if (indice == null) {
+                        indice = constantesInteiras.size();
+                        constantesInteiras.add(valor);
+                        indiceConstantesInteiras.put(valor, indice);
+                    }
+                    argumentos[i] = indice;
+                } else {
+                    argumentos[i] = Integer.parseInt(arg);
+                }
+                if (CodigoOperacao.acessaMemoria(op)) {
+                    tamanhoMemoria = Math.max(tamanhoMemoria, argumentos[i] + 1);
+                }
+            } catch (NumberFormatException e) {
+                throw new RuntimeException("ERRO: Argumento inválido na posição " + i + ": " + inst);
+            }
+        }
+
+        double[] tabela = new double[constantes.size()];
+        for (int i = 0; i < tabela.length; i++) {
+            tabela[i] = constantes.get(i);
+        }
+        long[] tabelaInteiras = new long[constantesInteiras.size()];
+        for (int i = 0; i < tabelaInteiras.length; i++) {
+            tabelaInteiras[i] = constantesInteiras.get(i);
+        }
+        String[] nomes = new String[Math.max(maiorProcedimento + 1,
+                nomesProcedimentos != null ? nomesProcedimentos.size() : 0)];
+        for (int i = 0; i < nomes.length; i++) {
+            nomes[i] = nomesProcedimentos != null && i < nomesProcedimentos.size() ? nomesProcedimentos.get(i)
+                    : i == 0 ? "principal" : "procedimento" + i;
+        }
+        return new ProgramaDecodificado(operacoes, argumentos, tabela, tamanhoMemoria, 0, linhas, procedimentos,
+                nomes, tamanhoMemoria, new int[nomes.length], new int[nomes.length], tabelaInteiras);
+    }
+
+    // aceita comentários no fim da linha, como em "DSVI 71 #funcao um"
+    private static String limparArgumento(String arg) {
+        if (arg == null) {
+            return "";
+        }
+        int comentario = arg.indexOf('#');
+        if (comentario >= 0) {
+            arg = arg.substring(0, comentario);
+        }
+        return arg.trim();
+    }
+
+    private void validar() {
+        if (tamanhoMemoria < 0) {
+            throw new RuntimeException("ERRO: Tamanho de memória inválido: " + tamanhoMemoria);
+        }
+        if (operacoes.length > 0 && (pontoEntrada < 0 || pontoEntrada >= operacoes.length)) {
+            throw new RuntimeException("ERRO: Ponto de entrada inválido: " + pontoEntrada);
+        }
+        for (int i = 0; i < operacoes.length; i++) {
+            int op = operacoes[i];
+            if (op < 0 || op >= CodigoOperacao.quantidade()) {
+                throw new RuntimeException("ERRO: Instrução desconhecida na posição " + i + ": " + op);
+            }
+            int arg = argumentos[i];
+            if (CodigoOperacao.ehDesvio(op) && (arg < 0 || arg > operacoes.length)) {
+                throw new RuntimeException("ERRO: Desvio para fora do programa na posição " + i + ": " + arg);
+            }
+            if (op == CodigoOperacao.CRCT && (arg < 0 || arg >= constantes.length)) {
+                throw new RuntimeException("ERRO: Constante inexistente na posição " + i + ": " + arg);
+            }
+            if (op == CodigoOperacao.CRCI && (arg < 0 || arg >= constantesInteiras.length)) {
+                throw new RuntimeException("ERRO: Constante inteira inexistente na posição " + i + ": " + arg);
+            }
+            if (CodigoOperacao.acessaMemoria(op) && (arg < 0 || arg >= tamanhoMemoria)) {
+                throw new RuntimeException("ERRO: Endereço fora da memória na posição " + i + ": " + arg);
+            }
+            if (linhas[i] < 0 || procedimentos[i] < 0 || procedimentos[i] >= nomesProcedimentos.length) {
+                throw new RuntimeException("ERRO: Informação de depuração inválida na posição " + i);
+            }
+        }
+        if (tamanhoGlobais < 0 || tamanhoGlobais > tamanhoMemoria) {
+            throw new RuntimeException("ERRO: Tamanho das variáveis globais inválido: " + tamanhoGlobais);
+        }
+        for (int p = 0; p < basesQuadros.length; p++) {
+            if (tamanhosQuadros[p] < 0 || basesQuadros[p] < 0
+                    || (long) basesQuadros[p] + tamanhosQuadros[p] > tamanhoMemoria) {
+                throw new RuntimeException("ERRO: Quadro inválido para o procedimento " + nomesProcedimentos[p]);
+            }
+        }
+    }
+
+    public int tamanho() {
+        return operacoes.length;
+    }
+
+    public int getTamanhoMemoria() {
+        return tamanhoMemoria;
+    }
+
+    public int getPontoEntrada() {
+        return pontoEntrada;
+    }
+
+    public int getOperacao(int indice) {
+        return operacoes[indice];
+    }
+
+    public int getOperacaoExecucao(int indice) {
+        return execucao[indice];
+    }
+
+    public int getArgumento(int indice) {
+        return argumentos[indice];
+    }
+
+    public double getConstante(int indice) {
+        return constantes[indice];
+    }
+
+    public int quantidadeConstantes() {
+        return constantes.length;
+    }
+
+    public long getConstanteInteira(int indice) {
+        return constantesInteiras[indice];
+    }
+
+    public int quantidadeConstantesInteiras() {
+        return constantesInteiras.length;
+    }
+
+    // 0 se o código não veio do compilador (texto, objeto da versão 1)
+    public int getLinha(int indice) {
+        return linhas[indice];
+    }
+
+    public int getProcedimento(int indice) {
+        return procedimentos[indice];
+    }
+
+    public String getNomeProcedimento(int procedimento) {
+        return nomesProcedimentos[procedimento];
+    }
+
+    public int quantidadeProcedimentos() {
+        return nomesProcedimentos.length;
+    }
+
+    // endereços 0 a getTamanhoGlobais()-1; sem tabela de quadros, toda a memória
+    public int getTamanhoGlobais() {
+        return tamanhoGlobais;
+    }
+
+    public int getBaseQuadro(int procedimento) {
+        return basesQuadros[procedimento];
+    }
+
+    public int getTamanhoQuadro(int procedimento) {
+        return tamanhosQuadros[procedimento];
+    }
+
+    public boolean temLinhas() {
+        for (int linha : linhas) {
+            if (linha != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // acesso direto aos vetores, usado pelo laço da VM
+    int[] operacoes() {
+        return operacoes;
+    }
+
+    int[] execucao() {
+        return execucao;
+    }
+
+    int[] argumentos() {
+        return argumentos;
+    }
+
+    double[] constantes() {
+        return constantes;
+    }
+
+    long[] constantesInteiras() {
+        return constantesInteiras;
+    }
+
+    int[] linhas() {
+        return linhas;
+    }
+
+    int[] procedimentos() {
+        return procedimentos;
+    }
+
+    int[] quadroNaEntrada() {
+        return quadroNaEntrada;
+    }
+
+    int[] basesQuadros() {
+        return basesQuadros;
+    }
+
+    int[] tamanhosQuadros() {
+        return tamanhosQuadros;
+    }
+
+    public Instrucao getInstrucao(int indice) {
+        int op = operacoes[indice];
+        String nome = CodigoOperacao.nome(op);
+        Instrucao inst;
+        if (op == CodigoOperacao.CRCT) {
+            inst = new Instrucao(nome, constantes[argumentos[indice]]);
+        } else if (op == CodigoOperacao.CRCI) {
+            inst = new Instrucao(nome, constantesInteiras[argumentos[indice]]);
+        } else if (CodigoOperacao.temArgumento(op)) {
+            inst = new Instrucao(nome, argumentos[indice]);
+        } else {
+            inst = new Instrucao(nome);
+        }
+        inst.setOrigem(linhas[indice], procedimentos[indice]);
+        return inst;
+    }
+
+    public List<String> getNomesProcedimentos() {
+        return List.of(nomesProcedimentos);
+    }
+
+    public List<Instrucao> paraInstrucoes() {
+        List<Instrucao> codigo = new ArrayList<>(operacoes.length);
+        for (int i = 0; i < operacoes.length; i++) {
+            codigo.add(getInstrucao(i));
+        }
+        return codigo;
+    }
+}
@@ -0,0 +1,105 @@
+package compilador;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// A parte imutável de uma execução: o programa decodificado e o que é construído
+// sobre ele uma vez só, o CompiladorJit (que pode ser usado por várias threads), a
+// cadeia de nós do MotorNos ou o código de registradores do MotorRegistros. O
+// estado de cada execução (memória, pilhas, pc, entrada e saída) fica na
+// MaquinaVirtual, então várias máquinas podem executar o mesmo ProgramaExecutavel
+// ao mesmo tempo, e as regiões que o JIT compila numa execução valem para as
+// seguintes.
+//
+// Guarda também as máquinas livres para o HospedeiroExecucao e o executar()
+// reaproveitarem: elas somem junto com o programa quando ele deixa de ser usado.
+public final class ProgramaExecutavel {
+
+    private final ProgramaDecodificado programa;
+    private final CompiladorJit jit;
+    private final MotorNos motorNos;
+    private final MotorRegistros motorRegistros;
+    private final ConcurrentLinkedQueue<MaquinaVirtual> livres = new ConcurrentLinkedQueue<>();
+
+    // jit null executa só pelo interpretador
+    public ProgramaExecutavel(ProgramaDecodificado programa, CompiladorJit jit) {
+        this(programa, jit, null, null);
+    }
+
+    public ProgramaExecutavel(ProgramaDecodificado programa, MaquinaVirtual.Motor motor) {
+        this(programa, motor == MaquinaVirtual.Motor.INTERPRETADOR ? new CompiladorJit(programa) : null,
+                motor == MaquinaVirtual.Motor.NOS ? MotorNos.construir(programa) : null,
+                motor == MaquinaVirtual.Motor.REGISTROS ? MotorRegistros.construir(programa) : null);
+    }
+
+    private ProgramaExecutavel(ProgramaDecodificado programa, CompiladorJit jit, MotorNos motorNos,
+            MotorRegistros motorRegistros) {
+        this.programa = programa;
+        this.jit = jit;
+        this.motorNos = motorNos;
+        this.motorRegistros = motorRegistros;
+    }
+
+    public ProgramaDecodificado getPrograma() {
+        return programa;
+    }
+
+    CompiladorJit getJit() {
+        return jit;
+    }
+
+    MotorNos getMotorNos() {
+        return motorNos;
+    }
+
+    MotorRegistros getMotorRegistros() {
+        return motorRegistros;
+    }
+
+    // executa na thread que chamou, com uma máquina do pool; devolve as instruções
+    // executadas e lança RuntimeException nos erros de execução
+    public long executar(InputStream entrada, PrintStream saida) {
+        MaquinaVirtual vm = obterMaquina();
+        vm.reiniciar(entrada, saida);
+        return executar(vm);
+    }
+
+    public long executar(EntradaVM entrada, SaidaVM saida) {
+        MaquinaVirtual vm = obterMaquina();
+        vm.reiniciar(entrada, saida);
+        return executar(vm);
+    }
+
+    private long executar(MaquinaVirtual vm) {
+        try {
+            vm.executar();
+            return vm.getInstrucoesExecutadas();
+        } finally {
+            devolverMaquina(vm);
+        }
+    }
+
+    // o código objeto no formato do ArquivoObjeto, para guardar ou enviar
+    public ByteBuffer serializar() {
+        return ArquivoObjeto.codificar(programa);
+    }
+
+    public void salvar(Path caminho) throws IOException {
+        ArquivoObjeto.salvar(programa, caminho);
+    }
+
+    // uma máquina livre já reiniciada, ou uma nova
+    MaquinaVirtual obterMaquina() {
+        MaquinaVirtual vm = livres.poll();
+        return vm != null ? vm : new MaquinaVirtual(this);
+    }
+
+    void devolverMaquina(MaquinaVirtual vm) {
+        vm.reiniciar();
+        livres.offer(vm);
+    }
+}
@@ -0,0 +1,9 @@
+package compilador;
+
+// Trecho do programa traduzido para bytecode da JVM pelo CompiladorJit. Roda sobre
+// a mesma memória do interpretador (as faixas real e inteira) e retorna o índice
+// da instrução em que o interpretador deve continuar.
+interface RegiaoCompilada {
+
+    int executar(double[] memoria, long[] memoriaInteira, MaquinaVirtual maquina);
+}
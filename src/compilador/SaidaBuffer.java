@@ -0,0 +1,192 @@
+package compilador;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+// Escreve a saída da VM num buffer de bytes reaproveitado e só passa para o
+// OutputStream quando ele enche, quando a VM vai esperar por entrada ou no fim da
+// execução. Os valores do IMPR são formatados direto no buffer, sem String: os
+// valores inteiros e os que têm até 4 casas decimais, entre 10^-3 e 10^7 (faixa
+// em que o Double.toString não usa notação científica), saem com os mesmos
+// algarismos do Double.toString; os outros passam por ele. Os inteiros do IMPI
+// saem só com os algarismos, sem ".0".
+//
+// Sem "decorada" a saída fica só com os valores, um por linha, sem o prompt do
+// LEIT e sem o prefixo "Saída: ".
+public final class SaidaBuffer implements SaidaVM {
+
+    private static final int TAMANHO_BUFFER = 8 * 1024;
+    private static final int MAX_CASAS_RAPIDAS = 4;
+    private static final double[] POTENCIAS = { 1.0, 10.0, 100.0, 1000.0, 10000.0 };
+
+    private OutputStream saida;
+    private final Charset charset;
+    private final boolean decorada;
+    private final byte[] buffer;
+    private final byte[] prompt;
+    private final byte[] prefixo;
+    private final byte[] quebra;
+    private final byte[] algarismos = new byte[20];
+    private int posicao;
+
+    public SaidaBuffer(OutputStream saida, Charset charset, boolean decorada) {
+        this.saida = saida;
+        this.charset = charset;
+        this.decorada = decorada;
+        this.buffer = new byte[TAMANHO_BUFFER];
+        this.prompt = "Digite um valor: ".getBytes(charset);
+        this.prefixo = "Saída: ".getBytes(charset);
+        this.quebra = System.lineSeparator().getBytes(charset);
+    }
+
+    // no charset padrão, o mesmo que o System.out usa
+    public SaidaBuffer(OutputStream saida) {
+        this(saida, Charset.defaultCharset(), true);
+    }
+
+    // passa a escrever em outro fluxo; o que ainda estiver no buffer é descartado
+    public void reabrir(OutputStream saida) {
+        this.saida = saida;
+        posicao = 0;
+    }
+
+    @Override
+    public void prompt() {
+        if (decorada) {
+            escrever(prompt, 0, prompt.length);
+        }
+    }
+
+    @Override
+    public void imprimir(double valor) {
+        if (decorada) {
+            escrever(prefixo, 0, prefixo.length);
+        }
+        // 1 sinal + 8 da parte inteira + "." + 4 casas sempre cabem
+        if (buffer.length - posicao < 16) {
+            descarregarBuffer();
+        }
+        if (!formatarRapido(valor)) {
+            String texto = Double.toString(valor);
+            for (int i = 0; i < texto.length(); i++) {
+                if (posicao == buffer.length) {
+                    descarregarBuffer();
+                }
+                buffer[posicao++] = (byte) texto.charAt(i); // só caracteres ASCII
+            }
+        }
+        escrever(quebra, 0, quebra.length);
+    }
+
+    @Override
+    public void imprimir(long valor) {
+        if (decorada) {
+            escrever(prefixo, 0, prefixo.length);
+        }
+        // sinal + 19 algarismos
+        if (buffer.length - posicao < 20) {
+            descarregarBuffer();
+        }
+        if (valor < 0) {
+            buffer[posicao++] = '-';
+        }
+        // com o resto negativo, Long.MIN_VALUE também funciona
+        int n = 0;
+        long resto = valor < 0 ? valor : -valor;
+        do {
+            algarismos[n++] = (byte) ('0' - resto % 10);
+            resto /= 10;
+        } while (resto != 0);
+        for (int i = n - 1; i >= 0; i--) {
+            buffer[posicao++] = algarismos[i];
+        }
+        escrever(quebra, 0, quebra.length);
+    }
+
+    // false se o valor precisa do Double.toString
+    private boolean formatarRapido(double valor) {
+        double absoluto = Math.abs(valor);
+        if (!(absoluto >= 1e-3 && absoluto < 1e7)) {
+            return false;
+        }
+        for (int casas = 0; casas <= MAX_CASAS_RAPIDAS; casas++) {
+            double escala = POTENCIAS[casas];
+            long inteiro = Math.round(absoluto * escala);
+            if (inteiro / escala == absoluto) {
+                if (valor < 0) {
+                    buffer[posicao++] = '-';
+                }
+                escreverDecimal(inteiro, casas);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "inteiro" com "casas" algarismos depois do ponto, no mínimo um (1.0, 0.25)
+    private void escreverDecimal(long inteiro, int casas) {
+        int n = 0;
+        do {
+            algarismos[n++] = (byte) ('0' + inteiro % 10);
+            inteiro /= 10;
+        } while (inteiro != 0);
+        while (n <= casas) { // zeros à esquerda de 0.05
+            algarismos[n++] = '0';
+        }
+        for (int i = n - 1; i >= casas; i--) {
+            buffer[posicao++] = algarismos[i];
+        }
+        buffer[posicao++] = '.';
+        if (casas == 0) {
+            buffer[posicao++] = '0';
+        }
+        for (int i = casas - 1; i >= 0; i--) {
+            buffer[posicao++] = algarismos[i];
+        }
+    }
+
+    @Override
+    public void linha(String texto) {
+        byte[] bytes = texto.getBytes(charset);
+        escrever(bytes, 0, bytes.length);
+        escrever(quebra, 0, quebra.length);
+    }
+
+    @Override
+    public void descarregar() {
+        descarregarBuffer();
+        try {
+            saida.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("ERRO: falha ao escrever a saída: " + e.getMessage());
+        }
+    }
+
+    private void escrever(byte[] bytes, int inicio, int tamanho) {
+        if (tamanho > buffer.length - posicao) {
+            descarregarBuffer();
+            if (tamanho > buffer.length) {
+                escreverDireto(bytes, inicio, tamanho);
+                return;
+            }
+        }
+        System.arraycopy(bytes, inicio, buffer, posicao, tamanho);
+        posicao += tamanho;
+    }
+
+    private void descarregarBuffer() {
+        if (posicao > 0) {
+            escreverDireto(buffer, 0, posicao);
+            posicao = 0;
+        }
+    }
+
+    private void escreverDireto(byte[] bytes, int inicio, int tamanho) {
+        try {
+            saida.write(bytes, inicio, tamanho);
+        } catch (IOException e) {
+            throw new RuntimeException("ERRO: falha ao escrever a saída: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package compilador;
+
+import java.util.Arrays;
+
+// Guarda os valores do IMPR e do IMPI num vetor, para testes e benchmarks; os
+// inteiros entram convertidos para double. O prompt e as linhas de texto da VM
+// são descartados.
+public final class SaidaMemoria implements SaidaVM {
+
+    private double[] valores = new double[16];
+    private int quantidade;
+
+    @Override
+    public void prompt() {
+    }
+
+    @Override
+    public void imprimir(double valor) {
+        if (quantidade == valores.length) {
+            valores = Arrays.copyOf(valores, quantidade * 2);
+        }
+        valores[quantidade++] = valor;
+    }
+
+    @Override
+    public void imprimir(long valor) {
+        imprimir((double) valor);
+    }
+
+    @Override
+    public void linha(String texto) {
+    }
+
+    @Override
+    public void descarregar() {
+    }
+
+    public double[] getValores() {
+        return Arrays.copyOf(valores, quantidade);
+    }
+
+    public int quantidade() {
+        return quantidade;
+    }
+
+    public void limpar() {
+        quantidade = 0;
+    }
+}
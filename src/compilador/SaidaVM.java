@@ -0,0 +1,20 @@
+package compilador;
+
+// Para onde vão o IMPR, o prompt do LEIT e as mensagens da VM. A implementação
+// padrão é a SaidaBuffer sobre System.out; a SaidaMemoria guarda os valores num
+// vetor.
+public interface SaidaVM {
+
+    // "Digite um valor: " antes de cada LEIT, se a saída mostrar o prompt
+    void prompt();
+
+    void imprimir(double valor);
+
+    // IMPI: um inteiro, sem casas decimais
+    void imprimir(long valor);
+
+    // uma linha de texto (cabeçalhos, relatório da pilha, erros)
+    void linha(String texto);
+
+    void descarregar();
+}
@@ -0,0 +1,444 @@
+package compilador;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Scanner orientado a bytes, para fontes grandes: lê direto de um ByteBuffer (em
+// geral o arquivo mapeado em memória) sem montar uma String do arquivo inteiro.
+// Cada byte passa por uma tabela de 256 classes de caractere, e os tokens são
+// reconhecidos por um autômato com tabela de transições. Palavras reservadas são
+// achadas por um hash perfeito calculado sobre os bytes do lexema, sem cópia em
+// minúsculas. Gera os mesmos tokens que o ScannerLexico; a diferença é que bytes
+// acima de 127 (letras acentuadas em UTF-8) contam sempre como letra.
+public class ScannerBytes implements AnalisadorLexico {
+
+    // classes de caractere
+    private static final int LETRA = 0;
+    private static final int DIGITO = 1;
+    private static final int SUBLINHADO = 2;
+    private static final int C_PONTO = 3;
+    private static final int C_DOIS_PONTOS = 4;
+    private static final int C_IGUAL = 5;
+    private static final int C_MENOR = 6;
+    private static final int C_MAIOR = 7;
+    private static final int C_MAIS = 8;
+    private static final int C_MENOS = 9;
+    private static final int ASTERISCO = 10;
+    private static final int BARRA = 11;
+    private static final int C_VIRGULA = 12;
+    private static final int C_PONTO_VIRGULA = 13;
+    private static final int C_ABRE_PAREN = 14;
+    private static final int C_FECHA_PAREN = 15;
+    private static final int C_DOLAR = 16;
+    private static final int ESPACO = 17;
+    private static final int NOVA_LINHA = 18;
+    private static final int ABRE_CHAVE = 19;
+    private static final int FIM = 20; // o byte 0 encerra o fonte, como o '\0' do ScannerLexico
+    private static final int OUTRO = 21;
+    private static final int CLASSES = 22;
+
+    private static final byte[] CLASSE = new byte[256];
+
+    // estados do autômato; os de operador simples são criados a partir da tabela SIMPLES
+    private static final int INICIO = 0;
+    private static final int E_IDENT = 1;
+    private static final int E_INTEIRO = 2;
+    private static final int E_INTEIRO_PONTO = 3; // "12." ainda sem dígito depois
+    private static final int E_REAL = 4;
+    private static final int E_DOIS_PONTOS = 5;
+    private static final int E_ATRIB = 6;
+    private static final int E_MENOR = 7;
+    private static final int E_MENOR_IGUAL = 8;
+    private static final int E_DIFERENTE = 9;
+    private static final int E_MAIOR = 10;
+    private static final int E_MAIOR_IGUAL = 11;
+    private static final int PRIMEIRO_SIMPLES = 12;
+
+    private static final Object[][] SIMPLES = {
+            { C_MAIS, Token.MAIS, "+" },
+            { C_MENOS, Token.MENOS, "-" },
+            { ASTERISCO, Token.MULT, "*" },
+            { BARRA, Token.DIV, "/" },
+            { C_IGUAL, Token.IGUAL, "=" },
+            { C_PONTO, Token.PONTO, "." },
+            { C_VIRGULA, Token.VIRGULA, "," },
+            { C_PONTO_VIRGULA, Token.PONTO_VIRGULA, ";" },
+            { C_ABRE_PAREN, Token.ABRE_PAREN, "(" },
+            { C_FECHA_PAREN, Token.FECHA_PAREN, ")" },
+            { C_DOLAR, Token.DOLAR, "$" }
+    };
+
+    private static final int ESTADOS = PRIMEIRO_SIMPLES + SIMPLES.length;
+    private static final byte[] TRANSICAO = new byte[ESTADOS * CLASSES];
+    private static final Token[] ACEITA = new Token[ESTADOS];
+    private static final String[] LEXEMA = new String[ESTADOS]; // lexema fixo dos operadores
+    // classes (em bits) que mantêm o estado nele mesmo; identificadores e números
+    // passam a maior parte do tempo nesses laços, que não precisam consultar a tabela
+    private static final int[] LACO = new int[ESTADOS];
+
+    // Hash perfeito das palavras reservadas: tamanho + valor da 1ª, da 2ª e da última
+    // letra. Letras que não aparecem nessas posições valem TAMANHO_TABELA, o que já
+    // descarta o identificador. O "| 0x20" ignora a caixa sem criar outra String.
+    private static final int TAMANHO_TABELA = 32;
+    private static final int MAIOR_PALAVRA = 9;
+    private static final int[] VALOR_LETRA = new int[256];
+    private static final byte[][] PALAVRAS = new byte[TAMANHO_TABELA][];
+    private static final String[] TEXTO_PALAVRAS = new String[TAMANHO_TABELA];
+    private static final Token[] TOKEN_PALAVRAS = new Token[TAMANHO_TABELA];
+
+    // Os mesmos identificadores e números se repetem muito; uma cache direta pelo
+    // hash dos bytes devolve a String já criada em vez de alocar outra.
+    private static final int TAMANHO_CACHE = 4096;
+
+    static {
+        Arrays.fill(CLASSE, (byte) OUTRO);
+        for (int c = 'a'; c <= 'z'; c++) {
+            CLASSE[c] = LETRA;
+            CLASSE[c - 'a' + 'A'] = LETRA;
+        }
+        for (int c = 0x80; c < 0x100; c++) {
+            CLASSE[c] = LETRA;
+        }
+        for (int c = '0'; c <= '9'; c++) {
+            CLASSE[c] = DIGITO;
+        }
+        CLASSE['_'] = SUBLINHADO;
+        CLASSE['.'] = C_PONTO;
+        CLASSE[':'] = C_DOIS_PONTOS;
+        CLASSE['='] = C_IGUAL;
+        CLASSE['<'] = C_MENOR;
+        CLASSE['>'] = C_MAIOR;
+        CLASSE['+'] = C_MAIS;
+        CLASSE['-'] = C_MENOS;
+        CLASSE['*'] = ASTERISCO;
+        CLASSE['/'] = BARRA;
+        CLASSE[','] = C_VIRGULA;
+        CLASSE[';'] = C_PONTO_VIRGULA;
+        CLASSE['('] = C_ABRE_PAREN;
+        CLASSE[')'] = C_FECHA_PAREN;
+        CLASSE['$'] = C_DOLAR;
+        CLASSE[' '] = ESPACO;
+        CLASSE['\t'] = ESPACO;
+        CLASSE['\r'] = ESPACO;
+        CLASSE['\n'] = NOVA_LINHA;
+        CLASSE['{'] = ABRE_CHAVE;
+        CLASSE[0] = FIM;
+
+        Arrays.fill(TRANSICAO, (byte) -1);
+        transicao(INICIO, LETRA, E_IDENT);
+        transicao(E_IDENT, LETRA, E_IDENT);
+        transicao(E_IDENT, DIGITO, E_IDENT);
+        transicao(E_IDENT, SUBLINHADO, E_IDENT);
+        transicao(INICIO, DIGITO, E_INTEIRO);
+        transicao(E_INTEIRO, DIGITO, E_INTEIRO);
+        transicao(E_INTEIRO, C_PONTO, E_INTEIRO_PONTO);
+        transicao(E_INTEIRO_PONTO, DIGITO, E_REAL);
+        transicao(E_REAL, DIGITO, E_REAL);
+        transicao(INICIO, C_DOIS_PONTOS, E_DOIS_PONTOS);
+        transicao(E_DOIS_PONTOS, C_IGUAL, E_ATRIB);
+        transicao(INICIO, C_MENOR, E_MENOR);
+        transicao(E_MENOR, C_IGUAL, E_MENOR_IGUAL);
+        transicao(E_MENOR, C_MAIOR, E_DIFERENTE);
+        transicao(INICIO, C_MAIOR, E_MAIOR);
+        transicao(E_MAIOR, C_IGUAL, E_MAIOR_IGUAL);
+
+        ACEITA[E_IDENT] = Token.IDENT;
+        ACEITA[E_INTEIRO] = Token.NUMERO_INT;
+        ACEITA[E_REAL] = Token.NUMERO_REAL;
+        aceitar(E_DOIS_PONTOS, Token.DOIS_PONTOS, ":");
+        aceitar(E_ATRIB, Token.ATRIB, ":=");
+        aceitar(E_MENOR, Token.MENOR, "<");
+        aceitar(E_MENOR_IGUAL, Token.MENOR_IGUAL, "<=");
+        aceitar(E_DIFERENTE, Token.DIFERENTE, "<>");
+        aceitar(E_MAIOR, Token.MAIOR, ">");
+        aceitar(E_MAIOR_IGUAL, Token.MAIOR_IGUAL, ">=");
+        for (int i = 0; i < SIMPLES.length; i++) {
+            transicao(INICIO, (Integer) SIMPLES[i][0], PRIMEIRO_SIMPLES + i);
+            aceitar(PRIMEIRO_SIMPLES + i, (Token) SIMPLES[i][1], (String) SIMPLES[i][2]);
+        }
+
+        Arrays.fill(VALOR_LETRA, TAMANHO_TABELA);
+        String letras = "abdefhilmnoprtvw";
+        int[] valores = { 5, 11, 1, 4, 4, 3, 9, 10, 7, 0, 1, 12, 0, 10, 4, 1 };
+        for (int i = 0; i < letras.length(); i++) {
+            VALOR_LETRA[letras.charAt(i)] = valores[i];
+        }
+        palavra("program", Token.PROGRAM);
+        palavra("begin", Token.BEGIN);
+        palavra("end", Token.END);
+        palavra("if", Token.IF);
+        palavra("then", Token.THEN);
+        palavra("else", Token.ELSE);
+        palavra("while", Token.WHILE);
+        palavra("do", Token.DO);
+        palavra("procedure", Token.PROCEDURE);
+        palavra("var", Token.VAR);
+        palavra("read", Token.READ);
+        palavra("write", Token.WRITE);
+        palavra("real", Token.REAL);
+        palavra("integer", Token.INTEGER);
+    }
+
+    private static void transicao(int estado, int classe, int destino) {
+        TRANSICAO[estado * CLASSES + classe] = (byte) destino;
+        if (estado == destino) {
+            LACO[estado] |= 1 << classe;
+        }
+    }
+
+    private static void aceitar(int estado, Token tipo, String lexema) {
+        ACEITA[estado] = tipo;
+        LEXEMA[estado] = lexema;
+    }
+
+    private static void palavra(String texto, Token tipo) {
+        byte[] bytes = texto.getBytes(StandardCharsets.US_ASCII);
+        int h = hash(bytes.length, bytes[0], bytes[1], bytes[bytes.length - 1]);
+        if (h >= TAMANHO_TABELA || PALAVRAS[h] != null) {
+            throw new IllegalStateException("Hash das palavras reservadas não é perfeito: " + texto);
+        }
+        PALAVRAS[h] = bytes;
+        TEXTO_PALAVRAS[h] = texto;
+        TOKEN_PALAVRAS[h] = tipo;
+    }
+
+    private static int hash(int tamanho, byte primeira, byte segunda, byte ultima) {
+        return tamanho + VALOR_LETRA[(primeira | 0x20) & 0xFF] + VALOR_LETRA[(segunda | 0x20) & 0xFF]
+                + VALOR_LETRA[(ultima | 0x20) & 0xFF];
+    }
+
+    private final ByteBuffer fonte;
+    private final int limite;
+    private int posicao;
+    private int linha;
+    private byte[] lexema = new byte[64];
+    private final String[] cacheTextos = new String[TAMANHO_CACHE];
+    private final byte[][] cacheBytes = new byte[TAMANHO_CACHE][];
+    private int fimToken;
+    private int hashToken;
+
+    public ScannerBytes(ByteBuffer fonte) {
+        this.fonte = fonte;
+        this.posicao = fonte.position();
+        this.limite = fonte.limit();
+        this.linha = 1;
+    }
+
+    public ScannerBytes(byte[] fonte) {
+        this(ByteBuffer.wrap(fonte));
+    }
+
+    // mapeia o arquivo em memória; o mapeamento continua válido depois de fechar o canal
+    public static ScannerBytes abrir(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            return new ScannerBytes(canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size()));
+        }
+    }
+
+    private int classe(int pos) {
+        return pos < limite ? CLASSE[fonte.get(pos) & 0xFF] : FIM;
+    }
+
+    private boolean eh(int pos, char c) {
+        return pos < limite && fonte.get(pos) == c;
+    }
+
+    private void pularEspacosEComentarios() {
+        while (true) {
+            switch (classe(posicao)) {
+                case ESPACO:
+                    posicao++;
+                    break;
+                case NOVA_LINHA:
+                    linha++;
+                    posicao++;
+                    break;
+                case ABRE_CHAVE:
+                    posicao++;
+                    while (!eh(posicao, '}') && classe(posicao) != FIM) {
+                        if (eh(posicao, '\n')) {
+                            linha++;
+                        }
+                        posicao++;
+                    }
+                    posicao++;
+                    break;
+                case BARRA:
+                    if (!eh(posicao + 1, '*')) {
+                        return;
+                    }
+                    posicao += 2;
+                    while (!(eh(posicao, '*') && eh(posicao + 1, '/')) && classe(posicao) != FIM) {
+                        if (eh(posicao, '\n')) {
+                            linha++;
+                        }
+                        posicao++;
+                    }
+                    posicao += 2;
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    public TokenInformacoes proximoToken() {
+        pularEspacosEComentarios();
+
+        if (classe(posicao) == FIM) {
+            return new TokenInformacoes(Token.EOF, "", linha);
+        }
+
+        int inicio = posicao;
+        int estado = reconhecer();
+        if (LEXEMA[estado] != null) {
+            return new TokenInformacoes(ACEITA[estado], LEXEMA[estado], linha);
+        }
+        int tamanho = fimToken - inicio;
+        if (estado == E_IDENT) {
+            int h = palavraReservada(inicio, tamanho);
+            if (h >= 0) {
+                String lexema = minusculas(inicio, tamanho) ? TEXTO_PALAVRAS[h] : texto(inicio, tamanho, hashToken);
+                return new TokenInformacoes(TOKEN_PALAVRAS[h], lexema, linha);
+            }
+        }
+        return new TokenInformacoes(ACEITA[estado], texto(inicio, tamanho, hashToken), linha);
+    }
+
+    // Lê o fonte inteiro para um BufferTokens, sem criar TokenInformacoes nem Strings:
+    // identificadores e números guardam só o id do lexema internado.
+    public BufferTokens tokenizar() {
+        // fontes típicos têm pouco mais de um token a cada quatro bytes
+        BufferTokens tokens = new BufferTokens(fonte, Math.max(16, (limite - posicao) / 4 + 16));
+        while (true) {
+            pularEspacosEComentarios();
+            int inicio = posicao;
+            if (classe(posicao) == FIM) {
+                tokens.adicionar(Token.EOF, inicio, 0, linha, -1);
+                return tokens;
+            }
+            int estado;
+            try {
+                estado = reconhecer();
+            } catch (RuntimeException e) {
+                // guardado para o Parser lançar ao chegar nele, como no modo token a token
+                tokens.falhar(e.getMessage());
+                return tokens;
+            }
+            int tamanho = fimToken - inicio;
+            Token tipo = ACEITA[estado];
+            int id = -1;
+            if (LEXEMA[estado] == null) {
+                int h = estado == E_IDENT ? palavraReservada(inicio, tamanho) : -1;
+                if (h >= 0) {
+                    tipo = TOKEN_PALAVRAS[h];
+                } else {
+                    id = tokens.internar(inicio, tamanho, hashToken);
+                }
+            }
+            tokens.adicionar(tipo, inicio, tamanho, linha, id);
+        }
+    }
+
+    // Anda pelo autômato a partir da posição atual enquanto houver transição e volta
+    // ao último estado de aceitação ("12." seguido de algo que não é dígito devolve só
+    // "12"). Devolve o estado aceito; o fim e o hash do lexema ficam em fimToken e
+    // hashToken, e a posição avança até o fim.
+    private int reconhecer() {
+        int inicio = posicao;
+        int estado = INICIO;
+        int fimAceito = -1;
+        int estadoAceito = INICIO;
+        int pos = inicio;
+        int hash = 0; // hash do lexema para a cache, calculado na mesma passada
+        int hashAceito = 0;
+        while (pos < limite) {
+            byte b = fonte.get(pos);
+            int proximo = TRANSICAO[estado * CLASSES + CLASSE[b & 0xFF]];
+            if (proximo < 0) {
+                break;
+            }
+            estado = proximo;
+            pos++;
+            hash = 31 * hash + b;
+            int laco = LACO[estado];
+            while (laco != 0 && pos < limite && ((laco >>> CLASSE[(b = fonte.get(pos)) & 0xFF]) & 1) != 0) {
+                pos++;
+                hash = 31 * hash + b;
+            }
+            if (ACEITA[estado] != null) {
+                fimAceito = pos;
+                estadoAceito = estado;
+                hashAceito = hash;
+            }
+        }
+
+        if (fimAceito < 0) {
+            char charInvalido = (char) (fonte.get(inicio) & 0xFF);
+            posicao = inicio + 1;
+            throw new RuntimeException("Erro léxico na linha" + linha + ": caractere inválido'" + charInvalido + "'");
+        }
+        posicao = fimAceito;
+        fimToken = fimAceito;
+        hashToken = hashAceito;
+        return estadoAceito;
+    }
+
+    // índice da palavra reservada com esse lexema (em qualquer caixa), ou -1
+    private int palavraReservada(int inicio, int tamanho) {
+        if (tamanho < 2 || tamanho > MAIOR_PALAVRA) {
+            return -1;
+        }
+        int h = hash(tamanho, fonte.get(inicio), fonte.get(inicio + 1), fonte.get(inicio + tamanho - 1));
+        if (h >= TAMANHO_TABELA || PALAVRAS[h] == null || PALAVRAS[h].length != tamanho) {
+            return -1;
+        }
+        byte[] palavra = PALAVRAS[h];
+        for (int i = 0; i < tamanho; i++) {
+            if ((fonte.get(inicio + i) | 0x20) != palavra[i]) {
+                return -1;
+            }
+        }
+        return h;
+    }
+
+    private boolean minusculas(int inicio, int tamanho) {
+        for (int i = 0; i < tamanho; i++) {
+            if (fonte.get(inicio + i) < 'a') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String texto(int inicio, int tamanho, int h) {
+        if (lexema.length < tamanho) {
+            lexema = new byte[Math.max(tamanho, lexema.length * 2)];
+        }
+        fonte.get(inicio, lexema, 0, tamanho);
+        int indice = (h ^ (h >>> 12)) & (TAMANHO_CACHE - 1);
+        byte[] emCache = cacheBytes[indice];
+        if (emCache != null && Arrays.equals(lexema, 0, tamanho, emCache, 0, emCache.length)) {
+            return cacheTextos[indice];
+        }
+        String texto = decodificar(lexema, tamanho);
+        cacheBytes[indice] = Arrays.copyOf(lexema, tamanho);
+        cacheTextos[indice] = texto;
+        return texto;
+    }
+
+    // ASCII puro vira String direto; com bytes acima de 127 o lexema é UTF-8
+    static String decodificar(byte[] bytes, int tamanho) {
+        for (int i = 0; i < tamanho; i++) {
+            if (bytes[i] < 0) {
+                return new String(bytes, 0, tamanho, StandardCharsets.UTF_8);
+            }
+        }
+        return new String(bytes, 0, tamanho, StandardCharsets.ISO_8859_1);
+    }
+}
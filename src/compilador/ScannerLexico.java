@@ -3,7 +3,7 @@ package compilador;
 import java.util.HashMap;
 import java.util.Map;
 
-public class ScannerLexico {
+public class ScannerLexico implements AnalisadorLexico {
     private String codigoFonte;
     private int posicao;
     private int linha;
@@ -0,0 +1,364 @@
+package compilador;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Servidor residente de compilação e execução num socket Unix local. A JVM fica
+// aberta e o Scanner, o Parser e a VM continuam compilados pelo JIT entre um
+// pedido e outro, então o cliente (ClienteCompilacao) não paga a partida a frio.
+// Cada conexão é atendida numa thread própria, com Parser e MaquinaVirtual
+// próprios.
+//
+// Pedido:   comando (UTF), nº de opções (int), opções (UTF), tamanho do fonte
+//           (int), fonte (bytes UTF-8); o resto da conexão é a entrada do LEIT.
+// Resposta: quadros (tipo byte, tamanho int, conteúdo): SAIDA com a saída do
+//           programa, ERRO com diagnósticos, OBJETO com o .obj e FIM com o
+//           código de saída (int).
+public class ServidorCompilacao {
+
+    public static final byte QUADRO_SAIDA = 1;
+    public static final byte QUADRO_ERRO = 2;
+    public static final byte QUADRO_OBJETO = 3;
+    public static final byte QUADRO_FIM = 4;
+
+    public static final String COMPILAR = "compilar";
+    public static final String EXECUTAR = "executar";
+    public static final String ESTATISTICAS = "estatisticas";
+    public static final String PARAR = "parar";
+
+    private final Path caminhoSocket;
+    private final CacheCompilacao cache;
+    private final Latencias latencias = new Latencias(10_000);
+    private final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "servidor-compilacao");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile MetricasVM metricas;
+    private ServerSocketChannel canal;
+    private volatile boolean ativo;
+
+    // cache null compila sempre
+    public ServidorCompilacao(Path caminhoSocket, CacheCompilacao cache) {
+        this.caminhoSocket = caminhoSocket;
+        this.cache = cache;
+    }
+
+    public static Path socketPadrao() {
+        return Paths.get(System.getProperty("java.io.tmpdir"),
+                "compiladorPascal-" + System.getProperty("user.name") + ".sock");
+    }
+
+    // atende conexões até parar() (ou um pedido "parar"); bloqueia a thread que chamou
+    public void executar() throws IOException {
+        Files.deleteIfExists(caminhoSocket); // socket de um servidor que não saiu direito
+        canal = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        canal.bind(UnixDomainSocketAddress.of(caminhoSocket));
+        ativo = true;
+        System.out.println(">>> Servidor ouvindo em " + caminhoSocket + " <<<");
+        try {
+            while (ativo) {
+                SocketChannel cliente;
+                try {
+                    cliente = canal.accept();
+                } catch (ClosedChannelException e) {
+                    break;
+                }
+                executor.execute(() -> atender(cliente));
+            }
+        } finally {
+            ativo = false;
+            canal.close();
+            executor.shutdown();
+            Files.deleteIfExists(caminhoSocket);
+            System.out.println(">>> Servidor parado. " + latencias.resumo() + " <<<");
+        }
+    }
+
+    public void parar() {
+        ativo = false;
+        try {
+            if (canal != null) {
+                canal.close();
+            }
+        } catch (IOException e) {
+            // já fechado
+        }
+    }
+
+    // métricas da VM somadas de todas as execuções; aparecem também em "estatisticas"
+    public void setMetricas(MetricasVM metricas) {
+        this.metricas = metricas;
+    }
+
+    public Latencias getLatencias() {
+        return latencias;
+    }
+
+    private void atender(SocketChannel cliente) {
+        long inicio = System.nanoTime();
+        String comando = null;
+        try (SocketChannel c = cliente) {
+            InputStream entrada = new BufferedInputStream(entrada(c));
+            DataInputStream pedido = new DataInputStream(entrada);
+            Quadros resposta = new Quadros(new BufferedOutputStream(saida(c)));
+            comando = pedido.readUTF();
+            List<String> opcoes = new ArrayList<>();
+            int quantidade = pedido.readInt();
+            for (int i = 0; i < quantidade; i++) {
+                opcoes.add(pedido.readUTF());
+            }
+            byte[] fonte = new byte[pedido.readInt()];
+            pedido.readFully(fonte);
+
+            int status;
+            switch (comando) {
+                case COMPILAR:
+                case EXECUTAR:
+                    status = compilarOuExecutar(comando, opcoes, fonte, entrada, resposta);
+                    break;
+                case ESTATISTICAS:
+                    MetricasVM m = metricas;
+                    resposta.texto(QUADRO_SAIDA, latencias.resumo() + "\n" + (m == null ? "" : m.instantaneo()));
+                    status = 0;
+                    break;
+                case PARAR:
+                    resposta.texto(QUADRO_SAIDA, "Servidor parando\n");
+                    status = 0;
+                    parar();
+                    break;
+                default:
+                    resposta.texto(QUADRO_ERRO, "Comando desconhecido: " + comando + "\n");
+                    status = 2;
+            }
+            resposta.fim(status);
+        } catch (IOException e) {
+            // cliente desconectou no meio do pedido; não há a quem responder
+        } finally {
+            if (comando != null && !comando.equals(ESTATISTICAS) && !comando.equals(PARAR)) {
+                latencias.registrar(System.nanoTime() - inicio);
+            }
+        }
+    }
+
+    private int compilarOuExecutar(String comando, List<String> opcoes, byte[] fonte, InputStream entrada,
+            Quadros resposta) throws IOException {
+        String regrasPeephole = null;
+        boolean fluxo = true;
+        String superinstrucoes = "todas";
+        String motor = "interpretador";
+        boolean usarJit = true;
+        int limiarJit = CompiladorJit.LIMIAR_PADRAO;
+        boolean relatarPilha = false;
+        boolean decorada = true;
+        try {
+            for (String opcao : opcoes) {
+                if (opcao.equals("--peephole")) {
+                    regrasPeephole = "";
+                } else if (opcao.startsWith("--peephole=")) {
+                    regrasPeephole = opcao.substring("--peephole=".length());
+                } else if (opcao.equals("--sem-fluxo")) {
+                    fluxo = false;
+                } else if (opcao.startsWith("--super=")) {
+                    superinstrucoes = opcao.substring("--super=".length());
+                } else if (opcao.startsWith("--motor=")) {
+                    motor = opcao.substring("--motor=".length());
+                } else if (opcao.equals("--interpretar")) {
+                    usarJit = false;
+                } else if (opcao.startsWith("--jit=")) {
+                    limiarJit = Integer.parseInt(opcao.substring("--jit=".length()));
+                } else if (opcao.equals("--pilha")) {
+                    relatarPilha = true;
+                } else if (opcao.equals("--sem-prompt")) {
+                    decorada = false;
+                } else {
+                    throw new RuntimeException("Opção desconhecida: " + opcao);
+                }
+            }
+
+            ProgramaDecodificado programa = compilar(fonte, regrasPeephole, fluxo);
+            if (comando.equals(COMPILAR)) {
+                ByteBuffer objeto = ArquivoObjeto.codificar(programa);
+                resposta.quadro(QUADRO_OBJETO, objeto.array(), objeto.arrayOffset(), objeto.remaining());
+                return 0;
+            }
+
+            programa = programa.comSuperinstrucoes(Superinstrucoes.lerFusoes(superinstrucoes));
+            MaquinaVirtual vm;
+            if (motor.equalsIgnoreCase("nos")) {
+                vm = new MaquinaVirtual(programa, MaquinaVirtual.Motor.NOS);
+            } else if (motor.equalsIgnoreCase("registros")) {
+                vm = new MaquinaVirtual(programa, MaquinaVirtual.Motor.REGISTROS);
+            } else if (motor.equalsIgnoreCase("interpretador")) {
+                vm = new MaquinaVirtual(programa, usarJit ? new CompiladorJit(programa, limiarJit) : null);
+            } else {
+                throw new RuntimeException("Motor de execução desconhecido: " + motor);
+            }
+            vm.setEntrada(entrada);
+            vm.setSaida(new SaidaBuffer(resposta.fluxo(QUADRO_SAIDA), StandardCharsets.UTF_8, decorada));
+            vm.setRelatarPilha(relatarPilha);
+            vm.setMetricas(metricas);
+            vm.executar(); // descarrega a saída do programa mesmo se der erro
+            return 0;
+        } catch (RuntimeException e) {
+            resposta.texto(QUADRO_ERRO, e.getMessage() + "\n");
+            return 1;
+        } catch (StackOverflowError e) {
+            resposta.texto(QUADRO_ERRO, "Programa aninhado demais para o Parser (estouro de pilha)\n");
+            return 1;
+        }
+    }
+
+    private ProgramaDecodificado compilar(byte[] fonte, String regrasPeephole, boolean fluxo) throws IOException {
+        if (cache == null) {
+            return CompiladorLote.compilarFonte(new String(fonte, StandardCharsets.UTF_8), regrasPeephole, fluxo);
+        }
+        String chave = cache.chave(fonte, CacheCompilacao.opcoes(regrasPeephole, fluxo));
+        ProgramaDecodificado programa = cache.carregar(chave);
+        if (programa == null) {
+            programa = CompiladorLote.compilarFonte(new String(fonte, StandardCharsets.UTF_8), regrasPeephole, fluxo);
+            cache.guardar(chave, programa);
+        }
+        return programa;
+    }
+
+    // Os fluxos de Channels.newInputStream/newOutputStream sincronizam leitura e
+    // escrita no mesmo lock do canal, e o cliente lê a resposta enquanto envia a
+    // entrada; estes chamam o canal direto.
+    static InputStream entrada(SocketChannel canal) {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int inicio, int tamanho) throws IOException {
+                return tamanho == 0 ? 0 : canal.read(ByteBuffer.wrap(b, inicio, tamanho));
+            }
+        };
+    }
+
+    static OutputStream saida(SocketChannel canal) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int inicio, int tamanho) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, inicio, tamanho);
+                while (buffer.hasRemaining()) {
+                    canal.write(buffer);
+                }
+            }
+        };
+    }
+
+    // escreve a resposta em quadros; fluxo(tipo) transforma cada escrita num quadro
+    private static class Quadros {
+        private final DataOutputStream saida;
+
+        Quadros(OutputStream saida) {
+            this.saida = new DataOutputStream(saida);
+        }
+
+        void quadro(byte tipo, byte[] conteudo, int inicio, int tamanho) throws IOException {
+            saida.writeByte(tipo);
+            saida.writeInt(tamanho);
+            saida.write(conteudo, inicio, tamanho);
+        }
+
+        void texto(byte tipo, String texto) throws IOException {
+            byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+            quadro(tipo, bytes, 0, bytes.length);
+            saida.flush();
+        }
+
+        void fim(int status) throws IOException {
+            saida.writeByte(QUADRO_FIM);
+            saida.writeInt(Integer.BYTES);
+            saida.writeInt(status);
+            saida.flush();
+        }
+
+        OutputStream fluxo(byte tipo) {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int inicio, int tamanho) throws IOException {
+                    quadro(tipo, b, inicio, tamanho);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    saida.flush();
+                }
+            };
+        }
+    }
+
+    // últimas latências por pedido (do pedido lido ao FIM enviado), num anel
+    public static class Latencias {
+        private final long[] amostras;
+        private int proxima;
+        private long total;
+
+        Latencias(int capacidade) {
+            this.amostras = new long[capacidade];
+        }
+
+        synchronized void registrar(long nanos) {
+            amostras[proxima] = nanos;
+            proxima = (proxima + 1) % amostras.length;
+            total++;
+        }
+
+        public synchronized long getTotal() {
+            return total;
+        }
+
+        public synchronized String resumo() {
+            int n = (int) Math.min(total, amostras.length);
+            if (n == 0) {
+                return "Nenhum pedido atendido";
+            }
+            long[] ordenadas = Arrays.copyOf(amostras, n);
+            Arrays.sort(ordenadas);
+            return String.format("%d pedidos; latência p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, máx %.2f ms",
+                    total, percentil(ordenadas, 50), percentil(ordenadas, 90), percentil(ordenadas, 99),
+                    ordenadas[n - 1] / 1e6);
+        }
+
+        private static double percentil(long[] ordenadas, int p) {
+            int indice = (int) Math.ceil(p / 100.0 * ordenadas.length) - 1;
+            return ordenadas[Math.max(0, indice)] / 1e6;
+        }
+    }
+}
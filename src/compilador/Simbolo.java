@@ -14,9 +14,15 @@ public class Simbolo {
     private Categoria categoria;
     private String escopo; 
     private int endereco;
+    private int id; // id do nome internado pelo Parser; -1 se não houver
 
     public Simbolo(String nome, Token tipo, Categoria categoria, String escopo, int endereco) {
+        this(nome, -1, tipo, categoria, escopo, endereco);
+    }
+
+    public Simbolo(String nome, int id, Token tipo, Categoria categoria, String escopo, int endereco) {
         this.nome = nome;
+        this.id = id;
         this.tipo = tipo;
         this.categoria = categoria;
         this.escopo = escopo;
@@ -28,6 +34,10 @@ public class Simbolo {
         return nome;
     }
 
+    public int getId() {
+        return id;
+    }
+
     public Token getTipo() {
         return tipo;
     }
@@ -0,0 +1,117 @@
+package compilador;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Reescreve, na carga, sequências frequentes de instruções em superinstruções.
+// Só a operação da primeira instrução da sequência é trocada: as instruções
+// seguintes continuam no lugar, com seus argumentos, e a superinstrução lê os
+// argumentos delas. Assim nenhum desvio precisa ser renumerado e um desvio para
+// o meio da sequência executa as instruções originais.
+public final class Superinstrucoes {
+
+    public enum Fusao {
+        SOMA_VARIAVEIS, // CRVL a, CRVL b, SOMA -> SOMA_VV; CRVI a, CRVI b, SOMI -> SOMI_VV
+        SOMA_CONSTANTE, // CRVL a, CRCT k, SOMA -> SOMA_VC; CRVI a, CRCI k, SOMI -> SOMI_VC
+        MOVE_VARIAVEL, // CRVL a, ARMZ b -> MOVE_VV; CRVI a, ARMI b -> MOVI_VV
+        MOVE_CONSTANTE, // CRCT k, ARMZ b -> MOVE_CV; CRCI k, ARMI b -> MOVI_CV
+        COMPARA_DESVIA // CRVL a, CRCT k | CRVL b, CMxx, DSVF e -> DSVF_xx_VC | DSVF_xx_VV (e _VCI, _VVI com CIxx)
+    }
+
+    private Superinstrucoes() {
+    }
+
+    // "todas", "nenhuma" ou uma lista como "SOMA_VARIAVEIS,COMPARA_DESVIA"
+    public static Set<Fusao> lerFusoes(String lista) {
+        if (lista == null || lista.isBlank() || lista.equalsIgnoreCase("todas")) {
+            return EnumSet.allOf(Fusao.class);
+        }
+        Set<Fusao> fusoes = EnumSet.noneOf(Fusao.class);
+        if (lista.equalsIgnoreCase("nenhuma")) {
+            return fusoes;
+        }
+        for (String nome : lista.split(",")) {
+            try {
+                fusoes.add(Fusao.valueOf(nome.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Superinstrução desconhecida: " + nome.trim());
+            }
+        }
+        return fusoes;
+    }
+
+    // retorna o vetor de operações de execução; o original não é alterado
+    public static int[] fundir(int[] operacoes, Set<Fusao> fusoes) {
+        int n = operacoes.length;
+        int[] execucao = operacoes.clone();
+        for (int i = 0; i < n; i++) {
+            int op = operacoes[i];
+            if (op != CodigoOperacao.CRVL && op != CodigoOperacao.CRCT && op != CodigoOperacao.CRVI
+                    && op != CodigoOperacao.CRCI) {
+                continue;
+            }
+            int op1 = i + 1 < n ? operacoes[i + 1] : -1;
+            int op2 = i + 2 < n ? operacoes[i + 2] : -1;
+            int op3 = i + 3 < n ? operacoes[i + 3] : -1;
+            // as mesmas fusões valem nas duas faixas, cada uma com as suas operações
+            boolean inteira = op == CodigoOperacao.CRVI || op == CodigoOperacao.CRCI;
+            int armazena = inteira ? CodigoOperacao.ARMI : CodigoOperacao.ARMZ;
+
+            if (op == CodigoOperacao.CRVL || op == CodigoOperacao.CRVI) {
+                int constante = inteira ? CodigoOperacao.CRCI : CodigoOperacao.CRCT;
+                int relacao = inteira ? relacaoInteira(op2) : relacao(op2);
+                if (fusoes.contains(Fusao.COMPARA_DESVIA) && op3 == CodigoOperacao.DSVF && relacao >= 0) {
+                    if (op1 == constante) {
+                        execucao[i] = (inteira ? CodigoOperacao.DSVF_IG_VCI : CodigoOperacao.DSVF_IG_VC) + relacao;
+                        continue;
+                    }
+                    if (op1 == op) {
+                        execucao[i] = (inteira ? CodigoOperacao.DSVF_IG_VVI : CodigoOperacao.DSVF_IG_VV) + relacao;
+                        continue;
+                    }
+                }
+                if (op2 == (inteira ? CodigoOperacao.SOMI : CodigoOperacao.SOMA)) {
+                    if (fusoes.contains(Fusao.SOMA_VARIAVEIS) && op1 == op) {
+                        execucao[i] = inteira ? CodigoOperacao.SOMI_VV : CodigoOperacao.SOMA_VV;
+                        continue;
+                    }
+                    if (fusoes.contains(Fusao.SOMA_CONSTANTE) && op1 == constante) {
+                        execucao[i] = inteira ? CodigoOperacao.SOMI_VC : CodigoOperacao.SOMA_VC;
+                        continue;
+                    }
+                }
+                if (fusoes.contains(Fusao.MOVE_VARIAVEL) && op1 == armazena) {
+                    execucao[i] = inteira ? CodigoOperacao.MOVI_VV : CodigoOperacao.MOVE_VV;
+                }
+            } else if (fusoes.contains(Fusao.MOVE_CONSTANTE) && op1 == armazena) {
+                execucao[i] = inteira ? CodigoOperacao.MOVI_CV : CodigoOperacao.MOVE_CV;
+            }
+        }
+        return execucao;
+    }
+
+    // posição da comparação na ordem IG, DG, AI, MI, MA, ME das superinstruções
+    private static int relacao(int op) {
+        switch (op) {
+            case CodigoOperacao.CMIG:
+                return 0;
+            case CodigoOperacao.CMDG:
+                return 1;
+            case CodigoOperacao.CMAI:
+                return 2;
+            case CodigoOperacao.CPMI:
+                return 3;
+            case CodigoOperacao.CMMA:
+                return 4;
+            case CodigoOperacao.CMME:
+                return 5;
+            default:
+                return -1;
+        }
+    }
+
+    // o mesmo para as comparações inteiras
+    private static int relacaoInteira(int op) {
+        return op >= CodigoOperacao.CIIG && op <= CodigoOperacao.CIME ? op - CodigoOperacao.CIIG : -1;
+    }
+}
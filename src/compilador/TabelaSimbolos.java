@@ -1,70 +1,154 @@
 package compilador;
 
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+// Os símbolos são indexados pelo id do nome (internado pelo Parser): visiveis[id] é
+// o símbolo que o nome enxerga agora, então buscar não percorre a lista. Cada escopo
+// tem um id inteiro e fica numa pilha; ao declarar um nome que já era visível de um
+// escopo de fora, o símbolo anterior é guardado e volta quando o escopo termina, e
+// sair de um escopo só desfaz as declarações dele. A lista completa continua
+// existindo para o imprimir().
 public class TabelaSimbolos {
 
+    public static final int ESCOPO_GLOBAL = 0;
+
     private List<Simbolo> simbolos;
-    private String escopoAtual; 
+    private String escopoAtual;
+
+    private Simbolo[] visiveis = new Simbolo[64];
+    private int[] escopoVisivel = new int[64]; // id do escopo de visiveis[id]
+    private Map<String, Integer> idsPorNome = new HashMap<>();
+
+    // pilha de escopos: id, nome e onde começam suas declarações em "desfazer"
+    private int[] pilhaEscopos = new int[8];
+    private String[] pilhaNomes = new String[8];
+    private int[] pilhaInicios = new int[8];
+    private int nivel;
+    private int proximoEscopo = ESCOPO_GLOBAL + 1;
+
+    // para cada declaração: o id do nome e o símbolo/escopo que ela escondeu
+    private int[] desfazerIds = new int[64];
+    private Simbolo[] desfazerSimbolos = new Simbolo[64];
+    private int[] desfazerEscopos = new int[64];
+    private int quantidadeDesfazer;
 
     public TabelaSimbolos() {
         this.simbolos = new ArrayList<>();
         this.escopoAtual = "global";
+        this.pilhaEscopos[0] = ESCOPO_GLOBAL;
+        this.pilhaNomes[0] = "global";
     }
 
-    
+
     public void entrarEscopo(String novoEscopo) {
+        nivel++;
+        if (nivel == pilhaEscopos.length) {
+            pilhaEscopos = Arrays.copyOf(pilhaEscopos, nivel * 2);
+            pilhaNomes = Arrays.copyOf(pilhaNomes, nivel * 2);
+            pilhaInicios = Arrays.copyOf(pilhaInicios, nivel * 2);
+        }
+        pilhaEscopos[nivel] = proximoEscopo++;
+        pilhaNomes[nivel] = novoEscopo;
+        pilhaInicios[nivel] = quantidadeDesfazer;
         this.escopoAtual = novoEscopo;
     }
 
-    
+
     public void sairEscopo() {
-        this.escopoAtual = "global";
+        if (nivel == 0) {
+            return;
+        }
+        for (int i = quantidadeDesfazer - 1; i >= pilhaInicios[nivel]; i--) {
+            int id = desfazerIds[i];
+            visiveis[id] = desfazerSimbolos[i];
+            escopoVisivel[id] = desfazerEscopos[i];
+            desfazerSimbolos[i] = null;
+        }
+        quantidadeDesfazer = pilhaInicios[nivel];
+        nivel--;
+        this.escopoAtual = pilhaNomes[nivel];
     }
 
     public String getEscopoAtual() {
         return escopoAtual;
     }
 
-    
+    public int getIdEscopoAtual() {
+        return pilhaEscopos[nivel];
+    }
+
+
     public void adicionar(Simbolo simbolo) {
+        int id = simbolo.getId();
+        if (id < 0) {
+            throw new RuntimeException("Símbolo sem id de nome: " + simbolo.getNome());
+        }
         simbolos.add(simbolo);
+        idsPorNome.putIfAbsent(simbolo.getNome(), id);
+        if (id >= visiveis.length) {
+            int novo = Math.max(id + 1, visiveis.length * 2);
+            visiveis = Arrays.copyOf(visiveis, novo);
+            escopoVisivel = Arrays.copyOf(escopoVisivel, novo);
+        }
+        // um nome repetido no mesmo escopo continua achando o primeiro, como antes
+        if (visiveis[id] != null && escopoVisivel[id] == getIdEscopoAtual()) {
+            return;
+        }
+        if (quantidadeDesfazer == desfazerIds.length) {
+            desfazerIds = Arrays.copyOf(desfazerIds, quantidadeDesfazer * 2);
+            desfazerSimbolos = Arrays.copyOf(desfazerSimbolos, quantidadeDesfazer * 2);
+            desfazerEscopos = Arrays.copyOf(desfazerEscopos, quantidadeDesfazer * 2);
+        }
+        desfazerIds[quantidadeDesfazer] = id;
+        desfazerSimbolos[quantidadeDesfazer] = visiveis[id];
+        desfazerEscopos[quantidadeDesfazer] = escopoVisivel[id];
+        quantidadeDesfazer++;
+        visiveis[id] = simbolo;
+        escopoVisivel[id] = getIdEscopoAtual();
     }
 
-    
+
+    // símbolos declarados em todos os escopos
+    public int quantidade() {
+        return simbolos.size();
+    }
+
+
     public Simbolo buscar(String nome) {
-        
-        for (Simbolo s : simbolos) {
-            if (s.getNome().equals(nome) && s.getEscopo().equals(escopoAtual)) {
-                return s;
-            }
-        }
-        
-        for (Simbolo s : simbolos) {
-            if (s.getNome().equals(nome) && s.getEscopo().equals("global")) {
-                return s;
-            }
-        }
-        return null; 
+        Integer id = idsPorNome.get(nome);
+        return id == null ? null : buscar(id);
+    }
+
+    // o símbolo do escopo atual ou, se não houver, o de um escopo de fora
+    public Simbolo buscar(int id) {
+        return id >= 0 && id < visiveis.length ? visiveis[id] : null;
     }
 
-    
+    public boolean existeNoEscopoAtual(int id) {
+        return buscar(id) != null && escopoVisivel[id] == getIdEscopoAtual();
+    }
+
+
     public boolean existeNoEscopoAtual(String nome) {
-        for (Simbolo s : simbolos) {
-            if (s.getNome().equals(nome) && s.getEscopo().equals(escopoAtual)) {
-                return true;
-            }
-        }
-        return false;
+        Integer id = idsPorNome.get(nome);
+        return id != null && existeNoEscopoAtual(id);
     }
 
-    
+
     public void imprimir() {
-        System.out.println("\n=== TABELA DE SÍMBOLOS ===");
+        imprimir(System.out);
+    }
+
+    public void imprimir(PrintStream saida) {
+        saida.println("\n=== TABELA DE SÍMBOLOS ===");
         for (Simbolo s : simbolos) {
-            System.out.println(s);
+            saida.println(s);
         }
-        System.out.println("===========================\n");
+        saida.println("===========================\n");
     }
-}
\ No newline at end of file
+}
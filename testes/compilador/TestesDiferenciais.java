@@ -0,0 +1,142 @@
+package compilador;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Testes diferenciais: cada programa .pas da pasta é compilado e executado em
+// todas as combinações de motor (interpretador, interpretador com JIT desde a
+// primeira volta, nós e registradores), fluxo, peephole e superinstruções, e as
+// saídas têm que ser iguais. O erro de execução entra na saída com a mensagem.
+//
+// O número da instrução do estouro depende do código que o fluxo e o peephole
+// deixam, então ele só é comparado entre as execuções do mesmo código; entre
+// códigos diferentes ele é retirado da mensagem. A execução de referência (sem
+// otimizações, interpretador sem JIT) também tem que bater com o .saida.
+//
+// Uso: java -cp <classes> compilador.TestesDiferenciais testes/programas
+public class TestesDiferenciais {
+
+    private static final MaquinaVirtual.Motor[] MOTORES = {
+        MaquinaVirtual.Motor.INTERPRETADOR, MaquinaVirtual.Motor.INTERPRETADOR,
+        MaquinaVirtual.Motor.NOS, MaquinaVirtual.Motor.REGISTROS
+    };
+    private static final String[] NOMES_MOTORES = { "interpretador", "jit", "nos", "registros" };
+
+    public static void main(String[] args) throws IOException {
+        Path pasta = Paths.get(args.length > 0 ? args[0] : "testes/programas");
+        List<Path> programas = new ArrayList<>();
+        try (DirectoryStream<Path> arquivos = Files.newDirectoryStream(pasta, "*.pas")) {
+            for (Path arquivo : arquivos) {
+                programas.add(arquivo);
+            }
+        }
+        programas.sort(null);
+
+        int falhas = 0;
+        for (Path programa : programas) {
+            List<String> erros = testar(programa);
+            System.out.println((erros.isEmpty() ? "OK    " : "FALHOU ") + programa.getFileName());
+            for (String erro : erros) {
+                System.out.println("  " + erro);
+            }
+            if (!erros.isEmpty()) {
+                falhas++;
+            }
+        }
+        System.out.println(programas.size() + " programas, " + falhas + " com falha");
+        if (falhas > 0 || programas.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    private static List<String> testar(Path programa) throws IOException {
+        String nome = programa.getFileName().toString();
+        String base = nome.substring(0, nome.length() - ".pas".length());
+        byte[] entrada = ler(programa.resolveSibling(base + ".entrada"));
+        Path arquivoSaida = programa.resolveSibling(base + ".saida");
+
+        List<String> erros = new ArrayList<>();
+        String referencia = null;
+        for (int grupo = 0; grupo < 4; grupo++) {
+            boolean fluxo = (grupo & 1) != 0;
+            boolean peephole = (grupo & 2) != 0;
+            // referência do mesmo código: número da instrução incluído
+            String referenciaGrupo = null;
+            for (int motor = 0; motor < MOTORES.length; motor++) {
+                for (boolean fusoes : new boolean[] { false, true }) {
+                    String configuracao = "motor=" + NOMES_MOTORES[motor] + " fluxo=" + fluxo
+                            + " peephole=" + peephole + " super=" + fusoes;
+                    String saida;
+                    try {
+                        Compilador compilador = new Compilador();
+                        compilador.setFluxo(fluxo);
+                        compilador.setPeephole(peephole ? "" : null);
+                        compilador.setSuperinstrucoes(fusoes ? "todas" : "nenhuma");
+                        compilador.setMotor(MOTORES[motor]);
+                        compilador.setLimiarJit(NOMES_MOTORES[motor].equals("jit") ? 1 : 0);
+                        saida = executar(compilador.compilar(programa), entrada);
+                    } catch (RuntimeException e) {
+                        erros.add(configuracao + ": " + e.getMessage());
+                        continue;
+                    }
+                    if (referencia == null) {
+                        referencia = saida;
+                        if (Files.exists(arquivoSaida)) {
+                            String esperada = new String(ler(arquivoSaida), StandardCharsets.UTF_8);
+                            if (!normalizar(esperada).equals(normalizar(saida))) {
+                                erros.add(configuracao + ": saída diferente de " + arquivoSaida.getFileName()
+                                        + "\n" + saida);
+                            }
+                        } else {
+                            Files.write(arquivoSaida, saida.getBytes(StandardCharsets.UTF_8));
+                            erros.add(arquivoSaida.getFileName() + " não existia; gravado com a saída de "
+                                    + configuracao);
+                        }
+                    }
+                    if (referenciaGrupo == null) {
+                        referenciaGrupo = saida;
+                    }
+                    if (!saida.equals(referenciaGrupo)) {
+                        erros.add(configuracao + ": saída diferente no mesmo código\n" + saida);
+                    } else if (!semInstrucao(saida).equals(semInstrucao(referencia))) {
+                        erros.add(configuracao + ": saída diferente da referência\n" + saida);
+                    }
+                }
+            }
+        }
+        return erros;
+    }
+
+    // executa sem prompt e sem prefixo; o erro de execução vira a última linha
+    private static String executar(ProgramaExecutavel programa, byte[] entrada) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SaidaBuffer saida = new SaidaBuffer(bytes, StandardCharsets.UTF_8, false);
+        String erro = "";
+        try {
+            programa.executar(new EntradaBuffer(new ByteArrayInputStream(entrada)), saida);
+        } catch (RuntimeException e) {
+            erro = e.getMessage() + "\n";
+        }
+        return normalizar(bytes.toString(StandardCharsets.UTF_8)) + erro;
+    }
+
+    private static byte[] ler(Path arquivo) throws IOException {
+        return Files.exists(arquivo) ? Files.readAllBytes(arquivo) : new byte[0];
+    }
+
+    private static String normalizar(String texto) {
+        return texto.replace("\r\n", "\n");
+    }
+
+    private static String semInstrucao(String texto) {
+        return texto.replaceAll(" na instrução \\d+", "");
+    }
+}
@@ -0,0 +1,15 @@
+program estouro
+
+var g, i, n: integer;
+
+begin
+  read(n);
+  g := 3;
+  i := 0;
+  while i < n do
+    g := g * g;
+    write(g);
+    i := i + 1;
+  $
+  write(i);
+end.
@@ -0,0 +1,35 @@
+program ifelse
+
+var a, b, c: integer;
+var x: real;
+
+begin
+  read(a);
+  read(b);
+  if a > b then
+    c := a - b;
+  else
+    c := b - a;
+  $
+  write(c);
+  if a = b then
+    c := 0;
+  else
+    if a < b then
+      c := -1;
+    else
+      c := 1;
+    $
+  $
+  write(c);
+  x := a / 2;
+  if x >= 2.5 then
+    x := x * 2;
+  $
+  write(x);
+  if 1 > 2 then
+    write(a);
+  else
+    write(b);
+  $
+end.
@@ -0,0 +1,28 @@
+program laco_aninhado
+
+var i, j, n, soma, conta: integer;
+
+begin
+  read(n);
+  soma := 0;
+  conta := 0;
+  i := 1;
+  while i <= n do
+    j := 1;
+    while j <= i do
+      if j > 2 then
+        soma := soma + i * j;
+      else
+        soma := soma - j;
+      $
+      conta := conta + 1;
+      j := j + 1;
+    $
+    write(soma);
+    i := i + 1;
+  $
+  write(conta);
+  while 1 > 2 do
+    write(soma);
+  $
+end.
@@ -0,0 +1,33 @@
+program nao_chamado
+
+var a, b: integer;
+
+procedure nunca (x: integer)
+  var y: integer;
+begin
+  y := x * 2;
+  while y > 0 do
+    y := y - 1;
+  $
+  write(y);
+end;
+
+procedure dobro (x: integer)
+begin
+  b := x + x;
+end;
+
+procedure tambem_nunca
+begin
+  a := 0;
+  write(a);
+end
+
+begin
+  read(a);
+  dobro(a);
+  write(b);
+  a := b;
+  dobro(a);
+  write(b);
+end.
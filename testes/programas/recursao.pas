@@ -0,0 +1,36 @@
+program recursao
+
+var n, r, m: integer;
+
+procedure fat (k: integer)
+  var t: integer;
+begin
+  t := k;
+  if k > 1 then
+    m := k - 1;
+    fat(m);
+    r := r * t;
+  else
+    r := 1;
+  $
+end;
+
+procedure conta (a: integer; b: integer)
+  var s: integer;
+begin
+  s := a + b;
+  if a > 0 then
+    m := a - 1;
+    conta(m, s);
+  $
+  write(s);
+end
+
+begin
+  read(n);
+  fat(n);
+  write(r);
+  m := 3;
+  n := 10;
+  conta(m, n);
+end.